@@ -14,6 +14,12 @@ package org.eclipse.datagrid.cluster.nodelibrary.common;
  * #L%
  */
 
+import java.util.Locale;
+
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataCodec;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataCodecs;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataDistributionQueue.Backpressure;
+
 public final class ClusterEnv
 {
 	public static final String NAD_KEY = "Microstream-NAD";
@@ -102,6 +108,136 @@ public final class ClusterEnv
 		return env("MY_NAMESPACE");
 	}
 	
+	public static Integer distributionQueueCapacity()
+	{
+		final String env = env("MSCNL_DISTRIBUTION_QUEUE_CAPACITY");
+		return env == null ? null : Integer.parseInt(env);
+	}
+
+	/**
+	 * One of BLOCK, FAIL or SPILL, see {@link Backpressure}.
+	 */
+	public static Backpressure distributionBackpressure()
+	{
+		final String env = env("MSCNL_DISTRIBUTION_BACKPRESSURE");
+		return env == null ? null : Backpressure.valueOf(env.toUpperCase(Locale.ROOT));
+	}
+
+	/**
+	 * Maximum amount of polled record batches waiting for their import on replicas.
+	 */
+	public static Integer consumerPipelineCapacity()
+	{
+		final String env = env("MSCNL_CONSUMER_PIPELINE_CAPACITY");
+		return env == null ? null : Integer.parseInt(env);
+	}
+
+	/**
+	 * When replicas commit their kafka offsets, one of sync, async or batched.
+	 */
+	public static String offsetCommitMode()
+	{
+		return env("MSCNL_OFFSET_COMMIT_MODE");
+	}
+
+	/**
+	 * Amount of records after which a batched offset commit is due.
+	 */
+	public static Integer offsetCommitRecords()
+	{
+		final String env = env("MSCNL_OFFSET_COMMIT_RECORDS");
+		return env == null ? null : Integer.parseInt(env);
+	}
+
+	/**
+	 * Milliseconds after which a batched offset commit is due.
+	 */
+	public static Integer offsetCommitIntervalMillis()
+	{
+		final String env = env("MSCNL_OFFSET_COMMIT_INTERVAL_MS");
+		return env == null ? null : Integer.parseInt(env);
+	}
+
+	/**
+	 * Enables group commit of concurrent store calls if set.
+	 */
+	public static Integer groupCommitWindowMillis()
+	{
+		final String env = env("MSCNL_GROUP_COMMIT_WINDOW_MS");
+		return env == null ? null : Integer.parseInt(env);
+	}
+
+	public static Integer groupCommitMaxBatchSize()
+	{
+		final String env = env("MSCNL_GROUP_COMMIT_MAX_BATCH_SIZE");
+		return env == null ? null : Integer.parseInt(env);
+	}
+
+	/**
+	 * Distributes every commit in a kafka transaction with an idempotent producer.
+	 */
+	public static boolean transactionalDistribution()
+	{
+		return Boolean.parseBoolean(env("MSCNL_TRANSACTIONAL_DISTRIBUTION"));
+	}
+
+	/**
+	 * Delays each object graph update of replicas by this window, so the objects changed by all commits
+	 * arriving meanwhile are refreshed at once.
+	 */
+	public static Integer objectGraphCoalescingWindowMillis()
+	{
+		final String env = env("MSCNL_OBJECT_GRAPH_COALESCING_WINDOW_MS");
+		return env == null ? null : Integer.parseInt(env);
+	}
+
+	/**
+	 * Only invalidates the loaded objects touched by replicated commits if set, and refreshes them in this interval.
+	 * Cleared lazy references to them are reloaded on their next access.
+	 */
+	public static Integer objectGraphInvalidationIntervalMillis()
+	{
+		final String env = env("MSCNL_OBJECT_GRAPH_INVALIDATION_INTERVAL_MS");
+		return env == null ? null : Integer.parseInt(env);
+	}
+
+	/**
+	 * Applies replicated object graph updates with a read write lock of the node instead of the JVM-wide lock,
+	 * readers take the read side with {@link ClusterStorageManager#executeReading(java.util.function.Supplier)}.
+	 */
+	public static boolean readWriteLockedObjectGraphUpdates()
+	{
+		return Boolean.parseBoolean(env("MSCNL_READ_WRITE_LOCKED_OBJECT_GRAPH_UPDATES"));
+	}
+
+	/**
+	 * Sends the data of each storage channel to its own partition, so replication isn't limited to the
+	 * throughput of a single partition. Replicas apply a commit once all of its parts have arrived.
+	 */
+	public static boolean partitionedDistribution()
+	{
+		return Boolean.parseBoolean(env("MSCNL_PARTITIONED_DISTRIBUTION"));
+	}
+
+	/**
+	 * Distributes only the type definitions added by a type dictionary change instead of the complete dictionary.
+	 * All replicas have to support type dictionary deltas.
+	 */
+	public static boolean typeDictionaryDeltaDistribution()
+	{
+		return Boolean.parseBoolean(env("MSCNL_TYPE_DICTIONARY_DELTA_DISTRIBUTION"));
+	}
+
+	/**
+	 * Name of the codec the distributed messages are encoded with, e.g. lz4, zstd or deflate.
+	 * If not set, kafka compresses the record batches instead.
+	 */
+	public static StorageBinaryDataCodec distributionCodec()
+	{
+		final String env = env("MSCNL_DISTRIBUTION_CODEC");
+		return env == null ? null : StorageBinaryDataCodecs.get(env);
+	}
+
 	public static boolean isProdMode()
 	{
 		return Boolean.parseBoolean(env("MSCNL_PROD_MODE"));
@@ -16,10 +16,14 @@ package org.eclipse.datagrid.cluster.nodelibrary.common;
 
 import java.nio.ByteBuffer;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 import org.eclipse.serializer.afs.types.AFile;
 import org.eclipse.serializer.collections.types.XGettingEnum;
+import org.eclipse.serializer.concurrency.XThreads;
 import org.eclipse.serializer.meta.NotImplementedYetError;
 import org.eclipse.serializer.persistence.binary.types.Binary;
 import org.eclipse.serializer.persistence.types.PersistenceCommitListener;
@@ -54,6 +58,21 @@ public interface ClusterStorageManager<T> extends StorageManager
 
 	long getCurrentOffset();
 
+	/**
+	 * Stores the instance like {@link #store(Object)}, but doesn't wait for the distribution of the commit.
+	 *
+	 * @return a stage which is completed with the object id of the instance, once the commit has been
+	 *         acknowledged by the distribution
+	 */
+	CompletionStage<Long> storeAsync(Object instance);
+
+	/**
+	 * Executes the reader while no replicated object graph update is applied, so it sees consistent data.
+	 * Depending on the configuration, readers may run concurrently or are serialized with the JVM-wide lock of
+	 * {@link XThreads#executeSynchronized(Supplier)}.
+	 */
+	<R> R executeReading(Supplier<R> reader);
+
 	@Override
 	Lazy<T> root();
 
@@ -271,6 +290,20 @@ public interface ClusterStorageManager<T> extends StorageManager
 			return this.exitOnThrow(() -> this.delegate().store(instance));
 		}
 
+		@Override
+		public CompletionStage<Long> storeAsync(final Object instance)
+		{
+			// no distribution to wait for by default
+			return CompletableFuture.completedFuture(this.store(instance));
+		}
+
+		@Override
+		public <R> R executeReading(final Supplier<R> reader)
+		{
+			// the lock replicated object graph updates are executed with by default
+			return XThreads.executeSynchronized(reader);
+		}
+
 		@Override
 		public long[] storeAll(final Object... instances)
 		{
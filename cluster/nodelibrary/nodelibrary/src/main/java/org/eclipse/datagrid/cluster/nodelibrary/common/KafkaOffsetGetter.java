@@ -23,7 +23,7 @@ import static org.apache.kafka.clients.consumer.ConsumerConfig.KEY_DESERIALIZER_
 import static org.apache.kafka.clients.consumer.ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG;
 import static org.apache.kafka.common.IsolationLevel.READ_COMMITTED;
 
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.util.Arrays;
 import java.util.Locale;
@@ -35,6 +35,8 @@ import org.apache.kafka.common.serialization.StringDeserializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.eclipse.datagrid.cluster.nodelibrary.common.storage.MyStorageBinaryDistributedKafka;
+
 /**
  * Tool to ask kafka for the last storage offset available
  */
@@ -92,8 +94,9 @@ public class KafkaOffsetGetter
 			}
 			for (final var rec : records)
 			{
-				final long recordMsOffset = Long.parseLong(
-					new String(rec.headers().lastHeader("storageOffset").value(), StandardCharsets.UTF_8)
+				final long recordMsOffset = MyStorageBinaryDistributedKafka.storageOffset(
+					rec.headers(),
+					ByteBuffer.wrap(rec.value())
 				);
 				lastStorageOffset = Math.max(lastStorageOffset, recordMsOffset);
 			}
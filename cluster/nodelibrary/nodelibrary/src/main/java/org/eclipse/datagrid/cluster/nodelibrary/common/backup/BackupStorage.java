@@ -31,6 +31,7 @@ import org.slf4j.LoggerFactory;
 import org.eclipse.datagrid.cluster.nodelibrary.common.ClusterEnv;
 import org.eclipse.datagrid.cluster.nodelibrary.common.storage.MyStorageBinaryDataClientKafka;
 import org.eclipse.datagrid.storage.distributed.types.ObjectGraphUpdateHandler;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataBufferPool;
 import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataMerger;
 import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataPacketAcceptor;
 
@@ -169,6 +170,7 @@ public class BackupStorage implements AutoCloseable
 
 		final String topic = ClusterEnv.kafkaTopicName();
 
+		final StorageBinaryDataBufferPool bufferPool = StorageBinaryDataBufferPool.New();
 		this.dataClient = new MyStorageBinaryDataClientKafka(
 			topic,
 			topic + "-backup",
@@ -178,8 +180,10 @@ public class BackupStorage implements AutoCloseable
 					foundation.getConnectionFoundation(),
 					this.storage,
 					ObjectGraphUpdateHandler.Synchronized()
-				)
-			)
+				),
+				bufferPool
+			),
+			bufferPool
 		);
 
 		loadOffset();
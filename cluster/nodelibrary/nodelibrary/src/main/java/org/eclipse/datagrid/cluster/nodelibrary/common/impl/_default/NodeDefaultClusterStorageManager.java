@@ -20,7 +20,12 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.security.SecureRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
 
+import org.eclipse.serializer.persistence.binary.types.BinaryPersistenceFoundation;
 import org.eclipse.serializer.persistence.types.PersistenceCommitListener;
 import org.eclipse.serializer.persistence.types.Storer;
 import org.eclipse.serializer.reference.Lazy;
@@ -38,9 +43,13 @@ import org.eclipse.datagrid.cluster.nodelibrary.common.exception.NotADistributor
 import org.eclipse.datagrid.cluster.nodelibrary.common.storage.ActivatableStorageBinaryDataDistributor;
 import org.eclipse.datagrid.cluster.nodelibrary.common.storage.ActivatableStorageBinaryDataMerger;
 import org.eclipse.datagrid.cluster.nodelibrary.common.storage.ClusterStorageBinaryDataDistributorKafka;
+import org.eclipse.datagrid.cluster.nodelibrary.common.storage.ClusterStorageGroupCommitter;
 import org.eclipse.datagrid.cluster.nodelibrary.common.storage.MyStorageBinaryDataClientKafka;
 import org.eclipse.datagrid.storage.distributed.types.DistributedStorage;
 import org.eclipse.datagrid.storage.distributed.types.ObjectGraphUpdateHandler;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataBufferPool;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataDistributionQueue;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataDistributionQueue.Backpressure;
 import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataDistributor;
 import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataMerger;
 import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataPacketAcceptor;
@@ -51,8 +60,12 @@ public class NodeDefaultClusterStorageManager<T> extends DefaultClusterStorageMa
 
 	private ActivatableStorageBinaryDataDistributor distributor;
 	private ActivatableStorageBinaryDataMerger merger;
+	private ObjectGraphUpdateHandler.Pipelined objectGraphUpdates;
+	private ObjectGraphUpdateHandler.ReadWriteLocking objectGraphLock;
+	private StorageBinaryDataMerger.Invalidating invalidatingMerger;
 	private MyStorageBinaryDataClientKafka dataClient;
 	private ClusterStorageBinaryDataDistributorKafka kafkaDistributor;
+	private ClusterStorageGroupCommitter groupCommitter;
 	private boolean isDistributor;
 	private EmbeddedStorageManager storage;
 
@@ -114,7 +127,7 @@ public class NodeDefaultClusterStorageManager<T> extends DefaultClusterStorageMa
 
 		LOG.info("Using offset {}", storageOffset);
 
-		this.kafkaDistributor = async ? ClusterStorageBinaryDataDistributorKafka.Async(topic)
+		this.kafkaDistributor = async ? this.createAsyncDistributor(topic)
 			: ClusterStorageBinaryDataDistributorKafka.Sync(topic);
 		this.distributor = new ActivatableStorageBinaryDataDistributor(
 			StorageBinaryDataDistributor.Caching(this.kafkaDistributor)
@@ -122,7 +135,8 @@ public class NodeDefaultClusterStorageManager<T> extends DefaultClusterStorageMa
 
 		final var foundation = DistributedStorage.configureWriting(
 			config.setStorageDirectory(storagePath.toString()).createEmbeddedStorageFoundation(),
-			this.distributor
+			this.distributor,
+			ClusterEnv.typeDictionaryDeltaDistribution()
 		);
 
 		this.storage = foundation.start();
@@ -140,22 +154,60 @@ public class NodeDefaultClusterStorageManager<T> extends DefaultClusterStorageMa
 			this.storage.storeRoot();
 		}
 
-		this.merger = new ActivatableStorageBinaryDataMerger(
-			StorageBinaryDataMerger.New(
-				foundation.getConnectionFoundation(),
-				this.storage,
-				ObjectGraphUpdateHandler.Synchronized()
-			)
+		if (ClusterEnv.readWriteLockedObjectGraphUpdates())
+		{
+			LOG.info("Using a read write lock for object graph updates");
+			this.objectGraphLock = ObjectGraphUpdateHandler.ReadWriteLocking();
+		}
+		final Integer coalescingWindow = ClusterEnv.objectGraphCoalescingWindowMillis();
+		this.objectGraphUpdates = ObjectGraphUpdateHandler.Pipelined(
+			MyStorageBinaryDataClientKafka.pipelineCapacity(),
+			this.objectGraphLock == null ? ObjectGraphUpdateHandler.Synchronized() : this.objectGraphLock,
+			coalescingWindow == null ? 0 : coalescingWindow
 		);
+		this.merger = new ActivatableStorageBinaryDataMerger(this.createMerger(foundation.getConnectionFoundation()));
 
+		// shared by the received packets and the reassembled messages
+		final StorageBinaryDataBufferPool bufferPool = StorageBinaryDataBufferPool.New();
 		this.dataClient = new MyStorageBinaryDataClientKafka(
 			topic,
 			topic + "-" + ClusterEnv.myPodName() + "-" + this.getRandomAlphaNumeric(8),
 			storageOffset,
-			StorageBinaryDataPacketAcceptor.New(this.merger)
+			StorageBinaryDataPacketAcceptor.New(this.merger, bufferPool),
+			bufferPool,
+			this.objectGraphUpdates
 		);
 
 		this.dataClient.start();
+
+		final Integer groupCommitWindow = ClusterEnv.groupCommitWindowMillis();
+		if (groupCommitWindow != null)
+		{
+			final Integer groupCommitMaxBatchSize = ClusterEnv.groupCommitMaxBatchSize();
+			LOG.info("Using group commit with a window of {} ms", groupCommitWindow);
+			this.groupCommitter = new ClusterStorageGroupCommitter(
+				// the storer is created by the thread committing it right afterwards
+				() ->
+				{
+					this.distributor.requestDistribution();
+					return this.createStorer();
+				},
+				this.distributor::takeLastDistribution,
+				groupCommitWindow,
+				groupCommitMaxBatchSize == null ? 1000 : groupCommitMaxBatchSize
+			);
+		}
+	}
+
+	private ClusterStorageBinaryDataDistributorKafka createAsyncDistributor(final String topic)
+	{
+		final Integer queueCapacity = ClusterEnv.distributionQueueCapacity();
+		final Backpressure backpressure = ClusterEnv.distributionBackpressure();
+		return ClusterStorageBinaryDataDistributorKafka.Async(
+			topic,
+			queueCapacity == null ? StorageBinaryDataDistributionQueue.defaultCapacity() : queueCapacity,
+			backpressure == null ? Backpressure.BLOCK : backpressure
+		);
 	}
 
 	private String getRandomAlphaNumeric(final int length)
@@ -183,16 +235,49 @@ public class NodeDefaultClusterStorageManager<T> extends DefaultClusterStorageMa
 		return this.storage;
 	}
 
+	private StorageBinaryDataMerger createMerger(final BinaryPersistenceFoundation<?> foundation)
+	{
+		final Integer invalidationInterval = ClusterEnv.objectGraphInvalidationIntervalMillis();
+		if (invalidationInterval != null)
+		{
+			LOG.info("Invalidating replicated objects, refreshing them every {} ms", invalidationInterval);
+			this.invalidatingMerger = StorageBinaryDataMerger.Invalidating(
+				foundation,
+				this.storage,
+				this.objectGraphUpdates,
+				invalidationInterval
+			);
+			return this.invalidatingMerger;
+		}
+
+		return StorageBinaryDataMerger.New(foundation, this.storage, this.objectGraphUpdates);
+	}
+
 	@Override
 	public boolean shutdown()
 	{
 		LOG.info("Disposing Cluster Resources");
+		if (this.groupCommitter != null)
+		{
+			this.groupCommitter.dispose();
+		}
 		this.dataClient.dispose();
+		if (this.invalidatingMerger != null)
+		{
+			this.invalidatingMerger.dispose();
+		}
+		this.objectGraphUpdates.dispose();
 		this.distributor.dispose();
 		this.storage.close();
 		return super.shutdown();
 	}
 
+	@Override
+	public <R> R executeReading(final Supplier<R> reader)
+	{
+		return this.objectGraphLock == null ? super.executeReading(reader) : this.objectGraphLock.executeReading(reader);
+	}
+
 	@Override
 	public void issueFullFileCheck()
 	{
@@ -252,9 +337,58 @@ public class NodeDefaultClusterStorageManager<T> extends DefaultClusterStorageMa
 	public long store(final Object instance)
 	{
 		this.ensureDistribution();
+		if (this.groupCommitter != null)
+		{
+			try
+			{
+				return this.groupCommitter.submit(instance).committed().join();
+			}
+			catch (final CompletionException e)
+			{
+				// the caller gets the same exception as without group commit
+				throw unwrap(e);
+			}
+		}
 		return super.store(instance);
 	}
 
+	private static RuntimeException unwrap(final CompletionException e)
+	{
+		final Throwable cause = e.getCause();
+		if (cause instanceof RuntimeException)
+		{
+			return (RuntimeException)cause;
+		}
+		if (cause instanceof Error)
+		{
+			throw (Error)cause;
+		}
+		return e;
+	}
+
+	@Override
+	public CompletionStage<Long> storeAsync(final Object instance)
+	{
+		this.ensureDistribution();
+		if (this.groupCommitter != null)
+		{
+			return this.groupCommitter.submit(instance).acknowledged();
+		}
+		this.distributor.requestDistribution();
+		final long objectId;
+		final CompletionStage<Long> distribution;
+		try
+		{
+			objectId = super.store(instance);
+		}
+		finally
+		{
+			distribution = this.distributor.takeLastDistribution();
+		}
+		return distribution == null ? CompletableFuture.completedFuture(objectId)
+			: distribution.thenApply(offset -> objectId);
+	}
+
 	@Override
 	public long[] storeAll(final Object... instances)
 	{
@@ -14,6 +14,12 @@ package org.eclipse.datagrid.cluster.nodelibrary.common.storage;
  * #L%
  */
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 import org.eclipse.serializer.persistence.binary.types.Binary;
 
 import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataDistributor;
@@ -21,7 +27,15 @@ import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataDistribut
 public class ActivatableStorageBinaryDataDistributor implements StorageBinaryDataDistributor
 {
 	private final StorageBinaryDataDistributor distributor;
-	private boolean active = false;
+	private volatile boolean active = false;
+	// commits are distributed by the storing thread, this is how it gets hold of the acknowledgement
+	private final ThreadLocal<CompletionStage<Long>> lastDistribution = new ThreadLocal<>();
+	// only threads which take the acknowledgement afterwards get one, so none is left behind in other threads
+	private final ThreadLocal<Boolean> distributionRequested = new ThreadLocal<>();
+	// the last complete type dictionary and the deltas after it, distributed on activation, since the type
+	// dictionary exporter distributes the complete one only once, even if this distributor isn't active yet
+	private String typeDictionary;
+	private final List<ByteBuffer> typeDictionaryDeltas = new ArrayList<>();
 
 	public ActivatableStorageBinaryDataDistributor(final StorageBinaryDataDistributor distributor)
 	{
@@ -33,8 +47,16 @@ public class ActivatableStorageBinaryDataDistributor implements StorageBinaryDat
 		return this.active;
 	}
 
-	public void setActive(final boolean active)
+	public synchronized void setActive(final boolean active)
 	{
+		if (active && !this.active && this.typeDictionary != null)
+		{
+			this.distributor.distributeTypeDictionary(this.typeDictionary);
+			for (final ByteBuffer typeDictionaryDelta : this.typeDictionaryDeltas)
+			{
+				this.distributor.distributeTypeDictionaryDelta(typeDictionaryDelta.duplicate());
+			}
+		}
 		this.active = active;
 	}
 
@@ -44,21 +66,85 @@ public class ActivatableStorageBinaryDataDistributor implements StorageBinaryDat
 		this.distributor.dispose();
 	}
 
+	/**
+	 * Makes the data distributed next by the current thread be distributed asynchronously, its acknowledgement
+	 * is returned by {@link #takeLastDistribution()}, which has to be called afterwards.
+	 */
+	public void requestDistribution()
+	{
+		this.lastDistribution.remove();
+		this.distributionRequested.set(Boolean.TRUE);
+	}
+
+	/**
+	 * Returns and clears the acknowledgement of the last data distributed by the current thread, or null if
+	 * nothing was distributed or it hasn't been requested by {@link #requestDistribution()}.
+	 */
+	public CompletionStage<Long> takeLastDistribution()
+	{
+		final CompletionStage<Long> distribution = this.lastDistribution.get();
+		this.lastDistribution.remove();
+		this.distributionRequested.remove();
+		return distribution;
+	}
+
 	@Override
 	public void distributeData(final Binary data)
 	{
-		if (this.active)
+		if (!this.active)
+		{
+			return;
+		}
+		if (this.distributionRequested.get() != null)
+		{
+			this.lastDistribution.set(this.distributor.distributeDataAsync(data));
+		}
+		else
 		{
 			this.distributor.distributeData(data);
 		}
 	}
 
 	@Override
-	public void distributeTypeDictionary(final String typeDictionaryData)
+	public CompletionStage<Long> distributeDataAsync(final Binary data)
+	{
+		if (this.active)
+		{
+			return this.distributor.distributeDataAsync(data);
+		}
+		return CompletableFuture.completedFuture(-1L);
+	}
+
+	@Override
+	public synchronized void distributeTypeDictionary(final String typeDictionaryData)
 	{
+		this.typeDictionary = typeDictionaryData;
+		this.typeDictionaryDeltas.clear();
 		if (this.active)
 		{
 			this.distributor.distributeTypeDictionary(typeDictionaryData);
 		}
 	}
+
+	@Override
+	public boolean supportsTypeDictionaryDeltas()
+	{
+		return this.distributor.supportsTypeDictionaryDeltas();
+	}
+
+	@Override
+	public synchronized void distributeTypeDictionaryDelta(final ByteBuffer typeDictionaryDelta)
+	{
+		if (this.typeDictionary != null)
+		{
+			// copied, the exporter may reuse the buffer, direct like the original, receivers read it by address
+			final ByteBuffer copy = ByteBuffer.allocateDirect(typeDictionaryDelta.remaining());
+			copy.put(typeDictionaryDelta.duplicate()).flip();
+			this.typeDictionaryDeltas.add(copy);
+		}
+		if (this.active)
+		{
+			this.distributor.distributeTypeDictionaryDelta(typeDictionaryDelta);
+		}
+	}
 }
@@ -14,6 +14,8 @@ package org.eclipse.datagrid.cluster.nodelibrary.common.storage;
  * #L%
  */
 
+import java.nio.ByteBuffer;
+
 import org.eclipse.serializer.persistence.binary.types.Binary;
 
 import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataMerger;
@@ -55,4 +57,13 @@ public class ActivatableStorageBinaryDataMerger implements StorageBinaryDataMerg
 			this.merger.receiveTypeDictionary(typeDictionaryData);
 		}
 	}
+
+	@Override
+	public void receiveTypeDictionaryDelta(final ByteBuffer typeDictionaryDelta)
+	{
+		if (this.active)
+		{
+			this.merger.receiveTypeDictionaryDelta(typeDictionaryDelta);
+		}
+	}
 }
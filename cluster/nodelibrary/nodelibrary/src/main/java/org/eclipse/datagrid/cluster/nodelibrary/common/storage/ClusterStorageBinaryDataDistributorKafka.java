@@ -14,22 +14,23 @@ package org.eclipse.datagrid.cluster.nodelibrary.common.storage;
  * #L%
  */
 
+import static org.apache.kafka.clients.producer.ProducerConfig.ACKS_CONFIG;
 import static org.apache.kafka.clients.producer.ProducerConfig.COMPRESSION_TYPE_CONFIG;
-import static org.apache.kafka.clients.producer.ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG;
-import static org.apache.kafka.clients.producer.ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG;
+import static org.apache.kafka.clients.producer.ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG;
+import static org.apache.kafka.clients.producer.ProducerConfig.TRANSACTIONAL_ID_CONFIG;
 import static org.eclipse.serializer.chars.XChars.notEmpty;
+import static org.eclipse.serializer.math.XMath.positive;
+import static org.eclipse.serializer.util.X.notNull;
 
 import java.nio.ByteBuffer;
-import java.nio.charset.StandardCharsets;
 import java.util.Properties;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
 
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.common.record.CompressionType;
-import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.eclipse.serializer.collections.BulkList;
 import org.eclipse.serializer.collections.types.XList;
@@ -37,9 +38,19 @@ import org.eclipse.serializer.memory.XMemory;
 import org.eclipse.serializer.persistence.binary.types.Binary;
 import org.eclipse.serializer.persistence.binary.types.ChunksWrapper;
 
+import org.eclipse.datagrid.cluster.nodelibrary.common.ClusterEnv;
 import org.eclipse.datagrid.cluster.nodelibrary.common.KafkaPropertiesProvider;
+import org.eclipse.datagrid.storage.distributed.kafka.types.StorageBinaryDataMessageAcknowledgement;
+import org.eclipse.datagrid.storage.distributed.kafka.types.StorageBinaryDataPacketSerializer;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataChecksum;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataCodec;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataCodecs;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataDistributionQueue;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataDistributionQueue.Backpressure;
 import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataDistributor;
 import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataMessage.MessageType;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataPacketHeader;
+import org.eclipse.datagrid.storage.distributed.types.StorageTypeDictionaryFingerprint;
 
 public interface ClusterStorageBinaryDataDistributorKafka extends StorageBinaryDataDistributor
 {
@@ -48,9 +59,22 @@ public interface ClusterStorageBinaryDataDistributorKafka extends StorageBinaryD
 		return new ClusterStorageBinaryDataDistributorKafka.Sync(notEmpty(topicName));
 	}
 
-	static ClusterStorageBinaryDataDistributorKafka Async(final String topicName)
+	static ClusterStorageBinaryDataDistributorKafka.Async Async(final String topicName)
 	{
-		return new ClusterStorageBinaryDataDistributorKafka.Async(notEmpty(topicName));
+		return Async(topicName, StorageBinaryDataDistributionQueue.defaultCapacity(), Backpressure.BLOCK);
+	}
+
+	static ClusterStorageBinaryDataDistributorKafka.Async Async(
+		final String topicName,
+		final int queueCapacity,
+		final Backpressure backpressure
+	)
+	{
+		return new ClusterStorageBinaryDataDistributorKafka.Async(
+			notEmpty(topicName),
+			positive(queueCapacity),
+			notNull(backpressure)
+		);
 	}
 
 	void setStorageOffset(long offset);
@@ -60,86 +84,307 @@ public interface ClusterStorageBinaryDataDistributorKafka extends StorageBinaryD
 	abstract class Abstract implements ClusterStorageBinaryDataDistributorKafka
 	{
 		private final String topicName;
-		private final KafkaProducer<String, byte[]> producer;
-		private final AtomicLong                    storageOffset = new AtomicLong(Long.MIN_VALUE);
+		private final KafkaProducer<String, ByteBuffer[]> producer;
+		private final AtomicLong                          storageOffset = new AtomicLong(Long.MIN_VALUE);
+		private final boolean transactional;
+		private final StorageBinaryDataCodec codec;
+		private final boolean partitioned;
+		// of the last distributed type dictionary, stamped on every message
+		private long typeDictionaryFingerprint = StorageTypeDictionaryFingerprint.none();
 
 		Abstract(final String topicName)
 		{
 			this.topicName = topicName;
+			this.transactional = ClusterEnv.transactionalDistribution();
+			final StorageBinaryDataCodec codec = ClusterEnv.distributionCodec();
+			this.codec = codec == null ? StorageBinaryDataCodecs.none() : codec;
+			this.partitioned = ClusterEnv.partitionedDistribution();
 
 			final Properties properties = KafkaPropertiesProvider.provide();
-			properties.setProperty(KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
-			properties.setProperty(VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class.getName());
-			properties.setProperty(COMPRESSION_TYPE_CONFIG, CompressionType.ZSTD.name);
-			this.producer = new KafkaProducer<>(properties);
+			if (this.codec.id() == StorageBinaryDataCodecs.idNone())
+			{
+				// encoded messages don't compress any further
+				properties.setProperty(COMPRESSION_TYPE_CONFIG, CompressionType.ZSTD.name);
+			}
+			if (this.transactional)
+			{
+				// all packets of a message are written atomically, read committed consumers never see torn messages
+				properties.setProperty(ENABLE_IDEMPOTENCE_CONFIG, "true");
+				properties.setProperty(ACKS_CONFIG, "all");
+				properties.setProperty(TRANSACTIONAL_ID_CONFIG, "storage-distributor-" + ClusterEnv.myPodName());
+			}
+			this.producer = new KafkaProducer<>(
+				properties,
+				new StringSerializer(),
+				StorageBinaryDataPacketSerializer.New(
+					MyStorageBinaryDistributedKafka.maxPacketSize() + StorageBinaryDataPacketHeader.length()
+				)
+			);
+			if (this.transactional)
+			{
+				this.producer.initTransactions();
+			}
+		}
+
+		protected abstract CompletionStage<Long> distribute(MessageType messageType, Binary data);
+
+		/*
+		 * Packets are slices of the channel chunk buffers which the packet serializer copies
+		 * into its reused transfer array, hence the synchronization.
+		 * The returned stage is completed with the storage offset of the last packet.
+		 */
+		protected synchronized CompletionStage<Long> executeDistribution(final MessageType messageType, final Binary data)
+		{
+			if (!this.transactional)
+			{
+				this.updateTypeDictionaryFingerprint(messageType, data);
+				return this.sendPackets(messageType, data);
+			}
+
+			final long typeDictionaryFingerprintBefore = this.typeDictionaryFingerprint;
+			final long storageOffsetBefore = this.storageOffset.get();
+			this.producer.beginTransaction();
+			try
+			{
+				this.updateTypeDictionaryFingerprint(messageType, data);
+				final CompletionStage<Long> acknowledgement = this.sendPackets(messageType, data);
+				this.producer.commitTransaction();
+				return acknowledgement;
+			}
+			catch (final RuntimeException e)
+			{
+				// fenced producers can't abort anymore, the error is reported anyway
+				try
+				{
+					this.producer.abortTransaction();
+				}
+				catch (final RuntimeException abortError)
+				{
+					e.addSuppressed(abortError);
+				}
+				this.storageOffset.set(storageOffsetBefore);
+				this.typeDictionaryFingerprint = typeDictionaryFingerprintBefore;
+				throw e;
+			}
+		}
+
+		private void updateTypeDictionaryFingerprint(final MessageType messageType, final Binary data)
+		{
+			if (messageType == MessageType.TYPE_DICTIONARY)
+			{
+				this.typeDictionaryFingerprint = StorageTypeDictionaryFingerprint.of(this.allBuffers(data));
+			}
+			else if (messageType == MessageType.TYPE_DICTIONARY_DELTA)
+			{
+				this.typeDictionaryFingerprint = StorageTypeDictionaryFingerprint.chain(
+					this.typeDictionaryFingerprint,
+					this.allBuffers(data)
+				);
+			}
+		}
+
+		/*
+		 * A commit consists of one message, or one message per channel in partitioned mode.
+		 * The commit id is the storage offset of its first packet.
+		 */
+		private CompletionStage<Long> sendPackets(final MessageType messageType, final Binary data)
+		{
+			final XList<ByteBuffer[]> parts = BulkList.New();
+			final XList<Integer> partitions = BulkList.New();
+			if (this.partitioned)
+			{
+				this.collectChannelParts(data, parts, partitions);
+			}
+			else
+			{
+				parts.add(this.allBuffers(data));
+				partitions.add(null);
+			}
+
+			// the packet serializer copies the encoded data while sending, so it can be released afterwards
+			final XList<ByteBuffer> encoded = BulkList.New();
+			try
+			{
+				if (this.codec.id() != StorageBinaryDataCodecs.idNone())
+				{
+					for (int i = 0; i < parts.size(); i++)
+					{
+						final ByteBuffer buffer = this.codec.encode(parts.at(i));
+						encoded.add(buffer);
+						parts.set(i, new ByteBuffer[] { buffer });
+					}
+				}
+
+				int packetCount = 0;
+				for (final ByteBuffer[] part : parts)
+				{
+					packetCount += packetCount(size(part));
+				}
+				final StorageBinaryDataMessageAcknowledgement acknowledgement = StorageBinaryDataMessageAcknowledgement.New(
+					packetCount
+				);
+				final long commitId = this.storageOffset.get() + 1;
+				for (int i = 0; i < parts.size(); i++)
+				{
+					this.sendPackets(
+						messageType,
+						parts.at(i),
+						commitId,
+						i,
+						Math.toIntExact(parts.size()),
+						partitions.at(i),
+						acknowledgement
+					);
+				}
+
+				final long lastOffset = this.storageOffset.get();
+				return acknowledgement.completion().thenApply(metadata -> lastOffset);
+			}
+			finally
+			{
+				encoded.iterate(XMemory::deallocateDirectByteBuffer);
+			}
 		}
 
-		protected abstract void execute(Runnable action);
+		/*
+		 * Each non-empty channel chunk becomes a part, sent to the partition of its channel.
+		 */
+		private void collectChannelParts(
+			final Binary data,
+			final XList<ByteBuffer[]> parts,
+			final XList<Integer> partitions
+		)
+		{
+			final int partitionCount = this.producer.partitionsFor(this.topicName).size();
+			final int[] channelIndex = new int[1];
+			data.iterateChannelChunks(channelChunk ->
+			{
+				final ByteBuffer[] buffers = duplicates(channelChunk.buffers());
+				if (size(buffers) > 0)
+				{
+					parts.add(buffers);
+					partitions.add(channelIndex[0] % partitionCount);
+				}
+				channelIndex[0]++;
+			});
+		}
 
-		private void distribute(final MessageType messageType, final Binary data)
+		private static int packetCount(final int messageSize)
 		{
-			this.execute(() -> this.executeDistribution(messageType, data));
+			final int maxPacketSize = MyStorageBinaryDistributedKafka.maxPacketSize();
+			return messageSize / maxPacketSize + (messageSize % maxPacketSize == 0 ? 0 : 1);
 		}
 
-		private void executeDistribution(final MessageType messageType, final Binary data)
+		private static int size(final ByteBuffer[] buffers)
 		{
-			final ByteBuffer[] buffers = this.allBuffers(data);
+			int size = 0;
+			for (final ByteBuffer buffer : buffers)
+			{
+				size += buffer.remaining();
+			}
+			return size;
+		}
+
+		private void sendPackets(
+			final MessageType messageType,
+			final ByteBuffer[] buffers,
+			final long commitId,
+			final int commitPart,
+			final int commitParts,
+			final Integer partition,
+			final StorageBinaryDataMessageAcknowledgement acknowledgement
+		)
+		{
+			final int maxPacketSize = MyStorageBinaryDistributedKafka.maxPacketSize();
+			final CRC32C checksum = new CRC32C();
 			int messageSize = 0;
 			for (final ByteBuffer buffer : buffers)
 			{
 				messageSize += buffer.remaining();
-				buffer.mark();
+				StorageBinaryDataChecksum.update(checksum, buffer);
 			}
+			final int messageChecksum = (int)checksum.getValue();
+			// the storage offset of the first packet, unique as long as the storage offsets are
+			final long messageId = this.storageOffset.get() + 1;
 
 			int remaining = messageSize;
 			int currentBuffer = 0;
 			int packetIndex = 0;
-			final int packetCount = messageSize / MyStorageBinaryDistributedKafka.maxPacketSize() + (messageSize
-				% MyStorageBinaryDistributedKafka.maxPacketSize() == 0 ? 0 : 1);
+			final int packetCount = packetCount(messageSize);
+			final XList<ByteBuffer> segments = BulkList.New();
 			while (remaining > 0)
 			{
-				final byte[] packet = new byte[Math.min(remaining, MyStorageBinaryDistributedKafka.maxPacketSize())];
-				int packetOffset = 0;
-				while (packetOffset < packet.length)
+				// placeholder for the header, which needs the checksum of the packet
+				segments.add(null);
+				checksum.reset();
+				int packetRemaining = Math.min(remaining, maxPacketSize);
+				while (packetRemaining > 0)
 				{
 					final ByteBuffer buffer = buffers[currentBuffer];
-					final int length = Math.min(packet.length - packetOffset, buffer.remaining());
-					buffer.get(packet, packetOffset, length);
+					final int length = Math.min(packetRemaining, buffer.remaining());
+					final ByteBuffer segment = buffer.slice();
+					segment.limit(length);
+					segments.add(segment);
+					StorageBinaryDataChecksum.update(checksum, segment);
+					buffer.position(buffer.position() + length);
 					if (!buffer.hasRemaining())
 					{
 						currentBuffer++;
 					}
 					remaining -= length;
-					packetOffset += length;
+					packetRemaining -= length;
 				}
-
-				final ProducerRecord<String, byte[]> record = new ProducerRecord<>(this.topicName, packet);
-				MyStorageBinaryDistributedKafka.addPacketHeaders(
-					record.headers(),
+				segments.set(0, MyStorageBinaryDistributedKafka.packetHeader(
 					messageType,
 					messageSize,
 					packetIndex,
-					packetCount
+					packetCount,
+					this.storageOffset.incrementAndGet(),
+					this.codec,
+					(int)checksum.getValue(),
+					messageChecksum,
+					messageId,
+					commitId,
+					commitPart,
+					commitParts,
+					this.partitioned,
+					this.typeDictionaryFingerprint
+				));
+
+				final ProducerRecord<String, ByteBuffer[]> record = new ProducerRecord<>(
+					this.topicName,
+					partition,
+					null,
+					segments.toArray(ByteBuffer.class)
 				);
+				this.producer.send(record, acknowledgement);
 
-				final long offset = this.storageOffset.incrementAndGet();
-				record.headers().add("storageOffset", Long.toString(offset).getBytes(StandardCharsets.UTF_8));
-
-				producer.send(record);
-
+				segments.clear();
 				packetIndex++;
 			}
+		}
 
-			for (final ByteBuffer buffer : buffers)
+		private static ByteBuffer[] duplicates(final ByteBuffer[] buffers)
+		{
+			final ByteBuffer[] duplicates = new ByteBuffer[buffers.length];
+			for (int i = 0; i < buffers.length; i++)
 			{
-				buffer.reset();
+				duplicates[i] = buffers[i].duplicate();
 			}
+			return duplicates;
 		}
 
 		private ByteBuffer[] allBuffers(final Binary data)
 		{
+			// duplicates, so the positions of the channel chunk buffers are left untouched
 			final XList<ByteBuffer> list = BulkList.New();
-			data.iterateChannelChunks(channelChunk -> list.addAll(channelChunk.buffers()));
+			data.iterateChannelChunks(channelChunk ->
+			{
+				for (final ByteBuffer buffer : channelChunk.buffers())
+				{
+					list.add(buffer.duplicate());
+				}
+			});
 			return list.toArray(ByteBuffer.class);
 		}
 
@@ -149,6 +394,12 @@ public interface ClusterStorageBinaryDataDistributorKafka extends StorageBinaryD
 			this.distribute(MessageType.DATA, data);
 		}
 
+		@Override
+		public CompletionStage<Long> distributeDataAsync(final Binary data)
+		{
+			return this.distribute(MessageType.DATA, data);
+		}
+
 		@Override
 		public void distributeTypeDictionary(final String typeDictionaryData)
 		{
@@ -160,6 +411,18 @@ public interface ClusterStorageBinaryDataDistributorKafka extends StorageBinaryD
 			);
 		}
 
+		@Override
+		public boolean supportsTypeDictionaryDeltas()
+		{
+			return true;
+		}
+
+		@Override
+		public void distributeTypeDictionaryDelta(final ByteBuffer typeDictionaryDelta)
+		{
+			this.distribute(MessageType.TYPE_DICTIONARY_DELTA, ChunksWrapper.New(typeDictionaryDelta));
+		}
+
 		@Override
 		public synchronized void dispose()
 		{
@@ -188,42 +451,56 @@ public interface ClusterStorageBinaryDataDistributorKafka extends StorageBinaryD
 		}
 
 		@Override
-		protected void execute(final Runnable action)
+		protected CompletionStage<Long> distribute(final MessageType messageType, final Binary data)
 		{
-			action.run();
+			return this.executeDistribution(messageType, data);
 		}
 	}
 
 	public static class Async extends Abstract
 	{
-		private final ExecutorService executor;
+		private final StorageBinaryDataDistributionQueue queue;
 
-		Async(final String topicName)
+		Async(final String topicName, final int queueCapacity, final Backpressure backpressure)
 		{
 			super(topicName);
-			this.executor = Executors.newSingleThreadExecutor(this::createThread);
+			this.queue = StorageBinaryDataDistributionQueue.New(
+				this::executeDistribution,
+				"StorageDistributor-Kafka",
+				queueCapacity,
+				backpressure,
+				StorageBinaryDataDistributionQueue.defaultMaximumBatchSize(),
+				StorageBinaryDataDistributionQueue.defaultSpillDirectory()
+			);
 		}
 
-		private Thread createThread(final Runnable runnable)
+		@Override
+		protected CompletionStage<Long> distribute(final MessageType messageType, final Binary data)
 		{
-			final Thread thread = new Thread(runnable);
-			thread.setName("StorageDistributor-Kafka");
-			return thread;
+			return this.queue.enqueue(messageType, data);
 		}
 
-		@Override
-		protected void execute(final Runnable action)
+		/**
+		 * Returns the amount of commits waiting for distribution.
+		 */
+		public int queueDepth()
 		{
-			this.executor.execute(action);
+			return this.queue.depth();
+		}
+
+		/**
+		 * Returns the nanoseconds the oldest commit is waiting for distribution.
+		 */
+		public long lagNanos()
+		{
+			return this.queue.lagNanos();
 		}
 
 		@Override
-		public synchronized void dispose()
+		public void dispose()
 		{
-			if (!this.executor.isShutdown())
-			{
-				this.executor.shutdown();
-			}
+			// not synchronized, pending commits are distributed before the producer is closed
+			this.queue.dispose();
 
 			super.dispose();
 		}
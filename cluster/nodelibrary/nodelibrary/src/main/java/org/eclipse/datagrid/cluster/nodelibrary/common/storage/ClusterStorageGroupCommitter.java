@@ -0,0 +1,225 @@
+package org.eclipse.datagrid.cluster.nodelibrary.common.storage;
+
+/*-
+ * #%L
+ * Eclipse DataGrid Cluster Nodelibrary
+ * %%
+ * Copyright (C) 2025 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.eclipse.serializer.persistence.types.Storer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Merges store calls of concurrent threads which arrive within a short window into one storer commit, which
+ * results in one local write and one distributed message for all of them.
+ */
+public class ClusterStorageGroupCommitter
+{
+	private static final Logger LOG = LoggerFactory.getLogger(ClusterStorageGroupCommitter.class);
+
+	private final Supplier<Storer> storerProvider;
+	private final Supplier<CompletionStage<Long>> distributionProvider;
+	private final long windowNanos;
+	private final int maxBatchSize;
+	private final LinkedBlockingQueue<Request> requests = new LinkedBlockingQueue<>();
+	private final Thread thread;
+	private volatile boolean active = true;
+
+	/**
+	 * @param storerProvider       creates the storer used for one group
+	 * @param distributionProvider returns the acknowledgement of the commit just done by the current thread, or
+	 *                             null if it wasn't distributed
+	 * @param windowMillis         how long to wait for more store calls after the first one of a group
+	 * @param maxBatchSize         maximum amount of store calls in one group
+	 */
+	public ClusterStorageGroupCommitter(
+		final Supplier<Storer> storerProvider,
+		final Supplier<CompletionStage<Long>> distributionProvider,
+		final int windowMillis,
+		final int maxBatchSize
+	)
+	{
+		this.storerProvider = storerProvider;
+		this.distributionProvider = distributionProvider;
+		this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+		this.maxBatchSize = maxBatchSize;
+		this.thread = new Thread(this::run, "StorageGroupCommitter");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	public static class Request
+	{
+		private final Object instance;
+		private final CompletableFuture<Long> committed = new CompletableFuture<>();
+		private final CompletableFuture<Long> acknowledged = new CompletableFuture<>();
+
+		Request(final Object instance)
+		{
+			this.instance = instance;
+		}
+
+		/**
+		 * Completed with the object id once the group has been committed locally.
+		 */
+		public CompletableFuture<Long> committed()
+		{
+			return this.committed;
+		}
+
+		/**
+		 * Completed with the object id once the commit of the group has been acknowledged by the distribution.
+		 */
+		public CompletableFuture<Long> acknowledged()
+		{
+			return this.acknowledged;
+		}
+
+		private void fail(final Throwable t)
+		{
+			this.committed.completeExceptionally(t);
+			this.acknowledged.completeExceptionally(t);
+		}
+	}
+
+	public Request submit(final Object instance)
+	{
+		if (!this.active)
+		{
+			throw new IllegalStateException("Group committer is already disposed");
+		}
+
+		final Request request = new Request(instance);
+		this.requests.add(request);
+		return request;
+	}
+
+	private void run()
+	{
+		final List<Request> group = new ArrayList<>();
+		while (this.active || !this.requests.isEmpty())
+		{
+			try
+			{
+				final Request first = this.requests.poll(100, TimeUnit.MILLISECONDS);
+				if (first == null)
+				{
+					continue;
+				}
+
+				group.add(first);
+				final long deadline = System.nanoTime() + this.windowNanos;
+				long remaining;
+				while (group.size() < this.maxBatchSize && (remaining = deadline - System.nanoTime()) > 0)
+				{
+					final Request next = this.requests.poll(remaining, TimeUnit.NANOSECONDS);
+					if (next == null)
+					{
+						break;
+					}
+					group.add(next);
+				}
+				this.requests.drainTo(group, this.maxBatchSize - group.size());
+
+				this.commit(group);
+			}
+			catch (final InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				break;
+			}
+			finally
+			{
+				group.clear();
+			}
+		}
+
+		// only left over when interrupted or submitted concurrently to dispose
+		final IllegalStateException disposed = new IllegalStateException("Group committer is already disposed");
+		Request request;
+		while ((request = this.requests.poll()) != null)
+		{
+			request.fail(disposed);
+		}
+	}
+
+	private void commit(final List<Request> group)
+	{
+		final long[] objectIds = new long[group.size()];
+		final CompletionStage<Long> distribution;
+		try
+		{
+			final Storer storer = this.storerProvider.get();
+			for (int i = 0; i < objectIds.length; i++)
+			{
+				objectIds[i] = storer.store(group.get(i).instance);
+			}
+			storer.commit();
+			distribution = this.distributionProvider.get();
+		}
+		catch (final Throwable t)
+		{
+			LOG.error("Group commit of {} store calls failed", group.size(), t);
+			group.forEach(request -> request.fail(t));
+			return;
+		}
+
+		for (int i = 0; i < objectIds.length; i++)
+		{
+			final Request request = group.get(i);
+			final long objectId = objectIds[i];
+			request.committed.complete(objectId);
+			if (distribution == null)
+			{
+				request.acknowledged.complete(objectId);
+			}
+			else
+			{
+				distribution.whenComplete((offset, error) ->
+				{
+					if (error != null)
+					{
+						request.acknowledged.completeExceptionally(error);
+					}
+					else
+					{
+						request.acknowledged.complete(objectId);
+					}
+				});
+			}
+		}
+	}
+
+	/**
+	 * Stops accepting store calls, pending ones are still committed.
+	 */
+	public void dispose()
+	{
+		this.active = false;
+		try
+		{
+			this.thread.join();
+		}
+		catch (final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -19,31 +19,36 @@ import static org.apache.kafka.clients.consumer.ConsumerConfig.AUTO_OFFSET_RESET
 import static org.apache.kafka.clients.consumer.ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG;
 import static org.apache.kafka.clients.consumer.ConsumerConfig.GROUP_ID_CONFIG;
 import static org.apache.kafka.clients.consumer.ConsumerConfig.ISOLATION_LEVEL_CONFIG;
-import static org.apache.kafka.clients.consumer.ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG;
-import static org.apache.kafka.clients.consumer.ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG;
 import static org.apache.kafka.common.IsolationLevel.READ_COMMITTED;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.header.Headers;
-import org.apache.kafka.common.serialization.ByteArrayDeserializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.eclipse.serializer.afs.types.AWritableFile;
 import org.eclipse.store.afs.nio.types.NioFileSystem;
@@ -55,13 +60,32 @@ import org.eclipse.datagrid.cluster.nodelibrary.common.KafkaOffsetGetter;
 import org.eclipse.datagrid.cluster.nodelibrary.common.KafkaPropertiesProvider;
 import org.eclipse.datagrid.cluster.nodelibrary.common.OffsetFileWriter;
 import org.eclipse.datagrid.storage.distributed.kafka.types.StorageBinaryDataClientKafka;
+import org.eclipse.datagrid.storage.distributed.kafka.types.StorageBinaryDataCommitStrategy;
+import org.eclipse.datagrid.storage.distributed.kafka.types.StorageBinaryDataPacketDeserializer;
+import org.eclipse.datagrid.storage.distributed.types.ObjectGraphUpdateHandler;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataBufferPool;
 import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataPacket;
 import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataPacketAcceptor;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataPacketHeader;
 
+/**
+ * Consumes the distributed data in a pipeline, so network, CPU and disk work overlap:
+ * <ul>
+ * <li>the polling thread fetches and decodes the records into packets and commits the kafka offsets</li>
+ * <li>the import thread reassembles the messages and imports them into the storage</li>
+ * <li>the object graph is updated by the optional {@link ObjectGraphUpdateHandler.Pipelined}</li>
+ * </ul>
+ * The stages are joined by bounded queues. Kafka offsets are committed by the configured
+ * {@link StorageBinaryDataCommitStrategy}, only after the import of the corresponding packets is done.
+ */
 public class MyStorageBinaryDataClientKafka implements StorageBinaryDataClientKafka
 {
 	private static final Path STOP_FILE_PATH = Paths.get("/storage/stopped");
 	private static final Path OFFSET_FILE_PATH = Paths.get("/storage/offset");
+	private static final int DEFAULT_PIPELINE_CAPACITY = 16;
+	private static final Batch STOP = new Batch(List.of(), List.of(), Long.MIN_VALUE, Map.of(), 0);
+	private static final int DEFAULT_COMMIT_RECORDS = 1000;
+	private static final int DEFAULT_COMMIT_INTERVAL_MS = 1000;
 
 	private final Logger logger = LoggerFactory.getLogger(MyStorageBinaryDataClientKafka.class);
 	private final AtomicBoolean active = new AtomicBoolean();
@@ -69,10 +93,29 @@ public class MyStorageBinaryDataClientKafka implements StorageBinaryDataClientKa
 	private final AtomicBoolean ready = new AtomicBoolean();
 
 	private final AtomicLong                      storageOffset;
+	private final AtomicLong                      importedStorageOffset;
+	private final long                            initialStorageOffset;
+	// highest storage offset per kafka partition, only used by the polling thread
+	private final Map<Integer, Long>              partitionStorageOffsets = new HashMap<>();
 	private final StorageBinaryDataPacketAcceptor packetAcceptor;
+	private final StorageBinaryDataBufferPool     bufferPool;
+	private final ObjectGraphUpdateHandler.Pipelined objectGraphUpdates;
 	private final String topicName;
 	private final String groupId;
 
+	private final BlockingQueue<Batch> batches;
+	private final AtomicInteger pendingBatches = new AtomicInteger();
+	private final StorageBinaryDataCommitStrategy commitStrategy;
+	// guarded by importedOffsets, written by the import thread and taken by the polling thread
+	private final Map<TopicPartition, OffsetAndMetadata> importedOffsets = new HashMap<>();
+	private int importedRecords;
+	// the records of commits which aren't imported yet, per partition in offset order, only used by the import thread
+	private final Map<TopicPartition, ArrayDeque<PendingRecord>> pendingRecords = new HashMap<>();
+	// the next offset per partition and the one up to which all records are imported, only used by the import thread
+	private final Map<TopicPartition, OffsetAndMetadata> nextOffsets = new HashMap<>();
+	private final Map<TopicPartition, OffsetAndMetadata> durableOffsets = new HashMap<>();
+	private final AtomicReference<RuntimeException> importFailure = new AtomicReference<>();
+
 	private boolean stopAtLatestOffset;
 	private OffsetFileWriter offsetFileWriter;
 	private AWritableFile offsetFile;
@@ -83,11 +126,83 @@ public class MyStorageBinaryDataClientKafka implements StorageBinaryDataClientKa
 		final long storageOffset,
 		final StorageBinaryDataPacketAcceptor packetAcceptor
 	)
+	{
+		this(topicName, groupId, storageOffset, packetAcceptor, StorageBinaryDataBufferPool.New());
+	}
+
+	public MyStorageBinaryDataClientKafka(
+		final String topicName,
+		final String groupId,
+		final long storageOffset,
+		final StorageBinaryDataPacketAcceptor packetAcceptor,
+		final StorageBinaryDataBufferPool bufferPool
+	)
+	{
+		this(topicName, groupId, storageOffset, packetAcceptor, bufferPool, null);
+	}
+
+	/**
+	 * @param objectGraphUpdates the handler the receiver of the packet acceptor hands the object graph updates to,
+	 *        so {@link #isReady()} also waits for them, or <code>null</code> if they are executed synchronously
+	 */
+	public MyStorageBinaryDataClientKafka(
+		final String topicName,
+		final String groupId,
+		final long storageOffset,
+		final StorageBinaryDataPacketAcceptor packetAcceptor,
+		final StorageBinaryDataBufferPool bufferPool,
+		final ObjectGraphUpdateHandler.Pipelined objectGraphUpdates
+	)
 	{
 		this.topicName = topicName;
 		this.groupId        = groupId;
 		this.storageOffset  = new AtomicLong(storageOffset);
+		this.importedStorageOffset = new AtomicLong(storageOffset);
+		this.initialStorageOffset = storageOffset;
 		this.packetAcceptor = packetAcceptor;
+		this.bufferPool     = bufferPool;
+		this.objectGraphUpdates = objectGraphUpdates;
+
+		this.batches = new ArrayBlockingQueue<>(pipelineCapacity());
+		this.commitStrategy = createCommitStrategy();
+	}
+
+	/**
+	 * Offsets of partially received messages are never committed, so they are read completely again after a restart.
+	 */
+	private static StorageBinaryDataCommitStrategy createCommitStrategy()
+	{
+		final String mode = ClusterEnv.offsetCommitMode();
+		final StorageBinaryDataCommitStrategy strategy;
+		switch (mode == null ? "batched" : mode.toLowerCase(Locale.ROOT))
+		{
+			case "sync":
+				strategy = StorageBinaryDataCommitStrategy.Sync();
+				break;
+			case "async":
+				strategy = StorageBinaryDataCommitStrategy.Async();
+				break;
+			case "batched":
+				final Integer records = ClusterEnv.offsetCommitRecords();
+				final Integer interval = ClusterEnv.offsetCommitIntervalMillis();
+				strategy = StorageBinaryDataCommitStrategy.Batched(
+					records == null ? DEFAULT_COMMIT_RECORDS : records,
+					interval == null ? DEFAULT_COMMIT_INTERVAL_MS : interval
+				);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown offset commit mode: " + mode);
+		}
+		return StorageBinaryDataCommitStrategy.Durable(strategy);
+	}
+
+	/**
+	 * Capacity of the queues between the pipeline stages.
+	 */
+	public static int pipelineCapacity()
+	{
+		final Integer capacity = ClusterEnv.consumerPipelineCapacity();
+		return capacity == null ? DEFAULT_PIPELINE_CAPACITY : capacity;
 	}
 
 	public boolean isReady()
@@ -126,6 +241,8 @@ public class MyStorageBinaryDataClientKafka implements StorageBinaryDataClientKa
 	private void run()
 	{
 		this.logger.info("Starting reading with storage offset {}", this.storageOffset.get());
+		// commits spread over several partitions are applied in storage offset order
+		this.packetAcceptor.expectCommit(this.initialStorageOffset + 1);
 
 		if (ClusterEnv.isMicro() || ClusterEnv.isBackupNode())
 		{
@@ -135,112 +252,374 @@ public class MyStorageBinaryDataClientKafka implements StorageBinaryDataClientKa
 
 		final Properties properties = KafkaPropertiesProvider.provide();
 		properties.setProperty(GROUP_ID_CONFIG, this.groupId);
-		properties.setProperty(KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
-		properties.setProperty(VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
 		properties.setProperty(ENABLE_AUTO_COMMIT_CONFIG, "false");
 		properties.setProperty(AUTO_OFFSET_RESET_CONFIG, "earliest");
 		properties.setProperty(ALLOW_AUTO_CREATE_TOPICS_CONFIG, "false");
 		properties.setProperty(ISOLATION_LEVEL_CONFIG, READ_COMMITTED.toString().toLowerCase(Locale.ROOT));
 
-		try (final KafkaConsumer<String, byte[]> consumer = new KafkaConsumer<>(properties))
+		final Thread importThread = new Thread(this::runImport, "StorageDataClient-Import");
+		importThread.setDaemon(true);
+		importThread.start();
+
+		try (final KafkaConsumer<String, ByteBuffer> consumer = new KafkaConsumer<>(
+			properties,
+			new StringDeserializer(),
+			StorageBinaryDataPacketDeserializer.New(this.bufferPool)
+		))
 		{
-			consumer.subscribe(Arrays.asList(this.topicName));
-			while (this.active.get())
+			try
 			{
-				if (!this.stopAtLatestOffset)
+				consumer.subscribe(Arrays.asList(this.topicName));
+				while (this.active.get())
 				{
-					final var records = consumer.poll(Duration.ofSeconds(5));
-					this.consume(records);
-					// We are ready if there are no more initial records to be read
-					if (records.isEmpty())
+					if (!this.stopAtLatestOffset)
 					{
-						this.ready.set(true);
+						final var records = consumer.poll(Duration.ofSeconds(5));
+						this.consume(records);
+						// We are ready if there are no more initial records to be read and all read ones are applied
+						if (records.isEmpty())
+						{
+							this.awaitPipeline();
+							this.ready.set(true);
+						}
 					}
-				}
-				else
-				{
-					this.active.set(false);
+					else
+					{
+						this.active.set(false);
 
-					logger.info("Checking latest storage offset...");
-					final long stopAt = new KafkaOffsetGetter().getLastStorageOffset(groupId, topicName);
-					logger.info("Stopping at ms offset {}", stopAt);
+						logger.info("Checking latest storage offset...");
+						final long stopAt = new KafkaOffsetGetter().getLastStorageOffset(groupId, topicName);
+						logger.info("Stopping at ms offset {}", stopAt);
 
-					while (this.storageOffset.get() < stopAt)
-					{
-						this.consume(consumer.poll(Duration.ofSeconds(5)));
-					}
+						while (this.storageOffset.get() < stopAt)
+						{
+							this.consume(consumer.poll(Duration.ofSeconds(5)));
+						}
+						this.awaitPipeline();
+
+						while (this.offsetFileWriter.lastWrittenOffset() < stopAt)
+						{
+							final var target = this.importedStorageOffset.get();
+							this.offsetFileWriter.tryWrite(target);
+							try
+							{
+								Thread.sleep(1);
+							}
+							catch (final InterruptedException e)
+							{
+								throw new RuntimeException(e);
+							}
+						}
 
-					while (this.offsetFileWriter.lastWrittenOffset() < stopAt)
-					{
-						final var target = this.storageOffset.get();
-						this.offsetFileWriter.tryWrite(target);
 						try
 						{
-							Thread.sleep(1);
+							Files.createFile(STOP_FILE_PATH);
 						}
-						catch (final InterruptedException e)
+						catch (final IOException e)
 						{
-							throw new RuntimeException(e);
+							this.logger.error("Failed to create 'stopped' file", e);
 						}
 					}
+					this.commitImportedOffsets(consumer);
+
+					logger.info("Completed updates. Stopped at offset {}", this.storageOffset.get());
+				}
+			}
+			finally
+			{
+				this.stopImport(importThread);
+			}
 
-					try
+			// the pipeline is drained, so the final offsets are committed synchronously before closing
+			this.checkImportFailure();
+			this.commitImportedOffsets(consumer);
+			this.commitStrategy.close(consumer);
+
+			this.finished.set(true);
+		}
+	}
+
+	/**
+	 * Decodes the records into packets and hands them over to the import thread.
+	 * Blocks if the import thread can't keep up.
+	 */
+	private void consume(final ConsumerRecords<String, ByteBuffer> records)
+	{
+		this.checkImportFailure();
+		if (records.isEmpty())
+		{
+			return;
+		}
+
+		final List<StorageBinaryDataPacket> packets = new ArrayList<>();
+		final List<PendingRecord> packetRecords = new ArrayList<>();
+		final Iterator<ConsumerRecord<String, ByteBuffer>> iterator = records.iterator();
+		// the record whose pooled buffer is neither wrapped into a packet nor released yet
+		ConsumerRecord<String, ByteBuffer> current = null;
+		boolean handedOver = false;
+		try
+		{
+			while (iterator.hasNext())
+			{
+				final ConsumerRecord<String, ByteBuffer> record = iterator.next();
+				if (record.value() != null)
+				{
+					current = record;
+					final Headers headers = record.headers();
+					final boolean legacy = MyStorageBinaryDistributedKafka.hasLegacyHeaders(headers);
+					if (!legacy)
 					{
-						Files.createFile(STOP_FILE_PATH);
+						StorageBinaryDataPacketHeader.validate(record.value());
 					}
-					catch (final IOException e)
+					final long offset = MyStorageBinaryDistributedKafka.storageOffset(headers, record.value());
+					// storage offsets only increase within a partition, partitioned commits interleave across them
+					final Long partitionOffset = this.partitionStorageOffsets.get(record.partition());
+					if (offset > (partitionOffset == null ? this.initialStorageOffset : partitionOffset))
 					{
-						this.logger.error("Failed to create 'stopped' file", e);
+						final StorageBinaryDataPacket packet = legacy
+							? this.createLegacyDataPacket(record, headers)
+							: this.createDataPacket(record.value());
+						packets.add(packet);
+						current = null;
+						packetRecords.add(new PendingRecord(
+							new TopicPartition(record.topic(), record.partition()),
+							record.offset(),
+							packet.commitId()
+						));
+						this.partitionStorageOffsets.put(record.partition(), offset);
+						this.storageOffset.accumulateAndGet(offset, Math::max);
 					}
+					else
+					{
+						current = null;
+						this.bufferPool.release(record.value());
+					}
+				}
+			}
+
+			this.pendingBatches.incrementAndGet();
+			try
+			{
+				this.batches.put(new Batch(
+					packets,
+					packetRecords,
+					this.storageOffset.get(),
+					StorageBinaryDataCommitStrategy.nextOffsets(records),
+					records.count()
+				));
+			}
+			catch (final InterruptedException e)
+			{
+				this.pendingBatches.decrementAndGet();
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+			handedOver = true;
+		}
+		finally
+		{
+			if (!handedOver)
+			{
+				// an invalid record fails the whole poll, none of its pooled buffers may be lost
+				packets.forEach(StorageBinaryDataPacket::dispose);
+				if (current != null)
+				{
+					this.bufferPool.release(current.value());
 				}
-				consumer.commitSync();
+				iterator.forEachRemaining(record ->
+				{
+					if (record.value() != null)
+					{
+						this.bufferPool.release(record.value());
+					}
+				});
+			}
+		}
+	}
 
-				logger.info("Completed updates. Stopped at offset {}", this.storageOffset.get());
+	private void runImport()
+	{
+		while (true)
+		{
+			final Batch batch;
+			try
+			{
+				batch = this.batches.take();
+			}
+			catch (final InterruptedException e)
+			{
+				return;
+			}
+			if (batch == STOP)
+			{
+				return;
 			}
 
-			this.finished.set(true);
+			try
+			{
+				this.importBatch(batch);
+			}
+			finally
+			{
+				this.pendingBatches.decrementAndGet();
+			}
 		}
 	}
 
-	private void consume(final ConsumerRecords<String, byte[]> records)
+	private void importBatch(final Batch batch)
 	{
-		final List<StorageBinaryDataPacket> packets = new ArrayList<>();
-		final Iterator<ConsumerRecord<String, byte[]>> iterator = records.iterator();
-		while (iterator.hasNext())
+		// after a failure nothing is imported anymore, the polling thread reports the failure
+		if (this.importFailure.get() != null)
 		{
-			final ConsumerRecord<String, byte[]> record = iterator.next();
-			if (record.serializedValueSize() >= 0)
+			batch.packets.forEach(StorageBinaryDataPacket::dispose);
+			return;
+		}
+
+		try
+		{
+			if (!batch.packets.isEmpty())
 			{
-				final Headers headers = record.headers();
-				final long offset = Long.parseLong(
-					new String(headers.lastHeader("storageOffset").value(), StandardCharsets.UTF_8)
-				);
-				if (offset > this.storageOffset.get())
+				this.packetAcceptor.accept(batch.packets);
+			}
+			for (final PendingRecord record : batch.records)
+			{
+				this.pendingRecords.computeIfAbsent(record.partition, partition -> new ArrayDeque<>()).addLast(record);
+			}
+			this.nextOffsets.putAll(batch.offsets);
+
+			// commits are imported in the order of their ids, everything before the oldest pending one is done,
+			// so a partially received commit only holds back the offsets of the partitions it is spread over
+			final long oldestPendingCommitId = this.packetAcceptor.oldestPendingCommitId();
+			final Map<TopicPartition, OffsetAndMetadata> offsets = this.durableOffsets(oldestPendingCommitId);
+			if (!batch.packets.isEmpty())
+			{
+				final long storageOffset = oldestPendingCommitId == Long.MAX_VALUE
+					? batch.storageOffset
+					: Math.min(batch.storageOffset, oldestPendingCommitId - 1);
+				if (storageOffset > this.importedStorageOffset.get())
 				{
-					this.storageOffset.set(offset);
-					packets.add(this.createDataPacket(record, headers));
+					this.importedStorageOffset.set(storageOffset);
+					if (this.offsetFile != null)
+					{
+						this.offsetFileWriter.tryWrite(storageOffset);
+					}
 				}
 			}
+			synchronized (this.importedOffsets)
+			{
+				this.importedOffsets.putAll(offsets);
+				this.importedRecords += batch.recordCount;
+			}
+		}
+		catch (final RuntimeException e)
+		{
+			this.logger.error("Failed to import data", e);
+			this.importFailure.compareAndSet(null, e);
 		}
+	}
 
-		if (!packets.isEmpty())
+	/*
+	 * Returns the offsets which advanced since the last call, up to the first record of a pending commit
+	 * per partition.
+	 */
+	private Map<TopicPartition, OffsetAndMetadata> durableOffsets(final long oldestPendingCommitId)
+	{
+		final Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+		for (final Map.Entry<TopicPartition, OffsetAndMetadata> next : this.nextOffsets.entrySet())
 		{
-			this.packetAcceptor.accept(packets);
-			if (this.offsetFile != null)
+			final TopicPartition partition = next.getKey();
+			final ArrayDeque<PendingRecord> records = this.pendingRecords.get(partition);
+			// commit ids only increase within a partition
+			while (records != null && !records.isEmpty() && records.peekFirst().commitId < oldestPendingCommitId)
+			{
+				records.pollFirst();
+			}
+			final OffsetAndMetadata offset = records == null || records.isEmpty()
+				? next.getValue()
+				: new OffsetAndMetadata(records.peekFirst().offset);
+			if (!offset.equals(this.durableOffsets.put(partition, offset)))
 			{
-				this.offsetFileWriter.tryWrite(this.storageOffset.get());
+				offsets.put(partition, offset);
 			}
 		}
+		return offsets;
 	}
 
-	private StorageBinaryDataPacket createDataPacket(final ConsumerRecord<String, byte[]> record, final Headers headers)
+	private void checkImportFailure()
 	{
-		return StorageBinaryDataPacket.New(
+		final RuntimeException failure = this.importFailure.get();
+		if (failure != null)
+		{
+			throw failure;
+		}
+	}
+
+	/**
+	 * Waits until all consumed packets have been imported and their object graph updates are done.
+	 */
+	private void awaitPipeline()
+	{
+		while (this.pendingBatches.get() > 0 || this.objectGraphUpdates != null && !this.objectGraphUpdates.isIdle())
+		{
+			this.checkImportFailure();
+			try
+			{
+				Thread.sleep(1);
+			}
+			catch (final InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+		}
+		this.checkImportFailure();
+	}
+
+	private void stopImport(final Thread importThread)
+	{
+		try
+		{
+			this.batches.put(STOP);
+			importThread.join();
+		}
+		catch (final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void commitImportedOffsets(final KafkaConsumer<String, ByteBuffer> consumer)
+	{
+		final Map<TopicPartition, OffsetAndMetadata> offsets;
+		final int records;
+		synchronized (this.importedOffsets)
+		{
+			offsets = new HashMap<>(this.importedOffsets);
+			records = this.importedRecords;
+			this.importedOffsets.clear();
+			this.importedRecords = 0;
+		}
+		// only offsets of imported records are handed over
+		this.commitStrategy.processed(consumer, offsets, records, true);
+	}
+
+	private StorageBinaryDataPacket createDataPacket(final ByteBuffer value)
+	{
+		return StorageBinaryDataPacket.New(value, this.bufferPool);
+	}
+
+	private StorageBinaryDataPacket createLegacyDataPacket(
+		final ConsumerRecord<String, ByteBuffer> record,
+		final Headers headers
+	)
+	{
+		return StorageBinaryDataPacket.Legacy(
 			MyStorageBinaryDistributedKafka.messageType(headers),
 			MyStorageBinaryDistributedKafka.messageLength(headers),
 			MyStorageBinaryDistributedKafka.packetIndex(headers),
 			MyStorageBinaryDistributedKafka.packetCount(headers),
-			ByteBuffer.wrap(record.value())
+			record.value(),
+			this.bufferPool
 		);
 	}
 
@@ -268,4 +647,45 @@ public class MyStorageBinaryDataClientKafka implements StorageBinaryDataClientKa
 			this.offsetFile.close();
 		}
 	}
+
+	private static final class Batch
+	{
+		final List<StorageBinaryDataPacket> packets;
+		final List<PendingRecord> records;
+		final long storageOffset;
+		final Map<TopicPartition, OffsetAndMetadata> offsets;
+		final int recordCount;
+
+		Batch(
+			final List<StorageBinaryDataPacket> packets,
+			final List<PendingRecord> records,
+			final long storageOffset,
+			final Map<TopicPartition, OffsetAndMetadata> offsets,
+			final int recordCount
+		)
+		{
+			this.packets = packets;
+			this.records = records;
+			this.storageOffset = storageOffset;
+			this.offsets = offsets;
+			this.recordCount = recordCount;
+		}
+	}
+
+	/**
+	 * The record of a packet, which is read again after a restart as long as its commit isn't imported.
+	 */
+	private static final class PendingRecord
+	{
+		final TopicPartition partition;
+		final long offset;
+		final long commitId;
+
+		PendingRecord(final TopicPartition partition, final long offset, final long commitId)
+		{
+			this.partition = partition;
+			this.offset = offset;
+			this.commitId = commitId;
+		}
+	}
 }
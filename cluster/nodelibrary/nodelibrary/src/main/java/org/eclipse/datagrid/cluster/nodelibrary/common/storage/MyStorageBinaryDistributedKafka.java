@@ -14,12 +14,16 @@ package org.eclipse.datagrid.cluster.nodelibrary.common.storage;
  * #L%
  */
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 
 import org.apache.kafka.common.header.Headers;
 
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataCodec;
 import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataMessage.MessageType;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataPacketHeader;
 
 public class MyStorageBinaryDistributedKafka
 {
@@ -43,6 +47,11 @@ public class MyStorageBinaryDistributedKafka
 		return "packet-index";
 	}
 
+	public final static String keyStorageOffset()
+	{
+		return "storageOffset";
+	}
+
 	public final static int maxPacketSize()
 	{
 		return 1_000_000;
@@ -53,18 +62,64 @@ public class MyStorageBinaryDistributedKafka
 		return StandardCharsets.UTF_8;
 	}
 
-	public final static void addPacketHeaders(
-		final Headers headers,
+	/**
+	 * Creates the binary envelope, which is sent as first segment of each packet.
+	 */
+	public final static ByteBuffer packetHeader(
 		final MessageType messageType,
 		final int messageLength,
 		final int packetIndex,
-		final int packetCount
+		final int packetCount,
+		final long storageOffset,
+		final StorageBinaryDataCodec codec,
+		final int packetChecksum,
+		final int messageChecksum,
+		final long messageId,
+		final long commitId,
+		final int commitPart,
+		final int commitParts,
+		final boolean partitioned,
+		final long typeDictionaryFingerprint
 	)
 	{
-		headers.add(keyMessageType(), serialize(messageType.name()));
-		headers.add(keyMessageLength(), serialize(messageLength));
-		headers.add(keyPacketIndex(), serialize(packetIndex));
-		headers.add(keyPacketCount(), serialize(packetCount));
+		final ByteBuffer header = ByteBuffer.allocate(StorageBinaryDataPacketHeader.length())
+			.order(ByteOrder.LITTLE_ENDIAN);
+		StorageBinaryDataPacketHeader.write(
+			header,
+			messageType,
+			StorageBinaryDataPacketHeader.flagsCodec(codec)
+				| (partitioned ? StorageBinaryDataPacketHeader.flagPartitioned() : 0),
+			messageLength,
+			packetIndex,
+			packetCount,
+			storageOffset,
+			packetChecksum,
+			messageChecksum,
+			messageId,
+			commitId,
+			commitPart,
+			commitParts,
+			typeDictionaryFingerprint
+		);
+		return header.flip();
+	}
+
+	/**
+	 * Former versions sent the packet fields as separate record headers instead of the binary envelope.
+	 */
+	public final static boolean hasLegacyHeaders(final Headers headers)
+	{
+		return headers.lastHeader(keyMessageType()) != null;
+	}
+
+	/**
+	 * Storage offset of a record, either from the binary envelope or the legacy header.
+	 */
+	public final static long storageOffset(final Headers headers, final ByteBuffer value)
+	{
+		return hasLegacyHeaders(headers)
+			? Long.parseLong(deserializeString(headers.lastHeader(keyStorageOffset()).value()))
+			: StorageBinaryDataPacketHeader.storageOffset(value);
 	}
 
 	public final static MessageType messageType(final Headers headers)
@@ -97,13 +152,6 @@ public class MyStorageBinaryDistributedKafka
 		return new String(bytes, charset());
 	}
 
-	public final static byte[] serialize(final int value)
-	{
-		return new byte[] {
-			(byte)(value >>> 24), (byte)(value >>> 16), (byte)(value >>> 8), (byte)value
-		};
-	}
-
 	public final static int deserializeInt(final byte[] bytes)
 	{
 		int value = 0;
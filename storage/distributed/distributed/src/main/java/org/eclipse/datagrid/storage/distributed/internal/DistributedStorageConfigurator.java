@@ -27,12 +27,22 @@ import org.eclipse.datagrid.storage.distributed.types.StorageTypeDictionaryExpor
 
 public class DistributedStorageConfigurator implements InstanceDispatcherLogic
 {
-	private final StorageBinaryDataDistributor distributor;
+	private final StorageBinaryDataDistributor distributor         ;
+	private final boolean                      typeDictionaryDeltas;
 
 	public DistributedStorageConfigurator(final StorageBinaryDataDistributor distributor)
+	{
+		this(distributor, false);
+	}
+
+	public DistributedStorageConfigurator(
+		final StorageBinaryDataDistributor distributor         ,
+		final boolean                      typeDictionaryDeltas
+	)
 	{
 		super();
-		this.distributor = notNull(distributor);
+		this.distributor          = notNull(distributor);
+		this.typeDictionaryDeltas = typeDictionaryDeltas;
 	}
 
 	@SuppressWarnings("unchecked") // type safety ensure by logic
@@ -48,9 +58,15 @@ public class DistributedStorageConfigurator implements InstanceDispatcherLogic
 		}
 		if(subject instanceof PersistenceTypeDictionaryExporter)
 		{
-			return (T)StorageTypeDictionaryExporterDistributing.New(
-				(PersistenceTypeDictionaryExporter)subject,
-				this.distributor
+			return (T)(this.typeDictionaryDeltas
+				? StorageTypeDictionaryExporterDistributing.Delta(
+					(PersistenceTypeDictionaryExporter)subject,
+					this.distributor
+				)
+				: StorageTypeDictionaryExporterDistributing.New(
+					(PersistenceTypeDictionaryExporter)subject,
+					this.distributor
+				)
 			);
 		}
 		
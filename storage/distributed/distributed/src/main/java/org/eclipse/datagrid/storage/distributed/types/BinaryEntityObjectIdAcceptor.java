@@ -16,6 +16,7 @@ package org.eclipse.datagrid.storage.distributed.types;
 
 import java.util.function.LongConsumer;
 
+import org.eclipse.serializer.collections.HashMapIdObject;
 import org.eclipse.serializer.persistence.binary.types.Binary;
 import org.eclipse.serializer.persistence.binary.types.BinaryEntityRawDataAcceptor;
 import org.eclipse.serializer.persistence.types.PersistenceRootReference;
@@ -25,14 +26,29 @@ import org.eclipse.store.storage.types.StorageConnection;
 
 public class BinaryEntityObjectIdAcceptor implements BinaryEntityRawDataAcceptor
 {
-	private final StorageConnection storage;
-	private final LongConsumer      entityConsumer;
+	private final StorageConnection        storage;
+	private final LongConsumer             entityConsumer;
+	private final HashMapIdObject<Boolean> rootTypes;
 
 	public BinaryEntityObjectIdAcceptor(final StorageConnection storage, final LongConsumer entityConsumer)
+	{
+		this(storage, entityConsumer, HashMapIdObject.New());
+	}
+	
+	/**
+	 * @param rootTypes cache of type ids to whether they are root types, which can be shared by subsequent acceptors
+	 *        and has to be cleared when the type dictionary changes
+	 */
+	public BinaryEntityObjectIdAcceptor(
+		final StorageConnection        storage       ,
+		final LongConsumer             entityConsumer,
+		final HashMapIdObject<Boolean> rootTypes
+	)
 	{
 		super();
 		this.storage        = storage;
 		this.entityConsumer = entityConsumer;
+		this.rootTypes      = rootTypes;
 	}
 
 	@Override
@@ -45,12 +61,7 @@ public class BinaryEntityObjectIdAcceptor implements BinaryEntityRawDataAcceptor
 			return false;
 		}
 		
-		final PersistenceTypeDefinition ptd = this.storage.persistenceManager().typeDictionary().lookupTypeById(
-			Binary.getEntityTypeIdRawValue(entityStartAddress)
-		);
-		if(PersistenceRoots.class.isAssignableFrom(ptd.type())
-		|| PersistenceRootReference.class.isAssignableFrom(ptd.type())
-		)
+		if(this.isRootType(Binary.getEntityTypeIdRawValue(entityStartAddress)))
 		{
 			// don't overwrite local roots
 			return true;
@@ -63,4 +74,21 @@ public class BinaryEntityObjectIdAcceptor implements BinaryEntityRawDataAcceptor
 		return true;
 	}
 	
+	private boolean isRootType(final long typeId)
+	{
+		final Boolean cached = this.rootTypes.get(typeId);
+		if(cached != null)
+		{
+			return cached;
+		}
+		
+		final PersistenceTypeDefinition ptd = this.storage.persistenceManager().typeDictionary().lookupTypeById(typeId);
+		final boolean isRootType = PersistenceRoots.class.isAssignableFrom(ptd.type())
+			|| PersistenceRootReference.class.isAssignableFrom(ptd.type())
+		;
+		this.rootTypes.put(typeId, isRootType);
+		
+		return isRootType;
+	}
+	
 }
@@ -31,6 +31,21 @@ public final class DistributedStorage
 		return foundation;
 	}
 	
+	/**
+	 * @param typeDictionaryDeltas if type dictionary changes are distributed as {@link StorageTypeDictionaryDelta}
+	 *        instead of the complete type dictionary
+	 */
+	public static EmbeddedStorageFoundation<?> configureWriting(
+		final EmbeddedStorageFoundation<?> foundation          ,
+		final StorageBinaryDataDistributor distributor         ,
+		final boolean                      typeDictionaryDeltas
+	)
+	{
+		final EmbeddedStorageConnectionFoundation<?> connectionFoundation = foundation.getConnectionFoundation();
+		connectionFoundation.setInstanceDispatcher(new DistributedStorageConfigurator(distributor, typeDictionaryDeltas));
+		return foundation;
+	}
+	
 	
 	private DistributedStorage()
 	{
@@ -0,0 +1,294 @@
+package org.eclipse.datagrid.storage.distributed.types;
+
+/*-
+ * #%L
+ * Eclipse DataGrid Storage Distributed
+ * %%
+ * Copyright (C) 2025 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import static org.eclipse.serializer.util.X.notNull;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.eclipse.serializer.reference.Lazy;
+import org.eclipse.serializer.reference.LazyReferenceManager;
+import org.eclipse.serializer.reference.Swizzling;
+
+/**
+ * {@link LazyReferenceManager} which additionally indexes the registered {@link Lazy} references by the object id
+ * of their subject, so the references to certain objects are found without iterating all of them.
+ * The references are still managed by the wrapped manager.
+ */
+public interface LazyReferenceIndex extends LazyReferenceManager
+{
+	/**
+	 * Passes the registered references to the objects with the given ids to the consumer.
+	 */
+	public void iterateReferences(long[] objectIds, Consumer<? super Lazy<?>> consumer);
+	
+	
+	/**
+	 * Installs an index around the global {@link LazyReferenceManager}, unless one is installed already.
+	 * The references registered so far are indexed by {@link LazyReferenceManager#set(LazyReferenceManager)}.
+	 * 
+	 * @return the installed index
+	 */
+	public static LazyReferenceIndex install()
+	{
+		synchronized(LazyReferenceIndex.class)
+		{
+			final LazyReferenceManager current = LazyReferenceManager.get();
+			if(current instanceof LazyReferenceIndex)
+			{
+				return (LazyReferenceIndex)current;
+			}
+			
+			final LazyReferenceIndex index = New(current);
+			LazyReferenceManager.set(index);
+			return index;
+		}
+	}
+	
+	public static LazyReferenceIndex New(final LazyReferenceManager delegate)
+	{
+		return new LazyReferenceIndex.Default(
+			notNull(delegate)
+		);
+	}
+	
+	
+	/*
+	 * Only Lazy.Default references expose the id of their subject. References which haven't been stored yet
+	 * have no proper id, they are kept aside until they are linked to one.
+	 * Entries of collected references are removed on the next registration or lookup.
+	 */
+	public static class Default implements LazyReferenceIndex
+	{
+		private final LazyReferenceManager               delegate;
+		// arrays, since a subject is referenced by a single reference in nearly all cases
+		private final ConcurrentHashMap<Long, Entry[]>   entries  = new ConcurrentHashMap<>();
+		private final Set<Entry>                         unlinked = ConcurrentHashMap.newKeySet();
+		private final ReferenceQueue<Lazy.Default<?>>    queue    = new ReferenceQueue<>();
+		
+		Default(final LazyReferenceManager delegate)
+		{
+			super();
+			this.delegate = delegate;
+		}
+		
+		@Override
+		public void register(final Lazy<?> lazyReference)
+		{
+			this.delegate.register(lazyReference);
+			this.index(lazyReference);
+		}
+		
+		/*
+		 * Called with the replaced manager when this index is installed, whose references are the delegate's own.
+		 */
+		@Override
+		public LazyReferenceManager registerAll(final LazyReferenceManager referenceManager)
+		{
+			if(referenceManager != this.delegate)
+			{
+				this.delegate.registerAll(referenceManager);
+			}
+			referenceManager.iterate(this::index);
+			
+			return this;
+		}
+		
+		private void index(final Lazy<?> lazyReference)
+		{
+			this.removeCollected();
+			if(!(lazyReference instanceof Lazy.Default))
+			{
+				return;
+			}
+			
+			final Lazy.Default<?> lazy     = (Lazy.Default<?>)lazyReference;
+			final long            objectId = lazy.objectId();
+			if(Swizzling.isProperId(objectId))
+			{
+				this.add(new Entry(lazy, objectId, this.queue));
+			}
+			else
+			{
+				this.unlinked.add(new Entry(lazy, objectId, this.queue));
+			}
+		}
+		
+		private void add(final Entry entry)
+		{
+			this.entries.merge(entry.objectId, new Entry[] { entry }, (existing, added) ->
+			{
+				final Entry[] merged = Arrays.copyOf(existing, existing.length + 1);
+				merged[existing.length] = entry;
+				return merged;
+			});
+		}
+		
+		private void remove(final Entry entry)
+		{
+			this.entries.computeIfPresent(entry.objectId, (objectId, existing) ->
+			{
+				final Entry[] remaining = Arrays.stream(existing)
+					.filter(e -> e != entry)
+					.toArray(Entry[]::new)
+				;
+				return remaining.length == 0
+					? null
+					: remaining
+				;
+			});
+		}
+		
+		private void removeCollected()
+		{
+			for(Reference<?> reference; (reference = this.queue.poll()) != null;)
+			{
+				final Entry entry = (Entry)reference;
+				if(!this.unlinked.remove(entry))
+				{
+					this.remove(entry);
+				}
+			}
+		}
+		
+		/*
+		 * References stored since they have been registered got their id meanwhile.
+		 */
+		private void indexLinked()
+		{
+			for(final Entry entry : this.unlinked)
+			{
+				final Lazy.Default<?> lazy = entry.get();
+				if(lazy != null && Swizzling.isProperId(lazy.objectId()) && this.unlinked.remove(entry))
+				{
+					this.add(new Entry(lazy, lazy.objectId(), this.queue));
+				}
+			}
+		}
+		
+		@Override
+		public void iterateReferences(final long[] objectIds, final Consumer<? super Lazy<?>> consumer)
+		{
+			this.removeCollected();
+			if(!this.unlinked.isEmpty())
+			{
+				this.indexLinked();
+			}
+			
+			for(final long objectId : objectIds)
+			{
+				final Entry[] entries = this.entries.get(objectId);
+				if(entries == null)
+				{
+					continue;
+				}
+				for(final Entry entry : entries)
+				{
+					final Lazy.Default<?> lazy = entry.get();
+					// the id of a reference only changes if it is unlinked
+					if(lazy != null && lazy.objectId() == objectId)
+					{
+						consumer.accept(lazy);
+					}
+				}
+			}
+		}
+		
+		@Override
+		public void cleanUp(final long nanoTimeBudget)
+		{
+			this.delegate.cleanUp(nanoTimeBudget);
+		}
+		
+		@Override
+		public void cleanUp(final long nanoTimeBudget, final Lazy.Checker checker)
+		{
+			this.delegate.cleanUp(nanoTimeBudget, checker);
+		}
+		
+		@Override
+		public void clear()
+		{
+			this.delegate.clear();
+			this.entries.clear();
+			this.unlinked.clear();
+		}
+		
+		@Override
+		public LazyReferenceManager start()
+		{
+			this.delegate.start();
+			return this;
+		}
+		
+		@Override
+		public LazyReferenceManager stop()
+		{
+			this.delegate.stop();
+			return this;
+		}
+		
+		@Override
+		public LazyReferenceManager addController(final Controller controller)
+		{
+			this.delegate.addController(controller);
+			return this;
+		}
+		
+		@Override
+		public boolean removeController(final Controller controller)
+		{
+			return this.delegate.removeController(controller);
+		}
+		
+		@Override
+		public boolean isRunning()
+		{
+			return this.delegate.isRunning();
+		}
+		
+		@Override
+		public <P extends Consumer<? super Lazy<?>>> P iterate(final P iterator)
+		{
+			return this.delegate.iterate(iterator);
+		}
+		
+		@Override
+		public <P extends Consumer<? super Controller>> P iterateControllers(final P iterator)
+		{
+			return this.delegate.iterateControllers(iterator);
+		}
+		
+		
+		static final class Entry extends WeakReference<Lazy.Default<?>>
+		{
+			final long objectId;
+			
+			Entry(final Lazy.Default<?> lazy, final long objectId, final ReferenceQueue<Lazy.Default<?>> queue)
+			{
+				super(lazy, queue);
+				this.objectId = objectId;
+			}
+		}
+		
+	}
+	
+}
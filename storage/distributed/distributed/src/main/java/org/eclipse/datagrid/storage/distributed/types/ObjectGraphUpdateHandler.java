@@ -14,7 +14,24 @@ package org.eclipse.datagrid.storage.distributed.types;
  * #L%
  */
 
+import static org.eclipse.serializer.math.XMath.notNegative;
+import static org.eclipse.serializer.math.XMath.positive;
+import static org.eclipse.serializer.util.X.notNull;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
 import org.eclipse.serializer.concurrency.XThreads;
+import org.eclipse.serializer.typing.Disposable;
+import org.eclipse.serializer.util.logging.Logging;
+import org.slf4j.Logger;
 
 @FunctionalInterface
 public interface ObjectGraphUpdateHandler
@@ -22,10 +39,285 @@ public interface ObjectGraphUpdateHandler
 	public void objectGraphUpdateAvailable(ObjectGraphUpdater updater);
 	
 	
+	/**
+	 * Executes the updates with the JVM-wide lock of {@link XThreads#executeSynchronized(Runnable)}.
+	 */
 	public static ObjectGraphUpdateHandler Synchronized()
 	{
 		return updater -> XThreads.executeSynchronized(updater::updateObjectGraph);
 	}
 	
+	/**
+	 * Executes the updates with the write lock of a new read write lock,
+	 * readers take the read side with {@link ReadWriteLocking#executeReading(Supplier)}.
+	 */
+	public static ObjectGraphUpdateHandler.ReadWriteLocking ReadWriteLocking()
+	{
+		return ReadWriteLocking(new ReentrantReadWriteLock());
+	}
+	
+	/**
+	 * Executes the updates with the write lock of the given lock,
+	 * readers take the read side with {@link ReadWriteLocking#executeReading(Supplier)}.
+	 */
+	public static ObjectGraphUpdateHandler.ReadWriteLocking ReadWriteLocking(final ReadWriteLock lock)
+	{
+		return new ObjectGraphUpdateHandler.ReadWriteLocking(
+			notNull(lock)
+		);
+	}
+	
+	/**
+	 * Executes the updates synchronized, but in a dedicated thread, so the next data can be imported meanwhile.
+	 * 
+	 * @param capacity maximum amount of pending updates, before the importing side is blocked
+	 */
+	public static ObjectGraphUpdateHandler.Pipelined Pipelined(final int capacity)
+	{
+		return Pipelined(capacity, Synchronized());
+	}
+	
+	/**
+	 * Executes the updates with the given handler, but in a dedicated thread, so the next data can be imported meanwhile.
+	 * 
+	 * @param capacity maximum amount of pending updates, before the importing side is blocked
+	 * @param executor the handler the updates are executed with in the update thread
+	 */
+	public static ObjectGraphUpdateHandler.Pipelined Pipelined(
+		final int                      capacity,
+		final ObjectGraphUpdateHandler executor
+	)
+	{
+		return Pipelined(capacity, executor, 0);
+	}
+	
+	/**
+	 * Executes the updates with the given handler, but in a dedicated thread, so the next data can be imported meanwhile.
+	 * Each update is delayed until the coalescing window after its hand over has passed, so updaters which collect
+	 * the changes arriving meanwhile, like the ones of {@link StorageBinaryDataMerger}, refresh them all at once.
+	 * <p>
+	 * The updates of {@link StorageBinaryDataMerger} refresh the objects of everything imported until they start,
+	 * while the next data is imported meanwhile. Since the storage applies each import as a whole, a refresh may
+	 * already load the state of a commit imported meanwhile for some of its objects, the other ones are refreshed
+	 * by the following update.
+	 * 
+	 * @param capacity maximum amount of pending updates, before the importing side is blocked
+	 * @param executor the handler the updates are executed with in the update thread
+	 * @param coalescingWindowMillis the delay of each update, 0 for none
+	 */
+	public static ObjectGraphUpdateHandler.Pipelined Pipelined(
+		final int                      capacity              ,
+		final ObjectGraphUpdateHandler executor              ,
+		final long                     coalescingWindowMillis
+	)
+	{
+		final ObjectGraphUpdateHandler.Pipelined handler = new ObjectGraphUpdateHandler.Pipelined(
+			positive   (capacity              ),
+			notNull    (executor              ),
+			notNegative(coalescingWindowMillis)
+		);
+		handler.start();
+		return handler;
+	}
+	
+	
+	/*
+	 * Scoped to one storage instead of the whole JVM, and readers don't block each other.
+	 */
+	public static class ReadWriteLocking implements ObjectGraphUpdateHandler
+	{
+		private final ReadWriteLock lock;
+		
+		ReadWriteLocking(final ReadWriteLock lock)
+		{
+			super();
+			this.lock = lock;
+		}
+		
+		@Override
+		public void objectGraphUpdateAvailable(final ObjectGraphUpdater updater)
+		{
+			final Lock writeLock = this.lock.writeLock();
+			writeLock.lock();
+			try
+			{
+				updater.updateObjectGraph();
+			}
+			finally
+			{
+				writeLock.unlock();
+			}
+		}
+		
+		/**
+		 * Executes the reader while no update is applied, concurrently with other readers.
+		 */
+		public <T> T executeReading(final Supplier<T> reader)
+		{
+			final Lock readLock = this.lock.readLock();
+			readLock.lock();
+			try
+			{
+				return reader.get();
+			}
+			finally
+			{
+				readLock.unlock();
+			}
+		}
+		
+		/**
+		 * Executes the reader while no update is applied, concurrently with other readers.
+		 */
+		public void executeReading(final Runnable reader)
+		{
+			this.executeReading(() ->
+			{
+				reader.run();
+				return null;
+			});
+		}
+		
+	}
+	
+	
+	public static class Pipelined implements ObjectGraphUpdateHandler, Disposable
+	{
+		private final static Logger logger = Logging.getLogger(ObjectGraphUpdateHandler.class);
+		
+		private final static Handover STOP = new Handover(() -> {}, 0L);
+		
+		private final BlockingQueue<Handover>           queue                ;
+		private final ObjectGraphUpdateHandler          executor             ;
+		private final long                              coalescingWindowNanos;
+		private final AtomicInteger                     pending               = new AtomicInteger();
+		private final AtomicReference<RuntimeException> failure               = new AtomicReference<>();
+		private       Thread                            thread               ;
+		
+		Pipelined(
+			final int                      capacity              ,
+			final ObjectGraphUpdateHandler executor              ,
+			final long                     coalescingWindowMillis
+		)
+		{
+			super();
+			this.queue                 = new ArrayBlockingQueue<>(capacity);
+			this.executor              = executor;
+			this.coalescingWindowNanos = TimeUnit.MILLISECONDS.toNanos(coalescingWindowMillis);
+		}
+		
+		void start()
+		{
+			this.thread = new Thread(this::run, "StorageDistributor-ObjectGraphUpdate");
+			this.thread.setDaemon(true);
+			this.thread.start();
+		}
+		
+		/*
+		 * A failed update is reported to the importing side with the next update.
+		 */
+		@Override
+		public void objectGraphUpdateAvailable(final ObjectGraphUpdater updater)
+		{
+			final RuntimeException failure = this.failure.getAndSet(null);
+			if(failure != null)
+			{
+				throw failure;
+			}
+			
+			this.pending.incrementAndGet();
+			try
+			{
+				this.queue.put(new Handover(updater, System.nanoTime()));
+			}
+			catch(final InterruptedException e)
+			{
+				this.pending.decrementAndGet();
+				Thread.currentThread().interrupt();
+				throw new StorageDistributionException(e);
+			}
+		}
+		
+		/**
+		 * @return if all handed over updates have been executed
+		 */
+		public boolean isIdle()
+		{
+			return this.pending.get() == 0;
+		}
+		
+		private void run()
+		{
+			while(true)
+			{
+				final Handover handover;
+				try
+				{
+					handover = this.queue.take();
+					if(handover == STOP)
+					{
+						return;
+					}
+					// outside of the executor, so the object graph isn't locked meanwhile
+					final long delay = handover.nanos + this.coalescingWindowNanos - System.nanoTime();
+					if(delay > 0)
+					{
+						TimeUnit.NANOSECONDS.sleep(delay);
+					}
+				}
+				catch(final InterruptedException e)
+				{
+					return;
+				}
+				
+				try
+				{
+					this.executor.objectGraphUpdateAvailable(handover.updater);
+				}
+				catch(final RuntimeException e)
+				{
+					logger.error("Object graph update failed", e);
+					this.failure.compareAndSet(null, e);
+				}
+				finally
+				{
+					this.pending.decrementAndGet();
+				}
+			}
+		}
+		
+		/*
+		 * Pending updates are still executed before the update thread ends.
+		 */
+		@Override
+		public void dispose()
+		{
+			try
+			{
+				this.queue.put(STOP);
+				this.thread.join();
+			}
+			catch(final InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+		
+		
+		private static final class Handover
+		{
+			final ObjectGraphUpdater updater;
+			final long               nanos  ;
+			
+			Handover(final ObjectGraphUpdater updater, final long nanos)
+			{
+				super();
+				this.updater = updater;
+				this.nanos   = nanos  ;
+			}
+			
+		}
+		
+	}
 	
 }
@@ -0,0 +1,204 @@
+package org.eclipse.datagrid.storage.distributed.types;
+
+/*-
+ * #%L
+ * Eclipse DataGrid Storage Distributed
+ * %%
+ * Copyright (C) 2025 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import static org.eclipse.serializer.math.XMath.positive;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+import org.eclipse.serializer.memory.XMemory;
+
+/**
+ * Pool of direct buffers, organized in power of two size classes.
+ * Requests larger than the biggest size class are served with unpooled buffers,
+ * which are deallocated again on release.
+ */
+public interface StorageBinaryDataBufferPool extends StorageBinaryDataBufferRelease
+{
+	/**
+	 * Provides a direct buffer with position 0 and limit <code>length</code>.
+	 * The capacity may be bigger than the requested length.
+	 */
+	public ByteBuffer acquire(int length);
+
+	@Override
+	public void release(ByteBuffer buffer);
+
+
+	public static int defaultMinimumClassSize()
+	{
+		return 4 * 1024;
+	}
+
+	public static int defaultMaximumClassSize()
+	{
+		return 1024 * 1024;
+	}
+
+	public static int defaultMaximumPooledPerClass()
+	{
+		return 16;
+	}
+
+
+	/**
+	 * @return a pool which doesn't pool at all, every buffer is allocated on demand and deallocated on release
+	 */
+	public static StorageBinaryDataBufferPool Unpooled()
+	{
+		return new StorageBinaryDataBufferPool.Unpooled();
+	}
+
+	public static StorageBinaryDataBufferPool New()
+	{
+		return New(
+			defaultMinimumClassSize()     ,
+			defaultMaximumClassSize()     ,
+			defaultMaximumPooledPerClass()
+		);
+	}
+
+	public static StorageBinaryDataBufferPool New(
+		final int minimumClassSize     ,
+		final int maximumClassSize     ,
+		final int maximumPooledPerClass
+	)
+	{
+		if(positive(maximumClassSize) < positive(minimumClassSize))
+		{
+			throw new IllegalArgumentException(
+				"Maximum class size " + maximumClassSize + " < minimum class size " + minimumClassSize
+			);
+		}
+
+		return new StorageBinaryDataBufferPool.Default(
+			classShift(minimumClassSize),
+			classShift(maximumClassSize),
+			positive  (maximumPooledPerClass)
+		);
+	}
+
+	private static int classShift(final int length)
+	{
+		return 32 - Integer.numberOfLeadingZeros(length - 1);
+	}
+
+
+	public static class Default implements StorageBinaryDataBufferPool
+	{
+		private final int                      minimumClassShift    ;
+		private final int                      maximumClassShift    ;
+		private final int                      maximumPooledPerClass;
+		private final ArrayDeque<ByteBuffer>[] classes              ;
+
+		@SuppressWarnings("unchecked") // generic array
+		Default(
+			final int minimumClassShift    ,
+			final int maximumClassShift    ,
+			final int maximumPooledPerClass
+		)
+		{
+			super();
+			this.minimumClassShift     = minimumClassShift    ;
+			this.maximumClassShift     = maximumClassShift    ;
+			this.maximumPooledPerClass = maximumPooledPerClass;
+			this.classes               = new ArrayDeque[maximumClassShift - minimumClassShift + 1];
+			for(int i = 0; i < this.classes.length; i++)
+			{
+				this.classes[i] = new ArrayDeque<>(maximumPooledPerClass);
+			}
+		}
+
+		private ArrayDeque<ByteBuffer> sizeClass(final int capacity)
+		{
+			final int shift = classShift(capacity);
+			if(shift < this.minimumClassShift || shift > this.maximumClassShift || 1 << shift != capacity)
+			{
+				// not allocated by this pool
+				return null;
+			}
+
+			return this.classes[shift - this.minimumClassShift];
+		}
+
+		@Override
+		public ByteBuffer acquire(final int length)
+		{
+			final int shift = Math.max(classShift(length), this.minimumClassShift);
+			if(shift > this.maximumClassShift)
+			{
+				return XMemory.allocateDirectNative(length);
+			}
+
+			final ArrayDeque<ByteBuffer> sizeClass = this.classes[shift - this.minimumClassShift];
+			ByteBuffer buffer;
+			synchronized(sizeClass)
+			{
+				buffer = sizeClass.pollFirst();
+			}
+			if(buffer == null)
+			{
+				buffer = XMemory.allocateDirectNative(1 << shift);
+			}
+			buffer.clear().limit(length);
+
+			return buffer;
+		}
+
+		@Override
+		public void release(final ByteBuffer buffer)
+		{
+			final ArrayDeque<ByteBuffer> sizeClass = this.sizeClass(buffer.capacity());
+			if(sizeClass != null)
+			{
+				synchronized(sizeClass)
+				{
+					if(sizeClass.size() < this.maximumPooledPerClass)
+					{
+						sizeClass.addFirst(buffer);
+						return;
+					}
+				}
+			}
+
+			XMemory.deallocateDirectByteBuffer(buffer);
+		}
+
+	}
+
+
+	public static final class Unpooled implements StorageBinaryDataBufferPool
+	{
+		Unpooled()
+		{
+			super();
+		}
+
+		@Override
+		public ByteBuffer acquire(final int length)
+		{
+			return XMemory.allocateDirectNative(length);
+		}
+
+		@Override
+		public void release(final ByteBuffer buffer)
+		{
+			XMemory.deallocateDirectByteBuffer(buffer);
+		}
+
+	}
+
+}
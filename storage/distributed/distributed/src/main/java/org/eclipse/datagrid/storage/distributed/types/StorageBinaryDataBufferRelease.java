@@ -0,0 +1,28 @@
+package org.eclipse.datagrid.storage.distributed.types;
+
+/*-
+ * #%L
+ * Eclipse DataGrid Storage Distributed
+ * %%
+ * Copyright (C) 2025 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import java.nio.ByteBuffer;
+
+/**
+ * Takes back the buffers of disposed {@link StorageBinaryDataPacket}s,
+ * e.g. a {@link StorageBinaryDataBufferPool} or the shared copy of several packets.
+ */
+@FunctionalInterface
+public interface StorageBinaryDataBufferRelease
+{
+	public void release(ByteBuffer buffer);
+	
+}
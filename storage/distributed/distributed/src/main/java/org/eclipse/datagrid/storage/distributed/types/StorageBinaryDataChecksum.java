@@ -0,0 +1,107 @@
+package org.eclipse.datagrid.storage.distributed.types;
+
+/*-
+ * #%L
+ * Eclipse DataGrid Storage Distributed
+ * %%
+ * Copyright (C) 2025 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32C;
+
+/**
+ * CRC32C checksums of distributed data, with statistics about the verification cost.
+ * {@link CRC32C} is an intrinsic on current JVMs, so this is cheap enough to be always on.
+ */
+public final class StorageBinaryDataChecksum
+{
+	private static final ThreadLocal<CRC32C> CHECKSUM = ThreadLocal.withInitial(CRC32C::new);
+	
+	private static final LongAdder VERIFIED_BYTES     = new LongAdder();
+	private static final LongAdder VERIFICATION_NANOS = new LongAdder();
+	private static final LongAdder FAILURES           = new LongAdder();
+	
+	/**
+	 * Computes the checksum of the remaining bytes of the buffer, without changing its position.
+	 */
+	public static int compute(final ByteBuffer buffer)
+	{
+		final CRC32C checksum = CHECKSUM.get();
+		checksum.reset();
+		update(checksum, buffer);
+		
+		return (int)checksum.getValue();
+	}
+	
+	/**
+	 * Updates the checksum with the remaining bytes of the buffer, without changing its position.
+	 */
+	public static void update(final CRC32C checksum, final ByteBuffer buffer)
+	{
+		final int position = buffer.position();
+		checksum.update(buffer);
+		buffer.position(position);
+	}
+	
+	/**
+	 * Verifies the remaining bytes of the buffer against the expected checksum.
+	 * 
+	 * @param subject name of the checked data, for the error message
+	 */
+	public static void verify(final ByteBuffer buffer, final int expected, final String subject)
+	{
+		final long start  = System.nanoTime();
+		final int  length = buffer.remaining();
+		final int  actual = compute(buffer);
+		VERIFICATION_NANOS.add(System.nanoTime() - start);
+		VERIFIED_BYTES.add(length);
+		
+		if(actual != expected)
+		{
+			FAILURES.increment();
+			throw new StorageDistributionException(
+				"Checksum mismatch of " + subject + ", expected " + Integer.toHexString(expected)
+				+ ", computed " + Integer.toHexString(actual)
+			);
+		}
+	}
+	
+	/**
+	 * @return the total amount of verified bytes
+	 */
+	public static long verifiedBytes()
+	{
+		return VERIFIED_BYTES.sum();
+	}
+	
+	/**
+	 * @return the total time spent in verification
+	 */
+	public static long verificationNanos()
+	{
+		return VERIFICATION_NANOS.sum();
+	}
+	
+	/**
+	 * @return the amount of failed verifications
+	 */
+	public static long failures()
+	{
+		return FAILURES.sum();
+	}
+	
+	
+	private StorageBinaryDataChecksum()
+	{
+		throw new UnsupportedOperationException();
+	}
+}
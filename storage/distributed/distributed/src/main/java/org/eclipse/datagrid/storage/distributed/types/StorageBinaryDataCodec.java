@@ -0,0 +1,217 @@
+package org.eclipse.datagrid.storage.distributed.types;
+
+/*-
+ * #%L
+ * Eclipse DataGrid Storage Distributed
+ * %%
+ * Copyright (C) 2025 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.eclipse.serializer.memory.XMemory;
+
+/**
+ * Message level codec, applied to the whole message before it is split into packets.
+ * <p>
+ * The {@link #id()} of the used codec is recorded in the header of every packet, so the receiving side
+ * can look it up in the {@link StorageBinaryDataCodecs}. Additional codecs are registered there,
+ * or provided as {@link java.util.ServiceLoader} service.
+ */
+public interface StorageBinaryDataCodec
+{
+	/**
+	 * @return the id of this codec, 1 to 255, 0 is reserved for {@link None}
+	 */
+	public int id();
+	
+	public String name();
+	
+	/**
+	 * Encodes the remaining bytes of the source buffers, without changing their positions.
+	 * 
+	 * @return a new direct buffer, ready to be read, which has to be deallocated by the caller
+	 */
+	public ByteBuffer encode(ByteBuffer[] source);
+	
+	/**
+	 * Decodes the remaining bytes of the source, without changing its position.
+	 * 
+	 * @return a new direct buffer, ready to be read, which has to be deallocated by the caller
+	 */
+	public ByteBuffer decode(ByteBuffer source);
+	
+	
+	public static StorageBinaryDataCodec None()
+	{
+		return new StorageBinaryDataCodec.None();
+	}
+	
+	public static StorageBinaryDataCodec Deflate()
+	{
+		return Deflate(Deflater.BEST_SPEED);
+	}
+	
+	public static StorageBinaryDataCodec Deflate(final int level)
+	{
+		if(level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION)
+		{
+			throw new IllegalArgumentException("Invalid deflate level: " + level);
+		}
+		
+		return new StorageBinaryDataCodec.Deflate(level);
+	}
+	
+	
+	/*
+	 * Marker for unencoded messages, the data is sent as it is.
+	 */
+	public static final class None implements StorageBinaryDataCodec
+	{
+		None()
+		{
+			super();
+		}
+		
+		@Override
+		public int id()
+		{
+			return StorageBinaryDataCodecs.idNone();
+		}
+		
+		@Override
+		public String name()
+		{
+			return "none";
+		}
+		
+		@Override
+		public ByteBuffer encode(final ByteBuffer[] source)
+		{
+			return StorageBinaryDataCodecs.gather(source);
+		}
+		
+		@Override
+		public ByteBuffer decode(final ByteBuffer source)
+		{
+			return StorageBinaryDataCodecs.gather(new ByteBuffer[] {source});
+		}
+		
+	}
+	
+	
+	public static class Deflate implements StorageBinaryDataCodec
+	{
+		private final int level;
+		
+		Deflate(final int level)
+		{
+			super();
+			this.level = level;
+		}
+		
+		@Override
+		public int id()
+		{
+			return 1;
+		}
+		
+		@Override
+		public String name()
+		{
+			return "deflate";
+		}
+		
+		@Override
+		public ByteBuffer encode(final ByteBuffer[] source)
+		{
+			final int length = StorageBinaryDataCodecs.length(source);
+			
+			// stored blocks add 5 bytes per 16 KiB in the worst case
+			ByteBuffer target = XMemory.allocateDirectNative(
+				StorageBinaryDataCodecs.decodedLengthSize() + length + (length >>> 12) + 64
+			);
+			StorageBinaryDataCodecs.putDecodedLength(target, length);
+			
+			final Deflater deflater = new Deflater(this.level, true);
+			try
+			{
+				for(final ByteBuffer buffer : source)
+				{
+					deflater.setInput(buffer.duplicate());
+					while(!deflater.needsInput())
+					{
+						target = deflate(deflater, target);
+					}
+				}
+				deflater.finish();
+				while(!deflater.finished())
+				{
+					target = deflate(deflater, target);
+				}
+			}
+			finally
+			{
+				deflater.end();
+			}
+			
+			return target.flip();
+		}
+		
+		private static ByteBuffer deflate(final Deflater deflater, final ByteBuffer target)
+		{
+			ByteBuffer result = target;
+			if(!result.hasRemaining())
+			{
+				result = StorageBinaryDataCodecs.grow(result);
+			}
+			deflater.deflate(result);
+			
+			return result;
+		}
+		
+		@Override
+		public ByteBuffer decode(final ByteBuffer source)
+		{
+			final ByteBuffer target = XMemory.allocateDirectNative(StorageBinaryDataCodecs.decodedLength(source));
+			final ByteBuffer input  = source.duplicate();
+			input.position(input.position() + StorageBinaryDataCodecs.decodedLengthSize());
+			
+			final Inflater inflater = new Inflater(true);
+			try
+			{
+				inflater.setInput(input);
+				while(target.hasRemaining() && !inflater.finished())
+				{
+					if(inflater.inflate(target) == 0 && inflater.needsInput())
+					{
+						throw new StorageDistributionException("Truncated deflate data");
+					}
+				}
+			}
+			catch(final DataFormatException e)
+			{
+				XMemory.deallocateDirectByteBuffer(target);
+				throw new StorageDistributionException("Invalid deflate data", e);
+			}
+			finally
+			{
+				inflater.end();
+			}
+			
+			return target.flip();
+		}
+		
+	}
+	
+}
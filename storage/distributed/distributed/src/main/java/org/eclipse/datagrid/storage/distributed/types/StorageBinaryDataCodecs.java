@@ -0,0 +1,177 @@
+package org.eclipse.datagrid.storage.distributed.types;
+
+/*-
+ * #%L
+ * Eclipse DataGrid Storage Distributed
+ * %%
+ * Copyright (C) 2025 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import static org.eclipse.serializer.util.X.notNull;
+
+import java.nio.ByteBuffer;
+import java.util.ServiceLoader;
+
+import org.eclipse.serializer.memory.XMemory;
+
+/**
+ * Registry of the available {@link StorageBinaryDataCodec}s, by id and name.
+ * Besides the built-in ones it contains all codecs provided as {@link ServiceLoader} service
+ * and the ones registered programmatically.
+ */
+public final class StorageBinaryDataCodecs
+{
+	private static final StorageBinaryDataCodec[] CODECS = new StorageBinaryDataCodec[256];
+	
+	static
+	{
+		register(StorageBinaryDataCodec.None());
+		register(StorageBinaryDataCodec.Deflate());
+		for(final StorageBinaryDataCodec codec : ServiceLoader.load(StorageBinaryDataCodec.class))
+		{
+			register(codec);
+		}
+	}
+	
+	public static int idNone()
+	{
+		return 0;
+	}
+	
+	public static StorageBinaryDataCodec none()
+	{
+		return get(idNone());
+	}
+	
+	/**
+	 * Registers a codec, replacing the one with the same id, if any.
+	 */
+	public static void register(final StorageBinaryDataCodec codec)
+	{
+		final int id = notNull(codec).id();
+		if(id < 0 || id >= CODECS.length)
+		{
+			throw new IllegalArgumentException("Invalid codec id: " + id);
+		}
+		
+		synchronized(CODECS)
+		{
+			CODECS[id] = codec;
+		}
+	}
+	
+	public static StorageBinaryDataCodec get(final int id)
+	{
+		final StorageBinaryDataCodec codec;
+		synchronized(CODECS)
+		{
+			codec = id >= 0 && id < CODECS.length
+				? CODECS[id]
+				: null
+			;
+		}
+		if(codec == null)
+		{
+			throw new StorageDistributionException("Unknown codec id: " + id);
+		}
+		
+		return codec;
+	}
+	
+	public static StorageBinaryDataCodec get(final String name)
+	{
+		synchronized(CODECS)
+		{
+			for(final StorageBinaryDataCodec codec : CODECS)
+			{
+				if(codec != null && codec.name().equalsIgnoreCase(name))
+				{
+					return codec;
+				}
+			}
+		}
+		
+		throw new StorageDistributionException("Unknown codec: " + name);
+	}
+	
+	/*
+	 * Helpers for codec implementations. Encoded messages start with the decoded length,
+	 * as 4 bytes little endian, independent of the byte order of the buffer.
+	 */
+	
+	public static int decodedLengthSize()
+	{
+		return Integer.BYTES;
+	}
+	
+	public static void putDecodedLength(final ByteBuffer target, final int length)
+	{
+		target
+			.put((byte) length        )
+			.put((byte)(length >>>  8))
+			.put((byte)(length >>> 16))
+			.put((byte)(length >>> 24))
+		;
+	}
+	
+	public static int decodedLength(final ByteBuffer source)
+	{
+		final int position = source.position();
+		return  source.get(position    ) & 0xFF
+			| (source.get(position + 1) & 0xFF) <<  8
+			| (source.get(position + 2) & 0xFF) << 16
+			| (source.get(position + 3) & 0xFF) << 24
+		;
+	}
+	
+	public static int length(final ByteBuffer[] buffers)
+	{
+		int length = 0;
+		for(final ByteBuffer buffer : buffers)
+		{
+			length += buffer.remaining();
+		}
+		
+		return length;
+	}
+	
+	/**
+	 * Copies the remaining bytes of the buffers into a new direct buffer, ready to be read.
+	 */
+	public static ByteBuffer gather(final ByteBuffer[] buffers)
+	{
+		final ByteBuffer target = XMemory.allocateDirectNative(length(buffers));
+		for(final ByteBuffer buffer : buffers)
+		{
+			target.put(buffer.duplicate());
+		}
+		
+		return target.flip();
+	}
+	
+	/**
+	 * Copies the written bytes of the buffer into a new one with double capacity,
+	 * the given buffer is deallocated.
+	 */
+	public static ByteBuffer grow(final ByteBuffer buffer)
+	{
+		final ByteBuffer grown = XMemory.allocateDirectNative(Math.max(64, buffer.capacity() * 2));
+		grown.put(buffer.flip());
+		XMemory.deallocateDirectByteBuffer(buffer);
+		
+		return grown;
+	}
+	
+	
+	private StorageBinaryDataCodecs()
+	{
+		throw new UnsupportedOperationException();
+	}
+}
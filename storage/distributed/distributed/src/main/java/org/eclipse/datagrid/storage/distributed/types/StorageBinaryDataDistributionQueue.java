@@ -0,0 +1,717 @@
+package org.eclipse.datagrid.storage.distributed.types;
+
+/*-
+ * #%L
+ * Eclipse DataGrid Storage Distributed
+ * %%
+ * Copyright (C) 2025 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import static org.eclipse.serializer.chars.XChars.notEmpty;
+import static org.eclipse.serializer.math.XMath.positive;
+import static org.eclipse.serializer.util.X.notNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import org.eclipse.serializer.collections.BulkList;
+import org.eclipse.serializer.collections.types.XList;
+import org.eclipse.serializer.memory.XMemory;
+import org.eclipse.serializer.persistence.binary.types.Binary;
+import org.eclipse.serializer.persistence.binary.types.ChunksWrapper;
+import org.eclipse.serializer.typing.Disposable;
+import org.eclipse.serializer.util.logging.Logging;
+import org.slf4j.Logger;
+
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataMessage.MessageType;
+
+/**
+ * Bounded queue between the committing threads and a single distribution thread.
+ * <p>
+ * Consecutive {@link MessageType#DATA} messages are coalesced into one message, up to the maximum batch size.
+ * Coalesced and spilled messages keep the chunks of the storage channels apart, see {@link Binary#iterateChannelChunks}.
+ * What happens when the queue is full is defined by the {@link Backpressure} strategy.
+ */
+public interface StorageBinaryDataDistributionQueue extends Disposable
+{
+	public static enum Backpressure
+	{
+		/**
+		 * The committing thread waits until there is room in the queue.
+		 */
+		BLOCK,
+
+		/**
+		 * The commit is rejected with an exception.
+		 */
+		FAIL,
+
+		/**
+		 * The message is written to a file in the spill directory and distributed from there, in order.
+		 */
+		SPILL
+	}
+
+
+	@FunctionalInterface
+	public static interface Sink
+	{
+		public CompletionStage<Long> distribute(MessageType messageType, Binary data);
+	}
+
+
+	/**
+	 * @return a stage which is completed like the one of the {@link Sink} the message was distributed with
+	 */
+	public CompletionStage<Long> enqueue(MessageType messageType, Binary data);
+
+	/**
+	 * @return the amount of pending messages, including spilled ones
+	 */
+	public int depth();
+
+	/**
+	 * @return the nanoseconds the oldest pending message is waiting, or 0 if there is none
+	 */
+	public long lagNanos();
+
+
+	public static int defaultCapacity()
+	{
+		return 1024;
+	}
+
+	public static long defaultMaximumBatchSize()
+	{
+		return 16L * 1024 * 1024;
+	}
+
+	public static Path defaultSpillDirectory()
+	{
+		return Paths.get(System.getProperty("java.io.tmpdir"));
+	}
+
+
+	public static StorageBinaryDataDistributionQueue New(
+		final Sink   sink      ,
+		final String threadName
+	)
+	{
+		return New(
+			sink                     ,
+			threadName               ,
+			defaultCapacity()        ,
+			Backpressure.BLOCK       ,
+			defaultMaximumBatchSize(),
+			defaultSpillDirectory()
+		);
+	}
+
+	public static StorageBinaryDataDistributionQueue New(
+		final Sink         sink            ,
+		final String       threadName      ,
+		final int          capacity        ,
+		final Backpressure backpressure    ,
+		final long         maximumBatchSize,
+		final Path         spillDirectory
+	)
+	{
+		final StorageBinaryDataDistributionQueue.Default queue = new StorageBinaryDataDistributionQueue.Default(
+			notNull (sink            ),
+			positive(capacity        ),
+			notNull (backpressure    ),
+			positive(maximumBatchSize),
+			notNull (spillDirectory  )
+		);
+		queue.start(notEmpty(threadName));
+		return queue;
+	}
+
+
+	public static class Default implements StorageBinaryDataDistributionQueue
+	{
+		private final static Logger logger = Logging.getLogger(StorageBinaryDataDistributionQueue.class);
+
+		static final class Entry
+		{
+			final MessageType             messageType    ;
+			final long                    length         ;
+			final long                    enqueueNanos   ;
+			final CompletableFuture<Long> acknowledgement;
+			      Binary                  data           ;
+			      Path                    spillFile      ;
+			      ByteBuffer              spillBuffer    ;
+			      // the spill file is being written, the entry must not be taken yet
+			      boolean                 spilling       ;
+
+			Entry(final MessageType messageType, final Binary data)
+			{
+				super();
+				this.messageType     = messageType            ;
+				this.data            = data                   ;
+				this.length          = length(data)           ;
+				this.enqueueNanos    = System.nanoTime()      ;
+				this.acknowledgement = new CompletableFuture<>();
+			}
+		}
+
+		/*
+		 * A ChunksWrapper is a single channel chunk, this one consists of the chunks of several channels,
+		 * so partitioned distribution still sends each channel's data to its own partition.
+		 */
+		static final class ChannelChunks extends ChunksWrapper
+		{
+			private final ChunksWrapper[] channelChunks;
+
+			ChannelChunks(final XList<ByteBuffer[]> channelBuffers)
+			{
+				super(join(channelBuffers));
+				this.channelChunks = new ChunksWrapper[Math.toIntExact(channelBuffers.size())];
+				for(int i = 0; i < this.channelChunks.length; i++)
+				{
+					this.channelChunks[i] = ChunksWrapper.New(channelBuffers.at(i));
+				}
+			}
+
+			private static ByteBuffer[] join(final XList<ByteBuffer[]> channelBuffers)
+			{
+				final XList<ByteBuffer> buffers = BulkList.New();
+				for(final ByteBuffer[] channel : channelBuffers)
+				{
+					buffers.addAll(channel);
+				}
+				return buffers.toArray(ByteBuffer.class);
+			}
+
+			@Override
+			public void iterateChannelChunks(final Consumer<? super Binary> logic)
+			{
+				for(final ChunksWrapper channelChunk : this.channelChunks)
+				{
+					logic.accept(channelChunk);
+				}
+			}
+		}
+
+		private final Sink              sink            ;
+		private final int               capacity        ;
+		private final Backpressure      backpressure    ;
+		private final long              maximumBatchSize;
+		private final Path              spillDirectory  ;
+		// in memory and spilled entries in the order they were enqueued
+		private final ArrayDeque<Entry> entries         = new ArrayDeque<>();
+		private final ReentrantLock     lock            = new ReentrantLock();
+		private final Condition         notEmpty        = this.lock.newCondition();
+		private final Condition         notFull         = this.lock.newCondition();
+		private       int               inMemoryCount   ;
+		private       boolean           disposed        ;
+		private       Thread            thread          ;
+
+		Default(
+			final Sink         sink            ,
+			final int          capacity        ,
+			final Backpressure backpressure    ,
+			final long         maximumBatchSize,
+			final Path         spillDirectory
+		)
+		{
+			super();
+			this.sink             = sink            ;
+			this.capacity         = capacity        ;
+			this.backpressure     = backpressure    ;
+			this.maximumBatchSize = maximumBatchSize;
+			this.spillDirectory   = spillDirectory  ;
+		}
+
+		void start(final String threadName)
+		{
+			this.thread = new Thread(this::run, threadName);
+			this.thread.setDaemon(true);
+			this.thread.start();
+		}
+
+		@Override
+		public CompletionStage<Long> enqueue(final MessageType messageType, final Binary data)
+		{
+			final Entry entry = new Entry(messageType, data);
+
+			this.lock.lock();
+			try
+			{
+				this.ensureNotDisposed();
+
+				// only the capacity of in memory entries is limited, spilled ones keep their place in the order
+				while(this.inMemoryCount == this.capacity && this.backpressure != Backpressure.SPILL)
+				{
+					if(this.backpressure == Backpressure.FAIL)
+					{
+						throw new StorageDistributionException("Distribution queue full, capacity = " + this.capacity);
+					}
+					this.notFull.awaitUninterruptibly();
+					this.ensureNotDisposed();
+				}
+
+				if(this.inMemoryCount < this.capacity)
+				{
+					this.inMemoryCount++;
+					this.notEmpty.signal();
+				}
+				else
+				{
+					entry.spilling = true;
+				}
+				this.entries.addLast(entry);
+			}
+			finally
+			{
+				this.lock.unlock();
+			}
+
+			// the file is written without holding the lock, so neither other commits nor the distribution are blocked
+			if(entry.spilling)
+			{
+				this.spill(entry);
+			}
+
+			return entry.acknowledgement;
+		}
+
+		private void ensureNotDisposed()
+		{
+			if(this.disposed)
+			{
+				throw new StorageDistributionException("Distribution queue already disposed");
+			}
+		}
+
+		private void spill(final Entry entry)
+		{
+			boolean written = false;
+			try
+			{
+				// the channel count and the length of each channel's chunk, followed by the chunks
+				final XList<ByteBuffer[]> channelBuffers = channelBuffers(entry.data);
+				final ByteBuffer          header         = ByteBuffer.allocate(
+					Integer.BYTES + Long.BYTES * Math.toIntExact(channelBuffers.size())
+				);
+				header.putInt(Math.toIntExact(channelBuffers.size()));
+				for(final ByteBuffer[] buffers : channelBuffers)
+				{
+					header.putLong(length(buffers));
+				}
+				header.flip();
+
+				entry.spillFile = Files.createTempFile(this.spillDirectory, "distribution-", ".spill");
+				try(final FileChannel channel = FileChannel.open(entry.spillFile, StandardOpenOption.WRITE))
+				{
+					write(channel, header);
+					for(final ByteBuffer[] buffers : channelBuffers)
+					{
+						for(final ByteBuffer buffer : buffers)
+						{
+							write(channel, buffer);
+						}
+					}
+				}
+				written = true;
+			}
+			catch(final IOException e)
+			{
+				throw new StorageDistributionException("Spilling of distribution message failed", e);
+			}
+			finally
+			{
+				this.lock.lock();
+				try
+				{
+					entry.spilling = false;
+					if(written)
+					{
+						entry.data = null;
+					}
+					else
+					{
+						// the commit is rejected, so the following entries are distributed without it
+						this.entries.remove(entry);
+					}
+					this.notEmpty.signal();
+				}
+				finally
+				{
+					this.lock.unlock();
+				}
+				if(!written)
+				{
+					deleteSpillFile(entry);
+				}
+			}
+		}
+
+		private static void write(final FileChannel channel, final ByteBuffer buffer) throws IOException
+		{
+			while(buffer.hasRemaining())
+			{
+				channel.write(buffer);
+			}
+		}
+
+		private static void read(final FileChannel channel, final ByteBuffer buffer, final Path file) throws IOException
+		{
+			while(buffer.hasRemaining())
+			{
+				if(channel.read(buffer) < 0)
+				{
+					throw new StorageDistributionException("Unexpected end of spill file " + file);
+				}
+			}
+			buffer.flip();
+		}
+
+		private static void unspill(final Entry entry)
+		{
+			try(final FileChannel channel = FileChannel.open(entry.spillFile, StandardOpenOption.READ))
+			{
+				final ByteBuffer channelCount = ByteBuffer.allocate(Integer.BYTES);
+				read(channel, channelCount, entry.spillFile);
+				final ByteBuffer lengths = ByteBuffer.allocate(Long.BYTES * channelCount.getInt());
+				read(channel, lengths, entry.spillFile);
+
+				final ByteBuffer buffer = XMemory.allocateDirectNative(entry.length);
+				try
+				{
+					read(channel, buffer, entry.spillFile);
+				}
+				catch(final IOException | RuntimeException e)
+				{
+					XMemory.deallocateDirectByteBuffer(buffer);
+					throw e;
+				}
+				entry.spillBuffer = buffer;
+
+				final XList<ByteBuffer[]> channelBuffers = BulkList.New();
+				int                       position       = 0;
+				while(lengths.hasRemaining())
+				{
+					final int length = Math.toIntExact(lengths.getLong());
+					channelBuffers.add(new ByteBuffer[] {
+						buffer.duplicate().limit(position + length).position(position).slice()
+					});
+					position += length;
+				}
+				entry.data = new ChannelChunks(channelBuffers);
+			}
+			catch(final IOException e)
+			{
+				throw new StorageDistributionException("Reading of spilled distribution message failed", e);
+			}
+		}
+
+		private static void deleteSpilled(final Entry entry)
+		{
+			if(entry.spillBuffer != null)
+			{
+				XMemory.deallocateDirectByteBuffer(entry.spillBuffer);
+				entry.spillBuffer = null;
+				entry.data        = null;
+			}
+			deleteSpillFile(entry);
+		}
+
+		private static void deleteSpillFile(final Entry entry)
+		{
+			if(entry.spillFile == null)
+			{
+				return;
+			}
+			try
+			{
+				Files.deleteIfExists(entry.spillFile);
+			}
+			catch(final IOException e)
+			{
+				logger.warn("Spill file could not be deleted: " + entry.spillFile, e);
+			}
+		}
+
+		/*
+		 * The readable bytes of the chunks, which are what is distributed and spilled.
+		 */
+		private static long length(final Binary data)
+		{
+			return length(allBuffers(data));
+		}
+
+		private static long length(final ByteBuffer[] buffers)
+		{
+			long length = 0;
+			for(final ByteBuffer buffer : buffers)
+			{
+				length += buffer.remaining();
+			}
+			return length;
+		}
+
+		/*
+		 * Duplicates of the buffers of each channel chunk, empty chunks included to keep the channel indexes.
+		 */
+		private static XList<ByteBuffer[]> channelBuffers(final Binary data)
+		{
+			final XList<ByteBuffer[]> channelBuffers = BulkList.New();
+			data.iterateChannelChunks(channelChunk ->
+			{
+				final ByteBuffer[] buffers = channelChunk.buffers().clone();
+				for(int i = 0; i < buffers.length; i++)
+				{
+					buffers[i] = buffers[i].duplicate();
+				}
+				channelBuffers.add(buffers);
+			});
+			return channelBuffers;
+		}
+
+		/*
+		 * Duplicates, so the positions of the channel chunk buffers are left untouched.
+		 */
+		private static ByteBuffer[] allBuffers(final Binary data)
+		{
+			final XList<ByteBuffer> list = BulkList.New();
+			data.iterateChannelChunks(channelChunk ->
+			{
+				for(final ByteBuffer buffer : channelChunk.buffers())
+				{
+					list.add(buffer.duplicate());
+				}
+			});
+			return list.toArray(ByteBuffer.class);
+		}
+
+		private Entry peek()
+		{
+			final Entry entry = this.entries.peekFirst();
+			return entry == null || entry.spilling
+				? null
+				: entry
+			;
+		}
+
+		private Entry poll()
+		{
+			final Entry entry = this.entries.pollFirst();
+			if(entry.spillFile == null)
+			{
+				this.inMemoryCount--;
+			}
+
+			return entry;
+		}
+
+		/*
+		 * Takes the next message, and all consecutive data messages which fit into the maximum batch size.
+		 */
+		private XList<Entry> takeBatch()
+		{
+			this.lock.lock();
+			try
+			{
+				while(this.peek() == null)
+				{
+					// entries still being spilled are waited for
+					if(this.disposed && this.entries.isEmpty())
+					{
+						return null;
+					}
+					this.notEmpty.awaitUninterruptibly();
+				}
+
+				final XList<Entry> batch       = BulkList.New();
+				final Entry        first       = this.poll();
+				long               batchLength = first.length;
+				batch.add(first);
+				if(first.messageType == MessageType.DATA)
+				{
+					Entry next;
+					while((next = this.peek()) != null
+						&& next.messageType == MessageType.DATA
+						&& batchLength + next.length <= this.maximumBatchSize
+					)
+					{
+						batch.add(this.poll());
+						batchLength += next.length;
+					}
+				}
+				this.notFull.signalAll();
+
+				return batch;
+			}
+			finally
+			{
+				this.lock.unlock();
+			}
+		}
+
+		private void run()
+		{
+			XList<Entry> batch;
+			while((batch = this.takeBatch()) != null)
+			{
+				try
+				{
+					for(final Entry entry : batch)
+					{
+						if(entry.spillFile != null)
+						{
+							unspill(entry);
+						}
+					}
+
+					final XList<Entry> entries = batch;
+					this.sink.distribute(
+						batch.first().messageType,
+						batch.size() == 1
+							? batch.first().data
+							: this.coalesce(batch)
+					)
+					.whenComplete((offset, error) -> acknowledge(entries, offset, error));
+				}
+				catch(final Throwable t)
+				{
+					logger.error("Distribution failed", t);
+					acknowledge(batch, null, t);
+				}
+				finally
+				{
+					// also if reading a spill file failed, the message is rejected then
+					for(final Entry entry : batch)
+					{
+						if(entry.spillFile != null)
+						{
+							deleteSpilled(entry);
+						}
+					}
+				}
+			}
+		}
+
+		private static void acknowledge(final XList<Entry> batch, final Long offset, final Throwable error)
+		{
+			for(final Entry entry : batch)
+			{
+				if(error != null)
+				{
+					entry.acknowledgement.completeExceptionally(error);
+				}
+				else
+				{
+					entry.acknowledgement.complete(offset);
+				}
+			}
+		}
+
+		/*
+		 * The chunks of each channel are joined, so the entities of a channel stay in commit order.
+		 */
+		private Binary coalesce(final XList<Entry> batch)
+		{
+			final XList<XList<ByteBuffer>> channels = BulkList.New();
+			for(final Entry entry : batch)
+			{
+				final XList<ByteBuffer[]> channelBuffers = channelBuffers(entry.data);
+				for(int i = 0; i < channelBuffers.size(); i++)
+				{
+					if(i == channels.size())
+					{
+						channels.add(BulkList.New());
+					}
+					channels.at(i).addAll(channelBuffers.at(i));
+				}
+			}
+
+			final XList<ByteBuffer[]> channelBuffers = BulkList.New();
+			for(final XList<ByteBuffer> buffers : channels)
+			{
+				channelBuffers.add(buffers.toArray(ByteBuffer.class));
+			}
+			return new ChannelChunks(channelBuffers);
+		}
+
+		@Override
+		public int depth()
+		{
+			this.lock.lock();
+			try
+			{
+				return this.entries.size();
+			}
+			finally
+			{
+				this.lock.unlock();
+			}
+		}
+
+		@Override
+		public long lagNanos()
+		{
+			this.lock.lock();
+			try
+			{
+				final Entry oldest = this.entries.peekFirst();
+				return oldest == null
+					? 0L
+					: System.nanoTime() - oldest.enqueueNanos
+				;
+			}
+			finally
+			{
+				this.lock.unlock();
+			}
+		}
+
+		/*
+		 * Pending messages are still distributed before the distribution thread ends.
+		 */
+		@Override
+		public void dispose()
+		{
+			this.lock.lock();
+			try
+			{
+				this.disposed = true;
+				this.notEmpty.signalAll();
+				this.notFull.signalAll();
+			}
+			finally
+			{
+				this.lock.unlock();
+			}
+
+			try
+			{
+				this.thread.join();
+			}
+			catch(final InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+
+	}
+
+}
@@ -16,6 +16,12 @@ package org.eclipse.datagrid.storage.distributed.types;
 
 import static org.eclipse.serializer.util.X.notNull;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 import org.eclipse.serializer.persistence.binary.types.Binary;
 import org.eclipse.serializer.typing.Disposable;
 
@@ -23,8 +29,44 @@ public interface StorageBinaryDataDistributor extends Disposable
 {
 	public void distributeData(Binary data);
 	
+	/**
+	 * Distributes the data like {@link #distributeData(Binary)}.
+	 * <p>
+	 * The default implementation distributes the data synchronously and returns a stage completed with -1,
+	 * for distributors which can't tell the storage offset.
+	 * 
+	 * @return a stage which is completed with the storage offset of the data,
+	 *         once all of it has been acknowledged by the underlying transport
+	 */
+	public default CompletionStage<Long> distributeDataAsync(final Binary data)
+	{
+		this.distributeData(data);
+		return CompletableFuture.completedFuture(-1L);
+	}
+	
 	public void distributeTypeDictionary(String typeDictionaryData);
 	
+	/**
+	 * @return if {@link #distributeTypeDictionaryDelta(ByteBuffer)} is supported, otherwise the complete
+	 *         type dictionary is distributed every time it changes
+	 */
+	public default boolean supportsTypeDictionaryDeltas()
+	{
+		return false;
+	}
+	
+	/**
+	 * Distributes only the type definitions added since the last distributed type dictionary.
+	 * <p>
+	 * The default implementation rejects deltas, see {@link #supportsTypeDictionaryDeltas()}.
+	 * 
+	 * @param typeDictionaryDelta a direct buffer with the added type definitions, see {@link StorageTypeDictionaryDelta}
+	 */
+	public default void distributeTypeDictionaryDelta(final ByteBuffer typeDictionaryDelta)
+	{
+		throw new UnsupportedOperationException("Type dictionary deltas aren't supported by " + this.getClass().getName());
+	}
+	
 	
 	public static StorageBinaryDataDistributor Caching(final StorageBinaryDataDistributor delegate)
 	{
@@ -40,8 +82,12 @@ public interface StorageBinaryDataDistributor extends Disposable
 	 */
 	public static class Caching implements StorageBinaryDataDistributor
 	{
-		private final StorageBinaryDataDistributor delegate          ;
-		private       String                       typeDictionaryData;
+		private final StorageBinaryDataDistributor delegate            ;
+		private       String                       typeDictionaryData  ;
+		// deltas after the cached type dictionary, they build on each other
+		private final List<ByteBuffer>             typeDictionaryDeltas = new ArrayList<>();
+		// of the type dictionary the receivers have, unchanged type dictionaries aren't distributed again
+		private       long                         typeDictionaryFingerprint = StorageTypeDictionaryFingerprint.none();
 		
 		Caching(final StorageBinaryDataDistributor delegate)
 		{
@@ -49,21 +95,61 @@ public interface StorageBinaryDataDistributor extends Disposable
 			this.delegate = delegate;
 		}
 		
-		@Override
-		public synchronized void distributeData(final Binary data)
+		private void flushTypeDictionary()
 		{
 			if(this.typeDictionaryData != null)
 			{
-				this.delegate.distributeTypeDictionary(this.typeDictionaryData);
+				final long fingerprint = StorageTypeDictionaryFingerprint.of(this.typeDictionaryData);
+				if(fingerprint != this.typeDictionaryFingerprint)
+				{
+					this.delegate.distributeTypeDictionary(this.typeDictionaryData);
+					this.typeDictionaryFingerprint = fingerprint;
+				}
 				this.typeDictionaryData = null;
 			}
+			for(final ByteBuffer typeDictionaryDelta : this.typeDictionaryDeltas)
+			{
+				this.delegate.distributeTypeDictionaryDelta(typeDictionaryDelta);
+				this.typeDictionaryFingerprint = StorageTypeDictionaryFingerprint.chain(
+					this.typeDictionaryFingerprint,
+					typeDictionaryDelta
+				);
+			}
+			this.typeDictionaryDeltas.clear();
+		}
+		
+		@Override
+		public synchronized void distributeData(final Binary data)
+		{
+			this.flushTypeDictionary();
 			this.delegate.distributeData(data);
 		}
 		
+		@Override
+		public synchronized CompletionStage<Long> distributeDataAsync(final Binary data)
+		{
+			this.flushTypeDictionary();
+			return this.delegate.distributeDataAsync(data);
+		}
+		
 		@Override
 		public synchronized void distributeTypeDictionary(final String typeDictionaryData)
 		{
 			this.typeDictionaryData = typeDictionaryData;
+			// contained in the complete type dictionary
+			this.typeDictionaryDeltas.clear();
+		}
+		
+		@Override
+		public boolean supportsTypeDictionaryDeltas()
+		{
+			return this.delegate.supportsTypeDictionaryDeltas();
+		}
+		
+		@Override
+		public synchronized void distributeTypeDictionaryDelta(final ByteBuffer typeDictionaryDelta)
+		{
+			this.typeDictionaryDeltas.add(typeDictionaryDelta);
 		}
 		
 		@Override
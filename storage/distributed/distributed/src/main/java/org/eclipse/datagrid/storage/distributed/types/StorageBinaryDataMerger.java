@@ -14,19 +14,35 @@ package org.eclipse.datagrid.storage.distributed.types;
  * #L%
  */
 
+import static org.eclipse.serializer.math.XMath.positive;
 import static org.eclipse.serializer.util.X.notNull;
 
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
 
+import org.eclipse.serializer.chars.VarString;
+import org.eclipse.serializer.collections.HashMapIdId;
+import org.eclipse.serializer.collections.HashMapIdObject;
+import org.eclipse.serializer.collections.Set_long;
 import org.eclipse.serializer.memory.XMemory;
 import org.eclipse.serializer.persistence.binary.types.Binary;
 import org.eclipse.serializer.persistence.binary.types.BinaryEntityRawDataIterator;
 import org.eclipse.serializer.persistence.binary.types.BinaryPersistence;
 import org.eclipse.serializer.persistence.binary.types.BinaryPersistenceFoundation;
-import org.eclipse.serializer.persistence.types.PersistenceLoader;
+import org.eclipse.serializer.persistence.types.PersistenceObjectRegistry;
 import org.eclipse.serializer.persistence.types.PersistenceTypeDefinition;
 import org.eclipse.serializer.persistence.types.PersistenceTypeDescription;
 import org.eclipse.serializer.persistence.types.PersistenceTypeDictionary;
+import org.eclipse.serializer.persistence.types.PersistenceTypeDictionaryAssembler;
+import org.eclipse.serializer.persistence.types.PersistenceTypeDictionaryEntry;
+import org.eclipse.serializer.persistence.types.PersistenceTypeDictionaryParser;
+import org.eclipse.serializer.reference.Lazy;
+import org.eclipse.serializer.typing.Disposable;
 import org.eclipse.serializer.util.X;
 import org.eclipse.serializer.util.logging.Logging;
 import org.eclipse.store.storage.types.StorageConnection;
@@ -48,13 +64,57 @@ public interface StorageBinaryDataMerger extends StorageBinaryDataReceiver
 	}
 	
 	
+	/**
+	 * Only invalidates the loaded objects touched by replicated commits, instead of refreshing them right away.
+	 * Loaded {@link Lazy} references to them are cleared, so they are reloaded on their next access,
+	 * all other stale objects are refreshed by a background thread in the given interval.
+	 * Objects which aren't loaded at all aren't touched, they are read from the storage on their first access anyway.
+	 * The references are found with a {@link LazyReferenceIndex}, which is installed around the global lazy reference manager.
+	 * 
+	 * @param refreshIntervalMillis the interval the stale objects are refreshed in
+	 */
+	public static StorageBinaryDataMerger.Invalidating Invalidating(
+		final BinaryPersistenceFoundation<?> foundation              ,
+		final StorageConnection              storage                 ,
+		final ObjectGraphUpdateHandler       objectGraphUpdateHandler,
+		final long                           refreshIntervalMillis
+	)
+	{
+		return startInvalidating(new StorageBinaryDataMerger.Invalidating(
+			notNull (foundation              ),
+			notNull (storage                 ),
+			notNull (objectGraphUpdateHandler),
+			positive(refreshIntervalMillis   )
+		));
+	}
+	
+	private static StorageBinaryDataMerger.Invalidating startInvalidating(
+		final StorageBinaryDataMerger.Invalidating merger
+	)
+	{
+		merger.start();
+		return merger;
+	}
+	
+	
 	public static class Default implements StorageBinaryDataMerger
 	{
 		private final static Logger logger = Logging.getLogger(StorageBinaryDataMerger.class);
 		
-		private final BinaryPersistenceFoundation<?> foundation              ;
-		private final StorageConnection              storage                 ;
-		private final ObjectGraphUpdateHandler       objectGraphUpdateHandler;
+		private final static Consumer<Object> DISCARD = object -> {};
+		
+		private final BinaryPersistenceFoundation<?>     foundation              ;
+		private final StorageConnection                  storage                 ;
+		private final ObjectGraphUpdateHandler           objectGraphUpdateHandler;
+		// type ids to whether they are root types, the classification only changes with new types
+		private final HashMapIdObject<Boolean>           rootTypes                = HashMapIdObject.New();
+		// ids of the imported but not yet refreshed objects, guarded by itself
+		private final Set_long                           pendingObjectIds         = Set_long.New();
+		private       boolean                            updateHandedOver        ;
+		// type ids to the hashes of their already verified remote descriptions
+		private final HashMapIdId                        verifiedTypeHashes       = new HashMapIdId();
+		private final PersistenceTypeDictionaryAssembler typeDictionaryAssembler  = PersistenceTypeDictionaryAssembler.New();
+		private       BinaryPersistenceFoundation<?>     typeDictionaryFoundation;
 		
 		Default(
 			final BinaryPersistenceFoundation<?> foundation              ,
@@ -74,34 +134,172 @@ public interface StorageBinaryDataMerger extends StorageBinaryDataReceiver
 			logger.debug("Importing data");
 			this.storage.importData(X.Enum(data.buffers()));
 
-			final ObjectGraphUpdater updater = () ->
+			// the ids are collected right away, so the updater doesn't depend on the data buffers anymore
+			final long[]  objectIds = this.collectObjectIds(data);
+			final boolean handOver ;
+			synchronized(this.pendingObjectIds)
+			{
+				for(final long objectId : objectIds)
+				{
+					this.pendingObjectIds.add(objectId);
+				}
+				// a pending update which hasn't started yet refreshes these objects as well
+				handOver = !this.updateHandedOver;
+				this.updateHandedOver = true;
+			}
+			this.dataImported(objectIds);
+			if(!handOver)
+			{
+				return;
+			}
+			try
+			{
+				this.objectGraphUpdateHandler.objectGraphUpdateAvailable(this::updateImported);
+			}
+			catch(final RuntimeException e)
 			{
-				logger.debug("Updating object graph");
-				final PersistenceLoader            loader   = this.storage.persistenceManager().createLoader();
-				final BinaryEntityObjectIdAcceptor acceptor = new BinaryEntityObjectIdAcceptor(this.storage, loader::getObject);
-				final BinaryEntityRawDataIterator  iterator = BinaryEntityRawDataIterator.New();
-				for(final ByteBuffer buffer : data.buffers())
+				// not handed over after all, so the next import has to
+				synchronized(this.pendingObjectIds)
 				{
-					final long address = XMemory.getDirectByteBufferAddress(buffer);
-					iterator.iterateEntityRawData(
-			    		address,
-			    		address + buffer.limit(),
-			    		acceptor
-			    	);
+					this.updateHandedOver = false;
 				}
-			};
-			this.objectGraphUpdateHandler.objectGraphUpdateAvailable(updater);
+				throw e;
+			}
+		}
+		
+		/*
+		 * Not synchronized with the imports, so the next data is imported while a pipelined update handler refreshes.
+		 * The refresh works on a snapshot of the pending ids, objects of a commit imported meanwhile
+		 * are left to the update handed over by that import.
+		 */
+		private void updateImported()
+		{
+			this.updateObjectGraph(this.drainPendingObjectIds());
+		}
+		
+		/*
+		 * Everything imported until now is refreshed by the calling update, later imports hand over a new one.
+		 * So an object changed by several messages before the update is executed is only loaded once.
+		 */
+		private long[] drainPendingObjectIds()
+		{
+			synchronized(this.pendingObjectIds)
+			{
+				final LongStream.Builder objectIds = LongStream.builder();
+				this.pendingObjectIds.iterate(objectIds::add);
+				this.pendingObjectIds.clear();
+				this.updateHandedOver = false;
+				
+				return objectIds.build().toArray();
+			}
+		}
+		
+		/**
+		 * Called by the importing thread after each import, before the object graph update is handed over.
+		 * No lock of the update handler is held, so readers aren't blocked meanwhile.
+		 * 
+		 * @param objectIds the ids of the imported objects
+		 */
+		protected void dataImported(final long[] objectIds)
+		{
+			// no-op by default
+		}
+		
+		protected void updateObjectGraph(final long[] objectIds)
+		{
+			logger.debug("Updating object graph");
+			this.refresh(objectIds);
+		}
+		
+		protected ObjectGraphUpdateHandler objectGraphUpdateHandler()
+		{
+			return this.objectGraphUpdateHandler;
+		}
+		
+		protected StorageConnection storage()
+		{
+			return this.storage;
+		}
+		
+		/*
+		 * One bulk load for all ids, so the loader resolves shared references
+		 * and requests the storage data only once for the whole batch.
+		 * It isn't split across threads, since loaders build the objects under the lock of the object registry.
+		 */
+		protected void refresh(final long[] objectIds)
+		{
+			this.storage.persistenceManager().createLoader().collect(DISCARD, objectIds);
+		}
+		
+		private long[] collectObjectIds(final Binary data)
+		{
+			final LongStream.Builder           objectIds = LongStream.builder();
+			final BinaryEntityObjectIdAcceptor acceptor  = new BinaryEntityObjectIdAcceptor(
+				this.storage  ,
+				objectIds::add,
+				this.rootTypes
+			);
+			final BinaryEntityRawDataIterator  iterator  = BinaryEntityRawDataIterator.New();
+			for(final ByteBuffer buffer : data.buffers())
+			{
+				final long address = XMemory.getDirectByteBufferAddress(buffer);
+				iterator.iterateEntityRawData(
+					address                 ,
+					address + buffer.limit(),
+					acceptor
+				);
+			}
+			
+			return objectIds.build().toArray();
 		}
 		
 		@Override
 		public synchronized void receiveTypeDictionary(final String typeDictionaryData)
 		{
-			final PersistenceTypeDictionary remoteTypeDictionary = BinaryPersistence.Foundation()
-				.setClassLoaderProvider    (this.foundation.getClassLoaderProvider()      )
-				.setFieldEvaluatorPersister(this.foundation.getFieldEvaluatorPersistable())
-				.setTypeDictionaryLoader   (() -> typeDictionaryData                      )
-				.getTypeDictionaryProvider ()
-				.provideTypeDictionary     ()
+			this.mergeTypeDictionary(typeDictionaryData);
+		}
+		
+		@Override
+		public synchronized void receiveTypeDictionaryDelta(final ByteBuffer typeDictionaryDelta)
+		{
+			final PersistenceTypeDictionary localTypeDictionary = this.storage.persistenceManager().typeDictionary();
+			final StringBuilder             newTypes            = new StringBuilder();
+			StorageTypeDictionaryDelta.iterate(typeDictionaryDelta, (typeId, typeDescription) ->
+			{
+				// known types are skipped without parsing them
+				if(localTypeDictionary.lookupTypeById(typeId) == null)
+				{
+					newTypes.append(typeDescription);
+				}
+			});
+			if(newTypes.length() > 0)
+			{
+				this.mergeTypeDictionary(newTypes.toString());
+			}
+		}
+		
+		private void mergeTypeDictionary(final String typeDictionaryData)
+		{
+			final PersistenceTypeDictionaryParser      parser     = this.typeDictionaryFoundation().getTypeDictionaryParser();
+			final List<PersistenceTypeDictionaryEntry> unverified = new ArrayList<>();
+			final HashMapIdId                          hashes     = new HashMapIdId();
+			for(final PersistenceTypeDictionaryEntry entry : parser.parseTypeDictionaryEntries(typeDictionaryData))
+			{
+				final long hash = this.typeHash(entry);
+				if(this.verifiedTypeHashes.get(entry.typeId()) != hash)
+				{
+					unverified.add(entry);
+					hashes.put(entry.typeId(), hash);
+				}
+			}
+			if(unverified.isEmpty())
+			{
+				return;
+			}
+			
+			final PersistenceTypeDictionary remoteTypeDictionary = this.typeDictionaryFoundation()
+				.getTypeDictionaryBuilder()
+				.buildTypeDictionary(X.List(unverified))
 			;
 			final PersistenceTypeDictionary localTypeDictionary = this.storage.persistenceManager().typeDictionary();
 			
@@ -112,15 +310,179 @@ public interface StorageBinaryDataMerger extends StorageBinaryDataReceiver
 				{
 					logger.debug("New type: " + remoteType.typeName());
 					this.foundation.getTypeHandlerManager().ensureTypeHandler(remoteType);
+					this.rootTypes.clear();
 					
 				}
 				else if(!PersistenceTypeDescription.equalStructure(localType, remoteType))
 				{
 					throw new RuntimeException(localType + " <> " + remoteType);
 				}
+				this.verifiedTypeHashes.put(remoteType.typeId(), hashes.get(remoteType.typeId()));
 			});
 		}
 		
+		/*
+		 * Only used for parsing, created once since it resolves the remote types with the local class loader.
+		 */
+		private BinaryPersistenceFoundation<?> typeDictionaryFoundation()
+		{
+			if(this.typeDictionaryFoundation == null)
+			{
+				this.typeDictionaryFoundation = BinaryPersistence.Foundation()
+					.setClassLoaderProvider    (this.foundation.getClassLoaderProvider()      )
+					.setFieldEvaluatorPersister(this.foundation.getFieldEvaluatorPersistable())
+				;
+			}
+			return this.typeDictionaryFoundation;
+		}
+		
+		/*
+		 * CRC32C and length of the assembled description, never 0, which is the missing value of the hash map.
+		 */
+		private long typeHash(final PersistenceTypeDictionaryEntry entry)
+		{
+			final byte[] description = this.typeDictionaryAssembler.assembleTypeDescription(VarString.New(), entry)
+				.toString()
+				.getBytes(StandardCharsets.UTF_8)
+			;
+			return (long)StorageBinaryDataChecksum.compute(ByteBuffer.wrap(description)) << 32
+				| description.length & 0xFFFF_FFFFL
+			;
+		}
+		
+	}
+	
+	public static class Invalidating extends Default implements Disposable
+	{
+		private final static Logger logger = Logging.getLogger(StorageBinaryDataMerger.class);
+		
+		private final long               refreshIntervalMillis;
+		private final LazyReferenceIndex lazyReferences       ;
+		// ids of loaded objects which haven't been refreshed yet, only accessed by updaters
+		private final Set_long           staleObjectIds        = Set_long.New();
+		private final AtomicBoolean      active                = new AtomicBoolean();
+		private       Thread             thread               ;
+		
+		Invalidating(
+			final BinaryPersistenceFoundation<?> foundation              ,
+			final StorageConnection              storage                 ,
+			final ObjectGraphUpdateHandler       objectGraphUpdateHandler,
+			final long                           refreshIntervalMillis
+		)
+		{
+			super(foundation, storage, objectGraphUpdateHandler);
+			this.refreshIntervalMillis = refreshIntervalMillis;
+			this.lazyReferences        = LazyReferenceIndex.install();
+		}
+		
+		void start()
+		{
+			this.active.set(true);
+			this.thread = new Thread(this::run, "StorageDistributor-StaleObjectRefresh");
+			this.thread.setDaemon(true);
+			this.thread.start();
+		}
+		
+		/*
+		 * The lazy references to the imported objects are looked up in the index, instead of iterating all of them.
+		 * Clearing them concurrently to readers is fine, the lazy reference manager does it as well.
+		 */
+		@Override
+		protected void dataImported(final long[] objectIds)
+		{
+			this.lazyReferences.iterateReferences(objectIds, lazy ->
+			{
+				if(lazy.isLoaded())
+				{
+					lazy.clear();
+				}
+			});
+		}
+		
+		/*
+		 * Only looks up the given ids in the object registry.
+		 */
+		@Override
+		protected void updateObjectGraph(final long[] objectIds)
+		{
+			this.loadedObjectIds(objectIds).iterate(this.staleObjectIds::add);
+		}
+		
+		private Set_long loadedObjectIds(final long[] objectIds)
+		{
+			final PersistenceObjectRegistry registry = this.storage().persistenceManager().objectRegistry();
+			final Set_long                  loaded   = Set_long.New();
+			for(final long objectId : objectIds)
+			{
+				if(registry.containsObjectId(objectId))
+				{
+					loaded.add(objectId);
+				}
+			}
+			
+			return loaded;
+		}
+		
+		private void run()
+		{
+			while(this.active.get())
+			{
+				try
+				{
+					Thread.sleep(this.refreshIntervalMillis);
+				}
+				catch(final InterruptedException e)
+				{
+					return;
+				}
+				
+				try
+				{
+					this.objectGraphUpdateHandler().objectGraphUpdateAvailable(this::refreshStaleObjects);
+				}
+				catch(final RuntimeException e)
+				{
+					logger.error("Refreshing stale objects failed", e);
+				}
+			}
+		}
+		
+		/**
+		 * Refreshes all stale objects which are still loaded, must be called by an updater.
+		 */
+		public void refreshStaleObjects()
+		{
+			if(this.staleObjectIds.isEmpty())
+			{
+				return;
+			}
+			
+			final PersistenceObjectRegistry registry  = this.storage().persistenceManager().objectRegistry();
+			final LongStream.Builder        objectIds = LongStream.builder();
+			this.staleObjectIds.iterate(objectId ->
+			{
+				if(registry.containsObjectId(objectId))
+				{
+					objectIds.add(objectId);
+				}
+			});
+			this.staleObjectIds.clear();
+			
+			final long[] loaded = objectIds.build().toArray();
+			logger.debug("Refreshing {} stale objects", loaded.length);
+			this.refresh(loaded);
+		}
+		
+		/*
+		 * Stale objects are left as they are, they are refreshed on their next access or by a new merger.
+		 */
+		@Override
+		public void dispose()
+		{
+			this.active.set(false);
+			this.thread.interrupt();
+		}
+		
 	}
 	
 }
@@ -17,6 +17,7 @@ package org.eclipse.datagrid.storage.distributed.types;
 import static org.eclipse.serializer.util.X.notNull;
 
 import java.nio.ByteBuffer;
+import java.util.BitSet;
 
 import org.eclipse.serializer.memory.XMemory;
 import org.eclipse.serializer.typing.Disposable;
@@ -26,15 +27,53 @@ public interface StorageBinaryDataMessage extends Disposable
 	public static enum MessageType
 	{
 		TYPE_DICTIONARY,
-		DATA
+		DATA,
+		// only the type definitions added since the last type dictionary, see StorageTypeDictionaryDelta
+		TYPE_DICTIONARY_DELTA
 	}
 	
 	public MessageType type();
 	
+	/**
+	 * @return the length of the transferred, possibly encoded, message data
+	 */
 	public int length();
 	
 	public int packetCount();
 	
+	/**
+	 * @return the id of the message, {@link StorageBinaryDataPacket#noMessageId()} if unknown
+	 */
+	public long messageId();
+	
+	/**
+	 * @return the id of the commit this message is a part of
+	 */
+	public long commitId();
+	
+	/**
+	 * @return the index of this message within its commit
+	 */
+	public int commitPart();
+	
+	/**
+	 * @return the amount of messages the commit consists of
+	 */
+	public int commitParts();
+	
+	/**
+	 * @return if the commit is spread over several partitions, see {@link StorageBinaryDataPacketHeader#flagPartitioned()}
+	 */
+	public boolean isPartitioned();
+	
+	/**
+	 * @return the fingerprint of the type dictionary this message is based on, see {@link StorageTypeDictionaryFingerprint}
+	 */
+	public long typeDictionaryFingerprint();
+	
+	/**
+	 * Adds a packet of this message, the packets may arrive in any order.
+	 */
 	public StorageBinaryDataMessage addPacket(StorageBinaryDataPacket packet);
 	
 	public boolean isComplete();
@@ -43,29 +82,87 @@ public interface StorageBinaryDataMessage extends Disposable
 	
 	
 	public static StorageBinaryDataMessage New(final StorageBinaryDataPacket initialPacket)
+	{
+		return New(
+			initialPacket                         ,
+			StorageBinaryDataBufferPool.Unpooled()
+		);
+	}
+	
+	/**
+	 * @param bufferPool the pool the buffers for the reassembly of multi packet messages are acquired from
+	 */
+	public static StorageBinaryDataMessage New(
+		final StorageBinaryDataPacket     initialPacket,
+		final StorageBinaryDataBufferPool bufferPool
+	)
 	{
 		return new StorageBinaryDataMessage.Default(
-			notNull(initialPacket)
+			notNull(initialPacket),
+			notNull(bufferPool   )
 		);
 	}
 	
 	
+	/*
+	 * Messages with a single packet in a direct buffer aren't reassembled,
+	 * the packet is retained and its data handed over as it is.
+	 * All packets but the last one have the same size, so each packet's position
+	 * in the message can be derived from its index and size.
+	 */
 	public static class Default implements StorageBinaryDataMessage
 	{
-		private final MessageType type           ;
-		private final int         length         ;
-		private final int         packetCount    ;
-		private       int         receivedPackets = 0;
-		private       ByteBuffer  buffer         ;
+		private final MessageType                 type           ;
+		private final int                         length         ;
+		private final int                         packetCount    ;
+		private final long                        messageId      ;
+		private final long                        commitId       ;
+		private final int                         commitPart     ;
+		private final int                         commitParts    ;
+		private final boolean                     partitioned    ;
+		private final long                        fingerprint    ;
+		private final boolean                     hasChecksum    ;
+		private final int                         checksum       ;
+		private final int                         codec          ;
+		private final StorageBinaryDataBufferPool bufferPool     ;
+		private final BitSet                      received       ;
+		private       int                         receivedPackets = 0;
+		private       int                         packetSize      = -1;
+		private       int                         lastPacketSize  = -1;
+		private       StorageBinaryDataPacket     packet         ;
+		private       ByteBuffer                  buffer         ;
+		private       boolean                     decoded        ;
 		
-		Default(final StorageBinaryDataPacket initialPacket)
+		Default(
+			final StorageBinaryDataPacket     initialPacket,
+			final StorageBinaryDataBufferPool bufferPool
+		)
 		{
 			super();
 			this.type        = initialPacket.messageType();
 			this.length      = initialPacket.messageLength();
 			this.packetCount = initialPacket.packetCount();
-			this.buffer      = XMemory.allocateDirectNative(this.length);
-			this.addPacket(initialPacket);
+			this.messageId   = initialPacket.messageId();
+			this.commitId    = initialPacket.commitId();
+			this.commitPart  = initialPacket.commitPart();
+			this.commitParts = initialPacket.commitParts();
+			this.partitioned = initialPacket.isPartitioned();
+			this.fingerprint = initialPacket.typeDictionaryFingerprint();
+			this.hasChecksum = initialPacket.hasChecksums();
+			this.checksum    = initialPacket.messageChecksum();
+			this.codec       = initialPacket.codec();
+			this.bufferPool  = bufferPool;
+			this.received    = new BitSet(this.packetCount);
+			try
+			{
+				this.addPacket(initialPacket);
+			}
+			catch(final RuntimeException e)
+			{
+				// never handed out, so nobody else could dispose it
+				this.releaseBuffer();
+				throw e;
+			}
 		}
 
 		private void validateForAddition(final StorageBinaryDataPacket packet)
@@ -83,28 +180,139 @@ public interface StorageBinaryDataMessage extends Disposable
 				throw new RuntimeException("Invalid packet type, received " + packet.messageType() + ", expected " + expectedMessageType);
 			}
 			
-			final int expectedPacketIndex = this.receivedPackets;
-			if(packet.packetIndex() != expectedPacketIndex)
+			if(packet.messageId() != this.messageId)
 			{
-				// TODO typed exception
-				throw new RuntimeException("Invalid packet index, received " + packet.packetIndex() + ", expected " + expectedPacketIndex);
+				throw new StorageDistributionException("Invalid message id, received " + packet.messageId() + ", expected " + this.messageId);
+			}
+			
+			if(packet.packetCount() != this.packetCount
+			|| packet.messageLength() != this.length
+			|| packet.commitId() != this.commitId
+			|| packet.commitPart() != this.commitPart
+			)
+			{
+				throw new StorageDistributionException("Packet doesn't match message " + this.messageId);
+			}
+			
+			final int packetIndex = packet.packetIndex();
+			if(packetIndex >= this.packetCount)
+			{
+				throw new StorageDistributionException("Invalid packet index " + packetIndex + ", packet count is " + this.packetCount);
+			}
+			if(this.received.get(packetIndex))
+			{
+				throw new StorageDistributionException("Duplicate packet index " + packetIndex);
+			}
+			
+			this.validateSize(packetIndex, packet.buffer().remaining());
+			
+			if(packet.hasChecksums())
+			{
+				StorageBinaryDataChecksum.verify(packet.buffer(), packet.packetChecksum(), "packet " + packetIndex);
 			}
 		}
 		
+		private void validateSize(final int packetIndex, final int size)
+		{
+			final boolean isLast = packetIndex == this.packetCount - 1;
+			if(!isLast && this.packetSize >= 0 && size != this.packetSize)
+			{
+				throw new StorageDistributionException("Invalid packet size " + size + ", expected " + this.packetSize);
+			}
+			
+			final int     packetSize     = isLast ? this.packetSize : size;
+			final int     lastPacketSize = isLast ? size : this.lastPacketSize;
+			final long    minimumLength  = (long)Math.max(packetSize, 0) * (this.packetCount - 1)
+				+ Math.max(lastPacketSize, 0)
+			;
+			final boolean sizesKnown     = lastPacketSize >= 0 && (packetSize >= 0 || this.packetCount == 1);
+			if(minimumLength > this.length || sizesKnown && minimumLength != this.length)
+			{
+				throw new StorageDistributionException("Packet sizes don't match message length " + this.length);
+			}
+		}
+		
+		private int offset(final int packetIndex, final int size)
+		{
+			return packetIndex == this.packetCount - 1
+				? this.length - size
+				: packetIndex * size
+			;
+		}
+		
 		private void internalAddPacket(final StorageBinaryDataPacket packet)
 		{
-			final ByteBuffer source = packet.buffer();
-			source.mark();
-			this.buffer.put(source);
-			source.reset();
+			final int        packetIndex = packet.packetIndex();
+			final ByteBuffer source      = packet.buffer();
+			final int        size        = source.remaining();
+			if(this.packetCount == 1 && source.isDirect())
+			{
+				this.packet = packet.retain();
+				this.buffer = source.slice();
+			}
+			else
+			{
+				if(this.buffer == null)
+				{
+					// position 0 and limit length, filled with absolute positions
+					this.buffer = this.bufferPool.acquire(this.length);
+				}
+				this.buffer.duplicate().position(this.offset(packetIndex, size)).put(source.duplicate());
+			}
 			
+			if(packetIndex == this.packetCount - 1)
+			{
+				this.lastPacketSize = size;
+			}
+			else
+			{
+				this.packetSize = size;
+			}
+			this.received.set(packetIndex);
 			this.receivedPackets++;
 			
 			if(this.isComplete())
 			{
-				this.buffer.flip();
+				// the data of single packet messages is already verified with the packet checksum
+				if(this.hasChecksum && this.packetCount > 1)
+				{
+					StorageBinaryDataChecksum.verify(this.buffer, this.checksum, "message");
+				}
+				if(this.codec != StorageBinaryDataCodecs.idNone())
+				{
+					this.decode();
+				}
 			}
 		}
+		
+		/*
+		 * The checksum covers the encoded data, so it is verified before decoding.
+		 */
+		private void decode()
+		{
+			final ByteBuffer decoded = StorageBinaryDataCodecs.get(this.codec).decode(this.buffer);
+			this.releaseBuffer();
+			this.buffer  = decoded;
+			this.decoded = true;
+		}
+		
+		private void releaseBuffer()
+		{
+			if(this.decoded)
+			{
+				XMemory.deallocateDirectByteBuffer(this.buffer);
+			}
+			else if(this.packet != null)
+			{
+				this.packet.dispose();
+				this.packet = null;
+			}
+			else if(this.buffer != null)
+			{
+				this.bufferPool.release(this.buffer);
+			}
+			this.buffer = null;
+		}
 
 		@Override
 		public MessageType type()
@@ -124,6 +332,42 @@ public interface StorageBinaryDataMessage extends Disposable
 			return this.packetCount;
 		}
 
+		@Override
+		public long messageId()
+		{
+			return this.messageId;
+		}
+
+		@Override
+		public long commitId()
+		{
+			return this.commitId;
+		}
+
+		@Override
+		public int commitPart()
+		{
+			return this.commitPart;
+		}
+
+		@Override
+		public int commitParts()
+		{
+			return this.commitParts;
+		}
+
+		@Override
+		public boolean isPartitioned()
+		{
+			return this.partitioned;
+		}
+
+		@Override
+		public long typeDictionaryFingerprint()
+		{
+			return this.fingerprint;
+		}
+
 		@Override
 		public synchronized StorageBinaryDataMessage addPacket(final StorageBinaryDataPacket packet)
 		{
@@ -158,10 +402,9 @@ public interface StorageBinaryDataMessage extends Disposable
 		}
 		
 		@Override
-		public void dispose()
+		public synchronized void dispose()
 		{
-			XMemory.deallocateDirectByteBuffer(this.buffer);
-			this.buffer = null;
+			this.releaseBuffer();
 		}
 		
 	}
@@ -19,10 +19,13 @@ import static org.eclipse.serializer.math.XMath.positive;
 import static org.eclipse.serializer.util.X.notNull;
 
 import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.serializer.typing.Disposable;
 
 import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataMessage.MessageType;
 
-public interface StorageBinaryDataPacket
+public interface StorageBinaryDataPacket extends Disposable
 {
 	public MessageType messageType();
 	
@@ -31,11 +34,108 @@ public interface StorageBinaryDataPacket
 	public int packetIndex();
 	
 	public int packetCount();
+	
+	/**
+	 * @return the id of the message this packet belongs to, {@link #noMessageId()} if unknown
+	 */
+	public long messageId();
+	
+	/**
+	 * @return the id of the commit this packet's message belongs to
+	 */
+	public long commitId();
+	
+	/**
+	 * @return the index of this packet's message within its commit
+	 */
+	public int commitPart();
+	
+	/**
+	 * @return the amount of messages the commit consists of
+	 */
+	public int commitParts();
+	
+	/**
+	 * @return if the commit is spread over several partitions, see {@link StorageBinaryDataPacketHeader#flagPartitioned()}
+	 */
+	public boolean isPartitioned();
+	
+	/**
+	 * @return the fingerprint of the type dictionary the message is based on, see {@link StorageTypeDictionaryFingerprint}
+	 */
+	public long typeDictionaryFingerprint();
 
 	public ByteBuffer buffer();
 	
+	/**
+	 * @return if {@link #packetChecksum()} and {@link #messageChecksum()} are available
+	 */
+	public boolean hasChecksums();
+	
+	/**
+	 * @return the CRC32C of the packet data
+	 */
+	public int packetChecksum();
+	
+	/**
+	 * @return the CRC32C of the data of the whole message
+	 */
+	public int messageChecksum();
+	
+	/**
+	 * @return the id of the {@link StorageBinaryDataCodec} the message data is encoded with, 0 if unencoded
+	 */
+	public int codec();
+	
+	/**
+	 * Adds a reference to this packet, which has to be released with an additional {@link #dispose()}.
+	 */
+	public StorageBinaryDataPacket retain();
+	
+	
+	/**
+	 * Message id of legacy packets without a {@link StorageBinaryDataPacketHeader},
+	 * which only support consecutive packets of one message at a time.
+	 */
+	public static long noMessageId()
+	{
+		return -1L;
+	}
+	
+	/**
+	 * Creates a packet of the data following the header at the position of the buffer,
+	 * the position is moved to the start of the data.
+	 * 
+	 * @param packet the header and data of the packet, the header already checked by
+	 *        {@link StorageBinaryDataPacketHeader#validate(ByteBuffer)}
+	 */
+	public static StorageBinaryDataPacket New(final ByteBuffer packet)
+	{
+		return new StorageBinaryDataPacket.Default(
+			notNull(packet)
+		);
+	}
 	
+	/**
+	 * Creates a packet like {@link #New(ByteBuffer)}, which hands the buffer to the release
+	 * once the last reference is disposed.
+	 */
 	public static StorageBinaryDataPacket New(
+		final ByteBuffer                     packet ,
+		final StorageBinaryDataBufferRelease release
+	)
+	{
+		return new StorageBinaryDataPacket.Pooled(
+			notNull(packet ),
+			notNull(release)
+		);
+	}
+	
+	/**
+	 * Creates a packet of a legacy record, whose header fields have been sent separately,
+	 * without message id and checksums.
+	 */
+	public static StorageBinaryDataPacket Legacy(
 		final MessageType messageType  ,
 		final int         messageLength,
 		final int         packetIndex  ,
@@ -44,22 +144,75 @@ public interface StorageBinaryDataPacket
 	)
 	{
 		return new StorageBinaryDataPacket.Default(
-			notNull    (messageType   ),
-			notNegative(messageLength ),
-			notNegative(packetIndex   ),
-			positive   (packetCount   ),
-			notNull    (buffer        )
+			notNull    (messageType  ),
+			notNegative(messageLength),
+			notNegative(packetIndex  ),
+			positive   (packetCount  ),
+			notNull    (buffer       )
+		);
+	}
+	
+	/**
+	 * Creates a packet like {@link #Legacy(MessageType, int, int, int, ByteBuffer)}, which hands the buffer to the release
+	 * once the last reference is disposed.
+	 */
+	public static StorageBinaryDataPacket Legacy(
+		final MessageType                    messageType  ,
+		final int                            messageLength,
+		final int                            packetIndex  ,
+		final int                            packetCount  ,
+		final ByteBuffer                     buffer       ,
+		final StorageBinaryDataBufferRelease release
+	)
+	{
+		return new StorageBinaryDataPacket.Pooled(
+			notNull    (messageType  ),
+			notNegative(messageLength),
+			notNegative(packetIndex  ),
+			positive   (packetCount  ),
+			notNull    (buffer       ),
+			notNull    (release      )
 		);
 	}
 	
 	
 	public static class Default implements StorageBinaryDataPacket
 	{
-		private final MessageType messageType  ;
-		private final int         messageLength;
-		private final int         packetIndex  ;
-		private final int         packetCount  ;
-		private final ByteBuffer  buffer       ;
+		private final MessageType messageType    ;
+		private final int         messageLength  ;
+		private final int         packetIndex    ;
+		private final int         packetCount    ;
+		private final long        messageId      ;
+		private final long        commitId       ;
+		private final int         commitPart     ;
+		private final int         commitParts    ;
+		private final boolean     partitioned    ;
+		private final long        fingerprint    ;
+		private final int         codec          ;
+		private final boolean     hasChecksums   ;
+		private final int         packetChecksum ;
+		private final int         messageChecksum;
+		private final ByteBuffer  buffer         ;
+		
+		Default(final ByteBuffer packet)
+		{
+			super();
+			this.messageType     = StorageBinaryDataPacketHeader.messageType(packet);
+			this.messageLength   = StorageBinaryDataPacketHeader.messageLength(packet);
+			this.packetIndex     = StorageBinaryDataPacketHeader.packetIndex(packet);
+			this.packetCount     = StorageBinaryDataPacketHeader.packetCount(packet);
+			this.messageId       = StorageBinaryDataPacketHeader.messageId(packet);
+			this.commitId        = StorageBinaryDataPacketHeader.commitId(packet);
+			this.commitPart      = StorageBinaryDataPacketHeader.commitPart(packet);
+			this.commitParts     = StorageBinaryDataPacketHeader.commitParts(packet);
+			this.partitioned     = StorageBinaryDataPacketHeader.isPartitioned(packet);
+			this.fingerprint     = StorageBinaryDataPacketHeader.typeDictionaryFingerprint(packet);
+			this.codec           = StorageBinaryDataPacketHeader.codec(packet);
+			this.hasChecksums    = true;
+			this.packetChecksum  = StorageBinaryDataPacketHeader.packetChecksum(packet);
+			this.messageChecksum = StorageBinaryDataPacketHeader.messageChecksum(packet);
+			this.buffer          = StorageBinaryDataPacketHeader.skip(packet);
+		}
 		
 		Default(
 			final MessageType messageType  ,
@@ -70,11 +223,21 @@ public interface StorageBinaryDataPacket
 		)
 		{
 			super();
-			this.messageType   = messageType;
-			this.messageLength = messageLength;
-			this.packetIndex   = packetIndex;
-			this.packetCount   = packetCount;
-			this.buffer        = buffer;
+			this.messageType     = messageType;
+			this.messageLength   = messageLength;
+			this.packetIndex     = packetIndex;
+			this.packetCount     = packetCount;
+			this.messageId       = noMessageId();
+			this.commitId        = noMessageId();
+			this.commitPart      = 0;
+			this.commitParts     = 1;
+			this.partitioned     = false;
+			this.fingerprint     = StorageTypeDictionaryFingerprint.none();
+			this.codec           = StorageBinaryDataCodecs.idNone();
+			this.hasChecksums    = false;
+			this.packetChecksum  = 0;
+			this.messageChecksum = 0;
+			this.buffer          = buffer;
 		}
 
 		@Override
@@ -101,12 +264,142 @@ public interface StorageBinaryDataPacket
 			return this.packetCount;
 		}
 
+		@Override
+		public long messageId()
+		{
+			return this.messageId;
+		}
+
+		@Override
+		public long commitId()
+		{
+			return this.commitId;
+		}
+
+		@Override
+		public int commitPart()
+		{
+			return this.commitPart;
+		}
+
+		@Override
+		public int commitParts()
+		{
+			return this.commitParts;
+		}
+
+		@Override
+		public boolean isPartitioned()
+		{
+			return this.partitioned;
+		}
+
+		@Override
+		public long typeDictionaryFingerprint()
+		{
+			return this.fingerprint;
+		}
+
 		@Override
 		public ByteBuffer buffer()
 		{
 			return this.buffer;
 		}
 		
+		@Override
+		public boolean hasChecksums()
+		{
+			return this.hasChecksums;
+		}
+		
+		@Override
+		public int packetChecksum()
+		{
+			return this.packetChecksum;
+		}
+		
+		@Override
+		public int messageChecksum()
+		{
+			return this.messageChecksum;
+		}
+		
+		@Override
+		public int codec()
+		{
+			return this.codec;
+		}
+		
+		
+		@Override
+		public StorageBinaryDataPacket retain()
+		{
+			return this;
+		}
+		
+		@Override
+		public void dispose()
+		{
+			// no-op, buffer is not owned
+		}
+		
+	}
+	
+	
+	/*
+	 * Hands its buffer to the release when the last reference is disposed.
+	 */
+	public static class Pooled extends Default
+	{
+		private final StorageBinaryDataBufferRelease release   ;
+		private final AtomicInteger                  references = new AtomicInteger(1);
+		
+		Pooled(final ByteBuffer packet, final StorageBinaryDataBufferRelease release)
+		{
+			super(packet);
+			this.release = release;
+		}
+		
+		Pooled(
+			final MessageType                    messageType  ,
+			final int                            messageLength,
+			final int                            packetIndex  ,
+			final int                            packetCount  ,
+			final ByteBuffer                     buffer       ,
+			final StorageBinaryDataBufferRelease release
+		)
+		{
+			super(messageType, messageLength, packetIndex, packetCount, buffer);
+			this.release = release;
+		}
+		
+		@Override
+		public StorageBinaryDataPacket retain()
+		{
+			// only incremented while still referenced, so a disposed packet's count stays untouched
+			int references;
+			do
+			{
+				references = this.references.get();
+				if(references <= 0)
+				{
+					throw new StorageDistributionException("Packet already disposed");
+				}
+			}
+			while(!this.references.compareAndSet(references, references + 1));
+			
+			return this;
+		}
+		
+		@Override
+		public void dispose()
+		{
+			if(this.references.decrementAndGet() == 0)
+			{
+				this.release.release(this.buffer());
+			}
+		}
+		
 	}
 	
 }
@@ -14,71 +14,448 @@ package org.eclipse.datagrid.storage.distributed.types;
  * #L%
  */
 
+import static org.eclipse.serializer.math.XMath.positive;
 import static org.eclipse.serializer.util.X.notNull;
 
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import org.eclipse.serializer.memory.XMemory;
 import org.eclipse.serializer.persistence.binary.types.ChunksWrapper;
+import org.eclipse.serializer.util.logging.Logging;
+import org.slf4j.Logger;
 
 public interface StorageBinaryDataPacketAcceptor extends Consumer<List<StorageBinaryDataPacket>>
 {
 	@Override
 	public void accept(final List<StorageBinaryDataPacket> packet);
 	
+	/**
+	 * @return if packets of a message have been accepted, which is not complete yet and therefore not received
+	 */
+	public boolean hasIncompleteMessage();
+	
+	/**
+	 * @return the id of the oldest commit which has been accepted partially or is held back, all commits with lower
+	 *         ids have been handed over or dropped, {@link Long#MAX_VALUE} if there is none
+	 */
+	public long oldestPendingCommitId();
+	
+	/**
+	 * Sets the id of the next partitioned commit to be handed over, e.g. the storage offset following the
+	 * already imported data. Otherwise the first complete partitioned commit is the start of the sequence.
+	 */
+	public void expectCommit(long commitId);
+	
+	
+	/**
+	 * @return the milliseconds after which an incomplete message is dropped
+	 */
+	public static long defaultIncompleteTimeoutMillis()
+	{
+		return 60_000L;
+	}
+	
+	/**
+	 * @return the maximum amount of bytes of incomplete messages, before the oldest ones are dropped
+	 */
+	public static long defaultMaximumIncompleteBytes()
+	{
+		return 512L * 1024 * 1024;
+	}
 	
 	public static StorageBinaryDataPacketAcceptor New(final StorageBinaryDataReceiver receiver)
+	{
+		return New(
+			receiver                              ,
+			StorageBinaryDataBufferPool.Unpooled()
+		);
+	}
+	
+	/**
+	 * @param bufferPool the pool the buffers for the reassembly of multi packet messages are acquired from
+	 */
+	public static StorageBinaryDataPacketAcceptor New(
+		final StorageBinaryDataReceiver   receiver  ,
+		final StorageBinaryDataBufferPool bufferPool
+	)
+	{
+		return New(
+			receiver                       ,
+			bufferPool                     ,
+			defaultIncompleteTimeoutMillis(),
+			defaultMaximumIncompleteBytes()
+		);
+	}
+	
+	/**
+	 * @param incompleteTimeoutMillis the milliseconds after which an incomplete message is dropped
+	 * @param maximumIncompleteBytes the maximum amount of bytes of incomplete messages, before the oldest ones are dropped
+	 */
+	public static StorageBinaryDataPacketAcceptor New(
+		final StorageBinaryDataReceiver   receiver               ,
+		final StorageBinaryDataBufferPool bufferPool             ,
+		final long                        incompleteTimeoutMillis,
+		final long                        maximumIncompleteBytes
+	)
 	{
 		return new StorageBinaryDataPacketAcceptor.Default(
-			notNull(receiver)
+			notNull (receiver               ),
+			notNull (bufferPool             ),
+			positive(incompleteTimeoutMillis),
+			positive(maximumIncompleteBytes )
 		);
 	}
 	
 	
+	/*
+	 * Packets are reassembled by message id, so the packets of several messages may arrive interleaved
+	 * and out of order, e.g. when they are spread over several partitions.
+	 * Complete messages are grouped by commit, all messages of a commit are handed over together,
+	 * so the receiver applies them at once. Complete commits are handed over in the order of their ids
+	 * and held back while an older commit is still incomplete. Partitioned commits are additionally
+	 * held back until their predecessor has been handed over, since their ids are consecutive.
+	 * Legacy packets without message id must arrive consecutively.
+	 * A commit held back for longer than the incomplete timeout is reported as failure, but never handed over
+	 * before its predecessors, so the client stops without skipping the missing ones.
+	 * Dropped messages, be it because they are invalid, timed out or exceeded the memory limit,
+	 * are reported with an exception after the complete messages of the accepted packets have been handed over.
+	 * A type dictionary with the fingerprint of the last applied one is skipped without being parsed.
+	 */
 	public static class Default implements StorageBinaryDataPacketAcceptor
 	{
-		private final StorageBinaryDataReceiver receiver;
-		private       StorageBinaryDataMessage  message ;
+		private final static Logger logger = Logging.getLogger(StorageBinaryDataPacketAcceptor.class);
+		
+		private final StorageBinaryDataReceiver       receiver              ;
+		private final StorageBinaryDataBufferPool     bufferPool            ;
+		private final long                            incompleteTimeoutNanos;
+		private final long                            maximumIncompleteBytes;
+		private final LinkedHashMap<Long, Incomplete> incompleteMessages    = new LinkedHashMap<>();
+		private final LinkedHashMap<Long, Commit>     incompleteCommits     = new LinkedHashMap<>();
+		private final TreeMap<Long, Commit>           heldBackCommits       = new TreeMap<>();
+		private       long                            incompleteBytes       ;
+		private       long                            nextCommitId          = StorageBinaryDataPacket.noMessageId();
+		private       long                            typeDictionaryFingerprint = StorageTypeDictionaryFingerprint.none();
 		
 		protected Default(final StorageBinaryDataReceiver receiver)
+		{
+			this(receiver, StorageBinaryDataBufferPool.Unpooled());
+		}
+		
+		protected Default(
+			final StorageBinaryDataReceiver   receiver  ,
+			final StorageBinaryDataBufferPool bufferPool
+		)
+		{
+			this(
+				receiver                       ,
+				bufferPool                     ,
+				defaultIncompleteTimeoutMillis(),
+				defaultMaximumIncompleteBytes()
+			);
+		}
+		
+		protected Default(
+			final StorageBinaryDataReceiver   receiver               ,
+			final StorageBinaryDataBufferPool bufferPool             ,
+			final long                        incompleteTimeoutMillis,
+			final long                        maximumIncompleteBytes
+		)
 		{
 			super();
-			this.receiver = receiver;
+			this.receiver               = receiver                                                ;
+			this.bufferPool             = bufferPool                                              ;
+			this.incompleteTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(incompleteTimeoutMillis);
+			this.maximumIncompleteBytes = maximumIncompleteBytes                                  ;
 		}
 		
 		@Override
 		public synchronized void accept(final List<StorageBinaryDataPacket> packets)
 		{
 			final List<StorageBinaryDataMessage> completeMessages = new ArrayList<>();
+			final List<RuntimeException>         failures         = new ArrayList<>();
 			
 			for(final StorageBinaryDataPacket packet : packets)
 			{
-				if(this.message == null)
+				try
+				{
+					this.add(packet, completeMessages, failures);
+				}
+				finally
+				{
+					// packet data has been copied into the message or the packet has been retained by it
+					packet.dispose();
+				}
+			}
+			this.dropTimedOut(completeMessages, failures);
+			
+			if(!completeMessages.isEmpty())
+			{
+				this.handleCompleteMessages(completeMessages);
+			}
+			
+			if(!failures.isEmpty())
+			{
+				final RuntimeException failure = failures.get(0);
+				failures.subList(1, failures.size()).forEach(failure::addSuppressed);
+				throw failure;
+			}
+		}
+
+		@Override
+		public synchronized boolean hasIncompleteMessage()
+		{
+			return !this.incompleteMessages.isEmpty()
+				|| !this.incompleteCommits.isEmpty()
+				|| !this.heldBackCommits.isEmpty()
+			;
+		}
+		
+		@Override
+		public synchronized long oldestPendingCommitId()
+		{
+			long oldestPending = this.oldestIncompleteCommitId();
+			if(!this.heldBackCommits.isEmpty())
+			{
+				oldestPending = Math.min(oldestPending, this.heldBackCommits.firstKey());
+			}
+			
+			return oldestPending;
+		}
+		
+		@Override
+		public synchronized void expectCommit(final long commitId)
+		{
+			this.nextCommitId = commitId;
+		}
+		
+		private void add(
+			final StorageBinaryDataPacket        packet          ,
+			final List<StorageBinaryDataMessage> completeMessages,
+			final List<RuntimeException>         failures
+		)
+		{
+			final Long       messageId  = packet.messageId();
+			final Incomplete incomplete = this.incompleteMessages.get(messageId);
+			if(incomplete == null)
+			{
+				this.makeRoom(packet.messageLength(), completeMessages, failures);
+				
+				final StorageBinaryDataMessage message;
+				try
+				{
+					message = StorageBinaryDataMessage.New(packet, this.bufferPool);
+				}
+				catch(final RuntimeException e)
+				{
+					// an invalid message is never handed over to the receiver
+					failures.add(e);
+					return;
+				}
+				
+				if(message.isComplete())
 				{
-					this.message = StorageBinaryDataMessage.New(packet);
+					this.complete(message, completeMessages, failures);
 				}
 				else
 				{
-					this.message.addPacket(packet);
+					this.incompleteMessages.put(messageId, new Incomplete(message, System.nanoTime()));
+					this.incompleteBytes += message.length();
+				}
+				return;
+			}
+			
+			try
+			{
+				incomplete.message.addPacket(packet);
+			}
+			catch(final RuntimeException e)
+			{
+				failures.add(e);
+				this.drop(messageId, completeMessages);
+				return;
+			}
+			
+			if(incomplete.message.isComplete())
+			{
+				this.remove(messageId);
+				this.complete(incomplete.message, completeMessages, failures);
+			}
+		}
+		
+		private void complete(
+			final StorageBinaryDataMessage       message         ,
+			final List<StorageBinaryDataMessage> completeMessages,
+			final List<RuntimeException>         failures
+		)
+		{
+			if(message.messageId() == StorageBinaryDataPacket.noMessageId())
+			{
+				// consecutive messages, nothing to order
+				completeMessages.add(message);
+				return;
+			}
+			
+			final Long commitId = message.commitId();
+			Commit     commit   = this.incompleteCommits.get(commitId);
+			if(commit == null)
+			{
+				commit = new Commit(message.commitParts(), message.isPartitioned(), System.nanoTime());
+				this.incompleteCommits.put(commitId, commit);
+			}
+			if(!commit.add(message))
+			{
+				message.dispose();
+				failures.add(new StorageDistributionException(
+					"Message " + message.messageId() + " doesn't match commit " + commitId
+				));
+				return;
+			}
+			
+			if(commit.isComplete())
+			{
+				this.incompleteCommits.remove(commitId);
+				final Commit redelivered = this.heldBackCommits.put(commitId, commit);
+				if(redelivered != null)
+				{
+					redelivered.dispose();
+				}
+				this.handOverHeldBack(completeMessages);
+			}
+		}
+		
+		private long oldestIncompleteCommitId()
+		{
+			long oldestIncomplete = Long.MAX_VALUE;
+			for(final Incomplete incomplete : this.incompleteMessages.values())
+			{
+				oldestIncomplete = Math.min(oldestIncomplete, incomplete.message.commitId());
+			}
+			for(final Long commitId : this.incompleteCommits.keySet())
+			{
+				oldestIncomplete = Math.min(oldestIncomplete, commitId);
+			}
+			
+			return oldestIncomplete;
+		}
+		
+		private void handOverHeldBack(final List<StorageBinaryDataMessage> completeMessages)
+		{
+			final long oldestIncomplete = this.oldestIncompleteCommitId();
+			while(!this.heldBackCommits.isEmpty() && this.heldBackCommits.firstKey() < oldestIncomplete)
+			{
+				final long   commitId = this.heldBackCommits.firstKey();
+				final Commit commit   = this.heldBackCommits.get(commitId);
+				if(commit.partitioned && this.nextCommitId != StorageBinaryDataPacket.noMessageId())
+				{
+					if(commitId < this.nextCommitId)
+					{
+						// already handed over
+						this.heldBackCommits.remove(commitId).dispose();
+						continue;
+					}
+					if(commitId > this.nextCommitId)
+					{
+						// the preceding commit hasn't arrived yet
+						break;
+					}
 				}
 				
-				if(this.message.isComplete())
+				this.heldBackCommits.remove(commitId);
+				if(commit.partitioned)
 				{
-					completeMessages.add(this.message);
-					this.message = null;
+					this.nextCommitId = commitId + commit.packetCount;
 				}
+				commit.handOver(completeMessages);
+			}
+		}
+		
+		private Incomplete remove(final Long messageId)
+		{
+			final Incomplete incomplete = this.incompleteMessages.remove(messageId);
+			this.incompleteBytes -= incomplete.message.length();
+			return incomplete;
+		}
+		
+		private void drop(final Long messageId, final List<StorageBinaryDataMessage> completeMessages)
+		{
+			this.remove(messageId).message.dispose();
+			// younger complete messages aren't blocked anymore
+			this.handOverHeldBack(completeMessages);
+		}
+		
+		private void makeRoom(
+			final int                            messageLength   ,
+			final List<StorageBinaryDataMessage> completeMessages,
+			final List<RuntimeException>         failures
+		)
+		{
+			// a single message exceeding the limit is accepted nevertheless
+			while(!this.incompleteMessages.isEmpty()
+				&& this.incompleteBytes + messageLength > this.maximumIncompleteBytes
+			)
+			{
+				final Long oldest = this.incompleteMessages.keySet().iterator().next();
+				failures.add(new StorageDistributionException(
+					"Incomplete message " + oldest + " dropped, incomplete messages exceed " + this.maximumIncompleteBytes + " bytes"
+				));
+				this.drop(oldest, completeMessages);
+			}
+		}
+		
+		private void dropTimedOut(
+			final List<StorageBinaryDataMessage> completeMessages,
+			final List<RuntimeException>         failures
+		)
+		{
+			final long now = System.nanoTime();
+			while(!this.incompleteMessages.isEmpty())
+			{
+				// in order of arrival, so the first one is the oldest
+				final Map.Entry<Long, Incomplete> oldest = this.incompleteMessages.entrySet().iterator().next();
+				if(now - oldest.getValue().arrivalNanos < this.incompleteTimeoutNanos)
+				{
+					break;
+				}
+				failures.add(new StorageDistributionException("Incomplete message " + oldest.getKey() + " timed out"));
+				this.drop(oldest.getKey(), completeMessages);
 			}
 			
-			if(!completeMessages.isEmpty())
+			final Iterator<Map.Entry<Long, Commit>> commits = this.incompleteCommits.entrySet().iterator();
+			while(commits.hasNext())
 			{
-				this.handleCompleteMessages(completeMessages);
+				final Map.Entry<Long, Commit> commit = commits.next();
+				if(now - commit.getValue().arrivalNanos < this.incompleteTimeoutNanos)
+				{
+					break;
+				}
+				failures.add(new StorageDistributionException("Incomplete commit " + commit.getKey() + " timed out"));
+				commit.getValue().dispose();
+				commits.remove();
 			}
+			
+			if(!this.heldBackCommits.isEmpty()
+			&& now - this.heldBackCommits.firstEntry().getValue().arrivalNanos >= this.incompleteTimeoutNanos
+			)
+			{
+				// the gap is kept, the client has to stop, so the missing commit is read again after a restart
+				failures.add(new StorageDistributionException(
+					"Commit " + this.heldBackCommits.firstKey() + " timed out waiting for preceding commits"
+				));
+			}
+			
+			this.handOverHeldBack(completeMessages);
 		}
-
+		
 		private void handleCompleteMessages(final List<StorageBinaryDataMessage> messages)
 		{
 			// Join similiar messages and hand over to receiver
@@ -93,6 +470,11 @@ public interface StorageBinaryDataPacketAcceptor extends Consumer<List<StorageBi
 						this.send(last, buffers);
 						buffers.clear();
 					}
+					if(message.type() == StorageBinaryDataMessage.MessageType.DATA)
+					{
+						// all preceding type dictionaries have been handed over at this point
+						this.verifyTypeDictionaryFingerprint(message);
+					}
 					
 					buffers.add(message.data());
 					last = message;
@@ -123,11 +505,55 @@ public interface StorageBinaryDataPacketAcceptor extends Consumer<List<StorageBi
 				case TYPE_DICTIONARY:
 				{
 					// type dictionary is always sent completely, so only the last one is relevant
+					if(this.isApplied(last.typeDictionaryFingerprint()))
+					{
+						logger.debug("Skipping already applied type dictionary");
+						break;
+					}
 					this.receiver.receiveTypeDictionary(this.createTypeDictionary(last.data()));
+					this.typeDictionaryFingerprint = last.typeDictionaryFingerprint();
+				}
+				break;
+				
+				case TYPE_DICTIONARY_DELTA:
+				{
+					// deltas build on each other, so all of them are relevant
+					for(final ByteBuffer buffer : buffers)
+					{
+						this.receiver.receiveTypeDictionaryDelta(buffer);
+					}
+					this.typeDictionaryFingerprint = last.typeDictionaryFingerprint();
 				}
 				break;
 			}
 		}
+		
+		private boolean isApplied(final long typeDictionaryFingerprint)
+		{
+			return typeDictionaryFingerprint != StorageTypeDictionaryFingerprint.none()
+				&& typeDictionaryFingerprint == this.typeDictionaryFingerprint
+			;
+		}
+		
+		/*
+		 * Legacy messages and the ones received before any type dictionary can't be verified.
+		 */
+		private void verifyTypeDictionaryFingerprint(final StorageBinaryDataMessage message)
+		{
+			final long fingerprint = message.typeDictionaryFingerprint();
+			if(fingerprint == StorageTypeDictionaryFingerprint.none()
+			|| this.typeDictionaryFingerprint == StorageTypeDictionaryFingerprint.none()
+			|| fingerprint == this.typeDictionaryFingerprint
+			)
+			{
+				return;
+			}
+			
+			logger.warn(
+				"Message " + message.messageId() + " is based on type dictionary "
+				+ Long.toHexString(fingerprint) + ", but " + Long.toHexString(this.typeDictionaryFingerprint) + " is applied"
+			);
+		}
 
 		private String createTypeDictionary(final ByteBuffer buffer)
 		{
@@ -137,6 +563,77 @@ public interface StorageBinaryDataPacketAcceptor extends Consumer<List<StorageBi
 			);
 		}
 		
+		
+		private static final class Incomplete
+		{
+			final StorageBinaryDataMessage message     ;
+			final long                     arrivalNanos;
+			
+			Incomplete(final StorageBinaryDataMessage message, final long arrivalNanos)
+			{
+				super();
+				this.message      = message     ;
+				this.arrivalNanos = arrivalNanos;
+			}
+		}
+		
+		
+		private static final class Commit
+		{
+			final StorageBinaryDataMessage[] parts        ;
+			final boolean                    partitioned  ;
+			final long                       arrivalNanos ;
+			int                              completeParts;
+			long                             packetCount  ;
+			
+			Commit(final int parts, final boolean partitioned, final long arrivalNanos)
+			{
+				super();
+				this.parts        = new StorageBinaryDataMessage[parts];
+				this.partitioned  = partitioned ;
+				this.arrivalNanos = arrivalNanos;
+			}
+			
+			boolean add(final StorageBinaryDataMessage message)
+			{
+				final int part = message.commitPart();
+				if(message.commitParts() != this.parts.length
+				|| message.isPartitioned() != this.partitioned
+				|| part >= this.parts.length
+				|| this.parts[part] != null
+				)
+				{
+					return false;
+				}
+				
+				this.parts[part] = message;
+				this.completeParts++;
+				this.packetCount += message.packetCount();
+				return true;
+			}
+			
+			boolean isComplete()
+			{
+				return this.completeParts == this.parts.length;
+			}
+			
+			void handOver(final List<StorageBinaryDataMessage> completeMessages)
+			{
+				Collections.addAll(completeMessages, this.parts);
+			}
+			
+			void dispose()
+			{
+				for(final StorageBinaryDataMessage part : this.parts)
+				{
+					if(part != null)
+					{
+						part.dispose();
+					}
+				}
+			}
+		}
+		
 	}
 	
 }
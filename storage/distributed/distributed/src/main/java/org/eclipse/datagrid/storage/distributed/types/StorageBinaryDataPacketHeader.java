@@ -0,0 +1,362 @@
+package org.eclipse.datagrid.storage.distributed.types;
+
+/*-
+ * #%L
+ * Eclipse DataGrid Storage Distributed
+ * %%
+ * Copyright (C) 2025 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.CRC32C;
+
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataMessage.MessageType;
+
+/**
+ * Fixed layout binary envelope, which precedes the data of every packet.
+ * <p>
+ * Layout of version 1, little endian:
+ * <pre>
+ * offset length field
+ *      0      1 version
+ *      1      1 message type
+ *      2      2 header length
+ *      4      4 flags
+ *      8      4 message length
+ *     12      4 packet index
+ *     16      4 packet count
+ *     20      8 storage offset
+ *     28      4 CRC32C of the packet data
+ *     32      4 CRC32C of the message data
+ *     36      8 message id
+ *     44      8 commit id
+ *     52      4 part index within the commit
+ *     56      4 part count of the commit
+ *     60      8 type dictionary fingerprint
+ *     68      4 CRC32C of the preceding header bytes
+ * </pre>
+ * Later versions may only add fields before the checksum, which is always the last field.
+ * Readers therefore can handle any newer version by skipping the header length.
+ * <p>
+ * Flags: bit 0 is {@link #flagPartitioned()}, bits 8 to 15 hold the id of the {@link StorageBinaryDataCodec}
+ * the message data is encoded with, 0 for unencoded data.
+ * <p>
+ * All readers work on the absolute position of the given buffer and don't allocate.
+ */
+public final class StorageBinaryDataPacketHeader
+{
+	private static final byte          VERSION                 = 1;
+	private static final int           OFFSET_VERSION          = 0;
+	private static final int           OFFSET_MESSAGE_TYPE     = 1;
+	private static final int           OFFSET_HEADER_LENGTH    = 2;
+	private static final int           OFFSET_FLAGS            = 4;
+	private static final int           OFFSET_MESSAGE_LENGTH   = 8;
+	private static final int           OFFSET_PACKET_INDEX     = 12;
+	private static final int           OFFSET_PACKET_COUNT     = 16;
+	private static final int           OFFSET_STORAGE_OFFSET   = 20;
+	private static final int           OFFSET_PACKET_CHECKSUM  = 28;
+	private static final int           OFFSET_MESSAGE_CHECKSUM = 32;
+	private static final int           OFFSET_MESSAGE_ID       = 36;
+	private static final int           OFFSET_COMMIT_ID        = 44;
+	private static final int           OFFSET_COMMIT_PART      = 52;
+	private static final int           OFFSET_COMMIT_PARTS     = 56;
+	private static final int           OFFSET_FINGERPRINT      = 60;
+	private static final int           LENGTH                  = 72;
+	private static final int           FLAG_PARTITIONED        = 1;
+	private static final int           FLAG_CODEC_SHIFT        = 8;
+	private static final int           FLAG_CODEC_MASK         = 0xFF;
+	private static final MessageType[] MESSAGE_TYPES           = MessageType.values();
+	
+	private static final ThreadLocal<CRC32C> CHECKSUM = ThreadLocal.withInitial(CRC32C::new);
+	
+	public static byte version()
+	{
+		return VERSION;
+	}
+	
+	/**
+	 * Flag for commits, which are spread over several partitions. Their commit ids are consecutive,
+	 * the id of the next commit is the commit id plus the packet count of all parts.
+	 */
+	public static int flagPartitioned()
+	{
+		return FLAG_PARTITIONED;
+	}
+	
+	/**
+	 * @return the flag bits for messages encoded with the codec
+	 */
+	public static int flagsCodec(final StorageBinaryDataCodec codec)
+	{
+		return (codec.id() & FLAG_CODEC_MASK) << FLAG_CODEC_SHIFT;
+	}
+	
+	/**
+	 * @return the header length written by this version
+	 */
+	public static int length()
+	{
+		return LENGTH;
+	}
+	
+	/**
+	 * Writes a header at the current position of the target and advances its position.
+	 */
+	public static void write(
+		final ByteBuffer  target         ,
+		final MessageType messageType    ,
+		final int         flags          ,
+		final int         messageLength  ,
+		final int         packetIndex    ,
+		final int         packetCount    ,
+		final long        storageOffset  ,
+		final int         packetChecksum ,
+		final int         messageChecksum,
+		final long        messageId      ,
+		final long        commitId       ,
+		final int         commitPart     ,
+		final int         commitParts    ,
+		final long        fingerprint
+	)
+	{
+		final int start = target.position();
+		if(target.remaining() < LENGTH)
+		{
+			throw new StorageDistributionException("Not enough space for packet header: " + target.remaining());
+		}
+		
+		target.put(start + OFFSET_VERSION     , VERSION                    );
+		target.put(start + OFFSET_MESSAGE_TYPE, (byte)messageType.ordinal());
+		putShort(target, start + OFFSET_HEADER_LENGTH   , (short)LENGTH  );
+		putInt  (target, start + OFFSET_FLAGS           , flags          );
+		putInt  (target, start + OFFSET_MESSAGE_LENGTH  , messageLength  );
+		putInt  (target, start + OFFSET_PACKET_INDEX    , packetIndex    );
+		putInt  (target, start + OFFSET_PACKET_COUNT    , packetCount    );
+		putLong (target, start + OFFSET_STORAGE_OFFSET  , storageOffset  );
+		putInt  (target, start + OFFSET_PACKET_CHECKSUM , packetChecksum );
+		putInt  (target, start + OFFSET_MESSAGE_CHECKSUM, messageChecksum);
+		putLong (target, start + OFFSET_MESSAGE_ID      , messageId      );
+		putLong (target, start + OFFSET_COMMIT_ID       , commitId       );
+		putInt  (target, start + OFFSET_COMMIT_PART     , commitPart     );
+		putInt  (target, start + OFFSET_COMMIT_PARTS    , commitParts    );
+		putLong (target, start + OFFSET_FINGERPRINT     , fingerprint    );
+		putInt  (target, start + LENGTH - Integer.BYTES, checksum(target, start, LENGTH));
+		
+		target.position(start + LENGTH);
+	}
+	
+	/**
+	 * Checks length, version and checksum of the header at the position of the packet.
+	 */
+	public static void validate(final ByteBuffer packet)
+	{
+		final int start = packet.position();
+		if(packet.remaining() < LENGTH)
+		{
+			throw new StorageDistributionException("Packet too short for header: " + packet.remaining());
+		}
+		
+		final int version = version(packet);
+		if(version < 1)
+		{
+			throw new StorageDistributionException("Unknown packet header version: " + version);
+		}
+		
+		final int headerLength = headerLength(packet);
+		if(headerLength < LENGTH || headerLength > packet.remaining())
+		{
+			throw new StorageDistributionException("Invalid packet header length: " + headerLength);
+		}
+		
+		final int checksumOffset = start + headerLength - Integer.BYTES;
+		if(getInt(packet, checksumOffset) != checksum(packet, start, headerLength))
+		{
+			throw new StorageDistributionException("Packet header checksum mismatch");
+		}
+		
+		final int messageType = packet.get(start + OFFSET_MESSAGE_TYPE);
+		if(messageType < 0 || messageType >= MESSAGE_TYPES.length)
+		{
+			throw new StorageDistributionException("Unknown message type: " + messageType);
+		}
+	}
+	
+	public static int version(final ByteBuffer packet)
+	{
+		return packet.get(packet.position() + OFFSET_VERSION) & 0xFF;
+	}
+	
+	public static int headerLength(final ByteBuffer packet)
+	{
+		return getShort(packet, packet.position() + OFFSET_HEADER_LENGTH) & 0xFFFF;
+	}
+	
+	public static MessageType messageType(final ByteBuffer packet)
+	{
+		return MESSAGE_TYPES[packet.get(packet.position() + OFFSET_MESSAGE_TYPE)];
+	}
+	
+	public static int flags(final ByteBuffer packet)
+	{
+		return getInt(packet, packet.position() + OFFSET_FLAGS);
+	}
+	
+	/**
+	 * @return the id of the codec the message data is encoded with, 0 if unencoded
+	 */
+	public static int codec(final ByteBuffer packet)
+	{
+		return flags(packet) >>> FLAG_CODEC_SHIFT & FLAG_CODEC_MASK;
+	}
+	
+	public static int messageLength(final ByteBuffer packet)
+	{
+		return getInt(packet, packet.position() + OFFSET_MESSAGE_LENGTH);
+	}
+	
+	public static int packetIndex(final ByteBuffer packet)
+	{
+		return getInt(packet, packet.position() + OFFSET_PACKET_INDEX);
+	}
+	
+	public static int packetCount(final ByteBuffer packet)
+	{
+		return getInt(packet, packet.position() + OFFSET_PACKET_COUNT);
+	}
+	
+	public static long storageOffset(final ByteBuffer packet)
+	{
+		return getLong(packet, packet.position() + OFFSET_STORAGE_OFFSET);
+	}
+	
+	public static int packetChecksum(final ByteBuffer packet)
+	{
+		return getInt(packet, packet.position() + OFFSET_PACKET_CHECKSUM);
+	}
+	
+	public static int messageChecksum(final ByteBuffer packet)
+	{
+		return getInt(packet, packet.position() + OFFSET_MESSAGE_CHECKSUM);
+	}
+	
+	public static long messageId(final ByteBuffer packet)
+	{
+		return getLong(packet, packet.position() + OFFSET_MESSAGE_ID);
+	}
+	
+	public static long commitId(final ByteBuffer packet)
+	{
+		return getLong(packet, packet.position() + OFFSET_COMMIT_ID);
+	}
+	
+	/**
+	 * @return the index of the message within its commit
+	 */
+	public static int commitPart(final ByteBuffer packet)
+	{
+		return getInt(packet, packet.position() + OFFSET_COMMIT_PART);
+	}
+	
+	/**
+	 * @return the amount of messages of the commit
+	 */
+	public static int commitParts(final ByteBuffer packet)
+	{
+		return getInt(packet, packet.position() + OFFSET_COMMIT_PARTS);
+	}
+	
+	/**
+	 * @return if the packet belongs to a commit spread over several partitions
+	 */
+	public static boolean isPartitioned(final ByteBuffer packet)
+	{
+		return (flags(packet) & FLAG_PARTITIONED) != 0;
+	}
+	
+	/**
+	 * @return the {@link StorageTypeDictionaryFingerprint} of the type dictionary the message is based on
+	 */
+	public static long typeDictionaryFingerprint(final ByteBuffer packet)
+	{
+		return getLong(packet, packet.position() + OFFSET_FINGERPRINT);
+	}
+	
+	/**
+	 * Moves the position of the packet behind the header, to the start of the data.
+	 */
+	public static ByteBuffer skip(final ByteBuffer packet)
+	{
+		packet.position(packet.position() + headerLength(packet));
+		return packet;
+	}
+	
+	private static int checksum(final ByteBuffer buffer, final int start, final int headerLength)
+	{
+		// position and limit are restored instead of using a duplicate, to stay allocation free
+		final int    position = buffer.position();
+		final int    limit    = buffer.limit();
+		final CRC32C checksum = CHECKSUM.get();
+		checksum.reset();
+		buffer.limit(start + headerLength - Integer.BYTES).position(start);
+		checksum.update(buffer);
+		buffer.limit(limit).position(position);
+		
+		return (int)checksum.getValue();
+	}
+	
+	/*
+	 * The layout is little endian, regardless of the order of the buffer.
+	 */
+	
+	private static boolean isLittleEndian(final ByteBuffer buffer)
+	{
+		return buffer.order() == ByteOrder.LITTLE_ENDIAN;
+	}
+	
+	private static short getShort(final ByteBuffer buffer, final int index)
+	{
+		final short value = buffer.getShort(index);
+		return isLittleEndian(buffer) ? value : Short.reverseBytes(value);
+	}
+	
+	private static int getInt(final ByteBuffer buffer, final int index)
+	{
+		final int value = buffer.getInt(index);
+		return isLittleEndian(buffer) ? value : Integer.reverseBytes(value);
+	}
+	
+	private static long getLong(final ByteBuffer buffer, final int index)
+	{
+		final long value = buffer.getLong(index);
+		return isLittleEndian(buffer) ? value : Long.reverseBytes(value);
+	}
+	
+	private static void putShort(final ByteBuffer buffer, final int index, final short value)
+	{
+		buffer.putShort(index, isLittleEndian(buffer) ? value : Short.reverseBytes(value));
+	}
+	
+	private static void putInt(final ByteBuffer buffer, final int index, final int value)
+	{
+		buffer.putInt(index, isLittleEndian(buffer) ? value : Integer.reverseBytes(value));
+	}
+	
+	private static void putLong(final ByteBuffer buffer, final int index, final long value)
+	{
+		buffer.putLong(index, isLittleEndian(buffer) ? value : Long.reverseBytes(value));
+	}
+	
+	
+	private StorageBinaryDataPacketHeader()
+	{
+		throw new UnsupportedOperationException();
+	}
+}
@@ -14,6 +14,8 @@ package org.eclipse.datagrid.storage.distributed.types;
  * #L%
  */
 
+import java.nio.ByteBuffer;
+
 import org.eclipse.serializer.persistence.binary.types.Binary;
 
 public interface StorageBinaryDataReceiver
@@ -21,4 +23,15 @@ public interface StorageBinaryDataReceiver
 	public void receiveData(Binary data);
 	
 	public void receiveTypeDictionary(String typeDictionaryData);
+	
+	/**
+	 * The default implementation rejects deltas, they are only sent by distributors which support them,
+	 * see {@link StorageBinaryDataDistributor#supportsTypeDictionaryDeltas()}.
+	 * 
+	 * @param typeDictionaryDelta the added type definitions, see {@link StorageTypeDictionaryDelta}
+	 */
+	public default void receiveTypeDictionaryDelta(final ByteBuffer typeDictionaryDelta)
+	{
+		throw new UnsupportedOperationException("Type dictionary deltas aren't supported by " + this.getClass().getName());
+	}
 }
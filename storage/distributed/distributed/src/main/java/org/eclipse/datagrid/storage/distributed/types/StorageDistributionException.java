@@ -0,0 +1,43 @@
+package org.eclipse.datagrid.storage.distributed.types;
+
+/*-
+ * #%L
+ * Eclipse DataGrid Storage Distributed
+ * %%
+ * Copyright (C) 2025 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+/**
+ * Failure of the distribution of storage data, e.g. an invalid packet or message,
+ * or a distribution channel which can't be written or read.
+ */
+public class StorageDistributionException extends RuntimeException
+{
+	public StorageDistributionException()
+	{
+		super();
+	}
+	
+	public StorageDistributionException(final String message)
+	{
+		super(message);
+	}
+	
+	public StorageDistributionException(final Throwable cause)
+	{
+		super(cause);
+	}
+	
+	public StorageDistributionException(final String message, final Throwable cause)
+	{
+		super(message, cause);
+	}
+	
+}
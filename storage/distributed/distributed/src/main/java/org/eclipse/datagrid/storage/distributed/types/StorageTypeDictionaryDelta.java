@@ -0,0 +1,110 @@
+package org.eclipse.datagrid.storage.distributed.types;
+
+/*-
+ * #%L
+ * Eclipse DataGrid Storage Distributed
+ * %%
+ * Copyright (C) 2025 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.serializer.chars.VarString;
+import org.eclipse.serializer.persistence.types.PersistenceTypeDefinition;
+import org.eclipse.serializer.persistence.types.PersistenceTypeDictionaryAssembler;
+
+/**
+ * Binary format of the type definitions added to a type dictionary since its last distribution.
+ * <p>
+ * Layout: the entry count (int), followed by each entry's type id (long), description length (int)
+ * and its description, as assembled for the type dictionary, in UTF-8.
+ * Receivers can skip the types they already know by their id, without parsing their description.
+ */
+public final class StorageTypeDictionaryDelta
+{
+	@FunctionalInterface
+	public static interface EntryAcceptor
+	{
+		public void acceptEntry(long typeId, String typeDescription);
+	}
+	
+	
+	/**
+	 * @return a direct buffer containing the delta of the given type definitions
+	 */
+	public static ByteBuffer assemble(
+		final PersistenceTypeDictionaryAssembler             assembler,
+		final Iterable<? extends PersistenceTypeDefinition> types
+	)
+	{
+		final List<Long>   typeIds      = new ArrayList<>();
+		final List<byte[]> descriptions = new ArrayList<>();
+		int                length       = Integer.BYTES;
+		for(final PersistenceTypeDefinition type : types)
+		{
+			final byte[] description = assembler.assembleTypeDescription(VarString.New(), type)
+				.toString()
+				.getBytes(StandardCharsets.UTF_8)
+			;
+			typeIds.add(type.typeId());
+			descriptions.add(description);
+			length += Long.BYTES + Integer.BYTES + description.length;
+		}
+		
+		final ByteBuffer delta = ByteBuffer.allocateDirect(length);
+		delta.putInt(typeIds.size());
+		for(int i = 0; i < typeIds.size(); i++)
+		{
+			delta.putLong(typeIds.get(i));
+			delta.putInt(descriptions.get(i).length);
+			delta.put(descriptions.get(i));
+		}
+		delta.flip();
+		
+		return delta;
+	}
+	
+	/**
+	 * Passes all entries of the delta to the acceptor, starting at the buffer's position, which is left unchanged.
+	 */
+	public static void iterate(final ByteBuffer delta, final EntryAcceptor acceptor)
+	{
+		final ByteBuffer buffer = delta.duplicate();
+		final int        count  = buffer.getInt();
+		if(count < 0)
+		{
+			throw new StorageDistributionException("Invalid type dictionary delta entry count: " + count);
+		}
+		
+		for(int i = 0; i < count; i++)
+		{
+			final long typeId = buffer.getLong();
+			final int  length = buffer.getInt();
+			if(length < 0 || length > buffer.remaining())
+			{
+				throw new StorageDistributionException("Invalid type dictionary delta entry length: " + length);
+			}
+			
+			final byte[] description = new byte[length];
+			buffer.get(description);
+			acceptor.acceptEntry(typeId, new String(description, StandardCharsets.UTF_8));
+		}
+	}
+	
+	
+	private StorageTypeDictionaryDelta()
+	{
+		throw new UnsupportedOperationException();
+	}
+	
+}
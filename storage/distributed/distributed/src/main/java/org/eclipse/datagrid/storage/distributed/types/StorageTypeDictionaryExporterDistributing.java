@@ -16,6 +16,11 @@ package org.eclipse.datagrid.storage.distributed.types;
 
 import static org.eclipse.serializer.util.X.notNull;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.serializer.collections.Set_long;
+import org.eclipse.serializer.persistence.types.PersistenceTypeDefinition;
 import org.eclipse.serializer.persistence.types.PersistenceTypeDictionary;
 import org.eclipse.serializer.persistence.types.PersistenceTypeDictionaryAssembler;
 import org.eclipse.serializer.persistence.types.PersistenceTypeDictionaryExporter;
@@ -34,6 +39,23 @@ public interface StorageTypeDictionaryExporterDistributing extends PersistenceTy
 		);
 	}
 	
+	/**
+	 * Distributes the complete type dictionary only with the first export,
+	 * afterwards only the added type definitions as {@link StorageTypeDictionaryDelta}.
+	 * Falls back to the complete type dictionary if the distributor doesn't support deltas.
+	 */
+	public static StorageTypeDictionaryExporterDistributing Delta(
+		final PersistenceTypeDictionaryExporter  delegate   ,
+		final StorageBinaryDataDistributor       distributor
+	)
+	{
+		return new StorageTypeDictionaryExporterDistributing.Delta(
+			notNull(delegate),
+			PersistenceTypeDictionaryAssembler.New(), // use default assembler
+			notNull(distributor)
+		);
+	}
+	
 	
 	public static class Default implements StorageTypeDictionaryExporterDistributing
 	{
@@ -64,4 +86,58 @@ public interface StorageTypeDictionaryExporterDistributing extends PersistenceTy
 		
 	}
 	
+	
+	public static class Delta implements StorageTypeDictionaryExporterDistributing
+	{
+		private final PersistenceTypeDictionaryExporter  delegate      ;
+		private final PersistenceTypeDictionaryAssembler assembler     ;
+		private final StorageBinaryDataDistributor       distributor   ;
+		// null until the complete type dictionary has been distributed
+		private       Set_long                           distributedIds;
+		
+		Delta(
+			final PersistenceTypeDictionaryExporter  delegate   ,
+			final PersistenceTypeDictionaryAssembler assembler  ,
+			final StorageBinaryDataDistributor       distributor
+		)
+		{
+			super();
+			this.delegate    = delegate;
+			this.assembler   = assembler;
+			this.distributor = distributor;
+		}
+
+		@Override
+		public synchronized void exportTypeDictionary(final PersistenceTypeDictionary typeDictionary)
+		{
+			this.delegate.exportTypeDictionary(typeDictionary);
+			
+			if(this.distributedIds == null || !this.distributor.supportsTypeDictionaryDeltas())
+			{
+				this.distributedIds = Set_long.New();
+				typeDictionary.iterateAllTypeDefinitions(type -> this.distributedIds.add(type.typeId()));
+				this.distributor.distributeTypeDictionary(
+					this.assembler.assemble(typeDictionary)
+				);
+				return;
+			}
+			
+			final List<PersistenceTypeDefinition> newTypes = new ArrayList<>();
+			typeDictionary.iterateAllTypeDefinitions(type ->
+			{
+				if(this.distributedIds.add(type.typeId()))
+				{
+					newTypes.add(type);
+				}
+			});
+			if(!newTypes.isEmpty())
+			{
+				this.distributor.distributeTypeDictionaryDelta(
+					StorageTypeDictionaryDelta.assemble(this.assembler, newTypes)
+				);
+			}
+		}
+		
+	}
+	
 }
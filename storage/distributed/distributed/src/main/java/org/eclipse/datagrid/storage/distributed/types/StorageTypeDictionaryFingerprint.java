@@ -0,0 +1,88 @@
+package org.eclipse.datagrid.storage.distributed.types;
+
+/*-
+ * #%L
+ * Eclipse DataGrid Storage Distributed
+ * %%
+ * Copyright (C) 2025 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+/**
+ * Fingerprints of distributed type dictionaries, which are sent with every message, see
+ * {@link StorageBinaryDataPacketHeader#typeDictionaryFingerprint(ByteBuffer)}.
+ * Receivers only compare them, so they can skip type dictionaries they have already applied.
+ * <p>
+ * The fingerprint of a complete type dictionary is the CRC32C of its UTF-8 bytes in the upper
+ * and their length in the lower half, a delta is chained onto the fingerprint it is based on.
+ */
+public final class StorageTypeDictionaryFingerprint
+{
+	/**
+	 * Fingerprint of legacy messages without a packet header or without a distributed type dictionary.
+	 */
+	public static long none()
+	{
+		return 0L;
+	}
+	
+	public static long of(final String typeDictionaryData)
+	{
+		return of(ByteBuffer.wrap(typeDictionaryData.getBytes(StandardCharsets.UTF_8)));
+	}
+	
+	/**
+	 * Computes the fingerprint of the remaining bytes of the buffers, without changing their positions.
+	 */
+	public static long of(final ByteBuffer... typeDictionaryData)
+	{
+		final CRC32C checksum = new CRC32C();
+		long         length   = 0;
+		for(final ByteBuffer buffer : typeDictionaryData)
+		{
+			StorageBinaryDataChecksum.update(checksum, buffer);
+			length += buffer.remaining();
+		}
+		
+		return combine(checksum, length);
+	}
+	
+	/**
+	 * @return the fingerprint of the type dictionary after applying the delta to the one with the given fingerprint
+	 */
+	public static long chain(final long fingerprint, final ByteBuffer... typeDictionaryDelta)
+	{
+		final CRC32C checksum = new CRC32C();
+		long         length   = fingerprint;
+		checksum.update(ByteBuffer.allocate(Long.BYTES).putLong(0, fingerprint));
+		for(final ByteBuffer buffer : typeDictionaryDelta)
+		{
+			StorageBinaryDataChecksum.update(checksum, buffer);
+			length += buffer.remaining();
+		}
+		
+		return combine(checksum, length);
+	}
+	
+	private static long combine(final CRC32C checksum, final long length)
+	{
+		return checksum.getValue() << 32 | length & 0xFFFF_FFFFL;
+	}
+	
+	
+	private StorageTypeDictionaryFingerprint()
+	{
+		throw new UnsupportedOperationException();
+	}
+	
+}
@@ -0,0 +1,177 @@
+package org.eclipse.datagrid.storage.distributed.types;
+
+/*-
+ * #%L
+ * Eclipse DataGrid Storage Distributed
+ * %%
+ * Copyright (C) 2025 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import org.eclipse.serializer.memory.XMemory;
+import org.junit.jupiter.api.Test;
+
+class StorageBinaryDataCodecTest
+{
+	private static byte[] compressible(final int length)
+	{
+		final byte[] data = new byte[length];
+		for(int i = 0; i < length; i++)
+		{
+			data[i] = (byte)(i % 64 < 48 ? 0 : i);
+		}
+		return data;
+	}
+
+	private static byte[] random(final int length)
+	{
+		final byte[] data = new byte[length];
+		new Random(42).nextBytes(data);
+		return data;
+	}
+
+	/*
+	 * The data is split into a heap and a direct buffer, positioned behind some leading garbage.
+	 */
+	private static ByteBuffer[] source(final byte[] data)
+	{
+		final int        split  = data.length / 3;
+		final ByteBuffer first  = ByteBuffer.allocate(split + 5);
+		first.position(5).mark();
+		first.put(data, 0, split).reset();
+		final ByteBuffer second = ByteBuffer.allocateDirect(data.length - split);
+		second.put(data, split, data.length - split).flip();
+
+		return new ByteBuffer[] {first, second};
+	}
+
+	private static void assertRoundTrip(final StorageBinaryDataCodec codec, final byte[] data)
+	{
+		final ByteBuffer[] source    = source(data);
+		final int[]        positions = {source[0].position(), source[1].position()};
+		final ByteBuffer   encoded   = codec.encode(source);
+		try
+		{
+			assertEquals(positions[0], source[0].position());
+			assertEquals(positions[1], source[1].position());
+			assertEquals(data.length, StorageBinaryDataCodecs.decodedLength(encoded));
+
+			final ByteBuffer decoded = codec.decode(encoded);
+			try
+			{
+				assertEquals(0, encoded.position());
+				assertTrue(decoded.isDirect());
+				assertArrayEquals(data, XMemory.toArray(decoded));
+			}
+			finally
+			{
+				XMemory.deallocateDirectByteBuffer(decoded);
+			}
+		}
+		finally
+		{
+			XMemory.deallocateDirectByteBuffer(encoded);
+		}
+	}
+
+	@Test
+	void noneRoundTrip()
+	{
+		// without the decoded length, the data is passed as it is
+		final StorageBinaryDataCodec codec   = StorageBinaryDataCodecs.none();
+		final byte[]                 data    = random(1000);
+		final ByteBuffer             encoded = codec.encode(source(data));
+		final ByteBuffer             decoded = codec.decode(encoded);
+		try
+		{
+			assertArrayEquals(data, XMemory.toArray(encoded.duplicate()));
+			assertArrayEquals(data, XMemory.toArray(decoded));
+		}
+		finally
+		{
+			XMemory.deallocateDirectByteBuffer(encoded);
+			XMemory.deallocateDirectByteBuffer(decoded);
+		}
+	}
+
+	@Test
+	void deflateRoundTrip()
+	{
+		for(final int level : new int[] {Deflater.BEST_SPEED, Deflater.BEST_COMPRESSION})
+		{
+			final StorageBinaryDataCodec codec = StorageBinaryDataCodec.Deflate(level);
+			assertRoundTrip(codec, compressible(100_000));
+			assertRoundTrip(codec, random(100_000));
+			assertRoundTrip(codec, new byte[0]);
+		}
+	}
+
+	@Test
+	void deflateCompresses()
+	{
+		final ByteBuffer encoded = StorageBinaryDataCodec.Deflate().encode(source(compressible(100_000)));
+		try
+		{
+			assertTrue(encoded.remaining() < 50_000, "encoded length " + encoded.remaining());
+		}
+		finally
+		{
+			XMemory.deallocateDirectByteBuffer(encoded);
+		}
+	}
+
+	@Test
+	void truncatedDeflateDataFails()
+	{
+		final StorageBinaryDataCodec codec   = StorageBinaryDataCodec.Deflate();
+		final ByteBuffer             encoded = codec.encode(source(random(10_000)));
+		try
+		{
+			encoded.limit(encoded.limit() / 2);
+			assertThrows(StorageDistributionException.class, () -> codec.decode(encoded));
+		}
+		finally
+		{
+			XMemory.deallocateDirectByteBuffer(encoded);
+		}
+	}
+
+	@Test
+	void registry()
+	{
+		assertEquals(StorageBinaryDataCodecs.idNone(), StorageBinaryDataCodecs.none().id());
+		assertEquals("deflate", StorageBinaryDataCodecs.get(1).name());
+		assertEquals(1, StorageBinaryDataCodecs.get("DEFLATE").id());
+		assertThrows(StorageDistributionException.class, () -> StorageBinaryDataCodecs.get(255));
+		assertThrows(StorageDistributionException.class, () -> StorageBinaryDataCodecs.get("unknown"));
+		assertThrows(IllegalArgumentException.class, () -> StorageBinaryDataCodec.Deflate(42));
+
+		final StorageBinaryDataCodec deflate = StorageBinaryDataCodec.Deflate(Deflater.BEST_COMPRESSION);
+		StorageBinaryDataCodecs.register(deflate);
+		try
+		{
+			assertSame(deflate, StorageBinaryDataCodecs.get(deflate.id()));
+		}
+		finally
+		{
+			StorageBinaryDataCodecs.register(StorageBinaryDataCodec.Deflate());
+		}
+	}
+
+}
@@ -0,0 +1,282 @@
+package org.eclipse.datagrid.storage.distributed.types;
+
+/*-
+ * #%L
+ * Eclipse DataGrid Storage Distributed
+ * %%
+ * Copyright (C) 2025 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.eclipse.serializer.collections.BulkList;
+import org.eclipse.serializer.collections.types.XList;
+import org.eclipse.serializer.memory.XMemory;
+import org.eclipse.serializer.persistence.binary.types.Binary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataDistributionQueue.Backpressure;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataMessage.MessageType;
+
+class StorageBinaryDataDistributionQueueTest
+{
+	private static final long WAIT_SECONDS = 10L;
+
+	/*
+	 * Blocks the distribution thread in the first call until it is released,
+	 * records the data of each call per channel.
+	 */
+	static final class BlockingSink implements StorageBinaryDataDistributionQueue.Sink
+	{
+		final CountDownLatch     entered        = new CountDownLatch(1);
+		final CountDownLatch     released       = new CountDownLatch(1);
+		final List<MessageType>  messageTypes   = new ArrayList<>();
+		final List<List<byte[]>> channelData    = new ArrayList<>();
+		long                     offset         ;
+
+		@Override
+		public synchronized CompletionStage<Long> distribute(final MessageType messageType, final Binary data)
+		{
+			this.entered.countDown();
+			try
+			{
+				this.released.await();
+			}
+			catch(final InterruptedException e)
+			{
+				throw new RuntimeException(e);
+			}
+
+			final List<byte[]> channels = new ArrayList<>();
+			data.iterateChannelChunks(channelChunk ->
+			{
+				final ByteBuffer joined = StorageBinaryDataCodecs.gather(channelChunk.buffers());
+				channels.add(XMemory.toArray(joined));
+				XMemory.deallocateDirectByteBuffer(joined);
+			});
+			this.messageTypes.add(messageType);
+			this.channelData.add(channels);
+
+			return CompletableFuture.completedFuture(++this.offset);
+		}
+
+		void awaitEntered() throws InterruptedException
+		{
+			assertTrue(this.entered.await(WAIT_SECONDS, TimeUnit.SECONDS));
+		}
+	}
+
+	private BlockingSink                       sink ;
+	private StorageBinaryDataDistributionQueue queue;
+
+	@AfterEach
+	void dispose()
+	{
+		// pending messages are distributed before the queue's thread ends
+		this.sink.released.countDown();
+		this.queue.dispose();
+	}
+
+	private StorageBinaryDataDistributionQueue queue(
+		final BlockingSink sink        ,
+		final Backpressure backpressure,
+		final Path         spillDirectory
+	)
+	{
+		this.sink  = sink;
+		return this.queue = StorageBinaryDataDistributionQueue.New(
+			sink                                                        ,
+			"DistributionQueueTest"                                     ,
+			1                                                           ,
+			backpressure                                                ,
+			StorageBinaryDataDistributionQueue.defaultMaximumBatchSize(),
+			spillDirectory
+		);
+	}
+
+	/*
+	 * One chunk per channel, like the data of a storage with several channels.
+	 */
+	private static Binary data(final byte... channels)
+	{
+		final XList<ByteBuffer[]> channelBuffers = BulkList.New();
+		for(final byte channel : channels)
+		{
+			final ByteBuffer buffer = ByteBuffer.allocateDirect(4);
+			buffer.put(bytes(channel, 4)).flip();
+			channelBuffers.add(new ByteBuffer[] {buffer});
+		}
+
+		return new StorageBinaryDataDistributionQueue.Default.ChannelChunks(channelBuffers);
+	}
+
+	private static byte[] bytes(final int value, final int count)
+	{
+		final byte[] bytes = new byte[count];
+		Arrays.fill(bytes, (byte)value);
+		return bytes;
+	}
+
+	private static long await(final CompletionStage<Long> acknowledgement) throws Exception
+	{
+		return acknowledgement.toCompletableFuture().get(WAIT_SECONDS, TimeUnit.SECONDS);
+	}
+
+	@Test
+	void blockWaitsForRoom() throws Exception
+	{
+		final BlockingSink                       sink  = new BlockingSink();
+		final StorageBinaryDataDistributionQueue queue = this.queue(sink, Backpressure.BLOCK, Path.of("."));
+
+		final CompletionStage<Long> first = queue.enqueue(MessageType.DATA, data((byte)1));
+		sink.awaitEntered();
+		final CompletionStage<Long> second = queue.enqueue(MessageType.DATA, data((byte)2));
+
+		final CompletableFuture<CompletionStage<Long>> third = CompletableFuture.supplyAsync(
+			() -> queue.enqueue(MessageType.DATA, data((byte)3))
+		);
+		Thread.sleep(200);
+		assertFalse(third.isDone());
+		assertEquals(1, queue.depth());
+		assertTrue(queue.lagNanos() > 0);
+
+		sink.released.countDown();
+		assertEquals(1L, await(first));
+		assertEquals(2L, await(second));
+		assertEquals(3L, await(third.get(WAIT_SECONDS, TimeUnit.SECONDS)));
+
+		assertEquals(3, sink.channelData.size());
+		for(int i = 0; i < 3; i++)
+		{
+			assertArrayEquals(bytes(i + 1, 4), sink.channelData.get(i).get(0));
+		}
+		assertEquals(0, queue.depth());
+	}
+
+	@Test
+	void failRejectsWhenFull() throws Exception
+	{
+		final BlockingSink                       sink  = new BlockingSink();
+		final StorageBinaryDataDistributionQueue queue = this.queue(sink, Backpressure.FAIL, Path.of("."));
+
+		final CompletionStage<Long> first = queue.enqueue(MessageType.DATA, data((byte)1));
+		sink.awaitEntered();
+		final CompletionStage<Long> second = queue.enqueue(MessageType.DATA, data((byte)2));
+
+		assertThrows(
+			StorageDistributionException.class,
+			() -> queue.enqueue(MessageType.DATA, data((byte)3))
+		);
+
+		sink.released.countDown();
+		assertEquals(1L, await(first));
+		assertEquals(2L, await(second));
+		assertEquals(2, sink.channelData.size());
+	}
+
+	@Test
+	void spillKeepsOrderAndChannels(@TempDir final Path spillDirectory) throws Exception
+	{
+		final BlockingSink                       sink  = new BlockingSink();
+		final StorageBinaryDataDistributionQueue queue = this.queue(sink, Backpressure.SPILL, spillDirectory);
+
+		final CompletionStage<Long> first = queue.enqueue(MessageType.DATA, data((byte)1));
+		sink.awaitEntered();
+		final CompletionStage<Long> second = queue.enqueue(MessageType.TYPE_DICTIONARY, data((byte)2));
+		final CompletionStage<Long> third  = queue.enqueue(MessageType.DATA, data((byte)3, (byte)4));
+		final CompletionStage<Long> fourth = queue.enqueue(MessageType.DATA, data((byte)5, (byte)6));
+		assertEquals(3, queue.depth());
+		assertEquals(2, spillFiles(spillDirectory));
+
+		sink.released.countDown();
+		assertEquals(1L, await(first));
+		assertEquals(2L, await(second));
+		assertEquals(3L, await(third));
+		assertEquals(3L, await(fourth));
+
+		assertEquals(3, sink.channelData.size());
+		assertEquals(MessageType.TYPE_DICTIONARY, sink.messageTypes.get(1));
+		assertArrayEquals(bytes(2, 4), sink.channelData.get(1).get(0));
+
+		// the spilled data messages are coalesced per channel
+		final List<byte[]> coalesced = sink.channelData.get(2);
+		assertEquals(2, coalesced.size());
+		assertArrayEquals(new byte[] {3, 3, 3, 3, 5, 5, 5, 5}, coalesced.get(0));
+		assertArrayEquals(new byte[] {4, 4, 4, 4, 6, 6, 6, 6}, coalesced.get(1));
+
+		// the spill files are deleted once distributed, at the latest when the queue's thread has ended
+		queue.dispose();
+		assertEquals(0, spillFiles(spillDirectory));
+	}
+
+	@Test
+	void spillFailureRejectsOnlyTheSpilledCommit() throws Exception
+	{
+		final BlockingSink                       sink  = new BlockingSink();
+		final StorageBinaryDataDistributionQueue queue = this.queue(
+			sink,
+			Backpressure.SPILL,
+			Path.of("does", "not", "exist")
+		);
+
+		final CompletionStage<Long> first = queue.enqueue(MessageType.DATA, data((byte)1));
+		sink.awaitEntered();
+		final CompletionStage<Long> second = queue.enqueue(MessageType.DATA, data((byte)2));
+		assertThrows(
+			StorageDistributionException.class,
+			() -> queue.enqueue(MessageType.DATA, data((byte)3))
+		);
+		assertEquals(1, queue.depth());
+
+		sink.released.countDown();
+		assertEquals(1L, await(first));
+		assertEquals(2L, await(second));
+	}
+
+	@Test
+	void disposedQueueRejects()
+	{
+		final StorageBinaryDataDistributionQueue queue = this.queue(new BlockingSink(), Backpressure.BLOCK, Path.of("."));
+		queue.dispose();
+
+		assertThrows(
+			StorageDistributionException.class,
+			() -> queue.enqueue(MessageType.DATA, data((byte)1))
+		);
+	}
+
+	private static long spillFiles(final Path directory) throws IOException
+	{
+		try(final Stream<Path> files = Files.list(directory))
+		{
+			return files.count();
+		}
+	}
+
+}
@@ -0,0 +1,400 @@
+package org.eclipse.datagrid.storage.distributed.types;
+
+/*-
+ * #%L
+ * Eclipse DataGrid Storage Distributed
+ * %%
+ * Copyright (C) 2025 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.serializer.memory.XMemory;
+import org.eclipse.serializer.persistence.binary.types.Binary;
+import org.junit.jupiter.api.Test;
+
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataMessage.MessageType;
+
+class StorageBinaryDataPacketAcceptorTest
+{
+	private static final long TIMEOUT_MILLIS = 200L;
+
+	/*
+	 * Records the data of every receive call, one array per message.
+	 */
+	static final class RecordingReceiver implements StorageBinaryDataReceiver
+	{
+		final List<List<byte[]>> data            = new ArrayList<>();
+		final List<String>       typeDictionaries = new ArrayList<>();
+		final List<byte[]>       deltas           = new ArrayList<>();
+
+		@Override
+		public void receiveData(final Binary data)
+		{
+			final List<byte[]> messages = new ArrayList<>();
+			for(final ByteBuffer buffer : data.buffers())
+			{
+				messages.add(XMemory.toArray(buffer.duplicate()));
+			}
+			this.data.add(messages);
+		}
+
+		@Override
+		public void receiveTypeDictionary(final String typeDictionaryData)
+		{
+			this.typeDictionaries.add(typeDictionaryData);
+		}
+
+		@Override
+		public void receiveTypeDictionaryDelta(final ByteBuffer typeDictionaryDelta)
+		{
+			this.deltas.add(XMemory.toArray(typeDictionaryDelta.duplicate()));
+		}
+
+		List<byte[]> receivedMessages()
+		{
+			final List<byte[]> messages = new ArrayList<>();
+			this.data.forEach(messages::addAll);
+			return messages;
+		}
+	}
+
+	/*
+	 * Splits the data into packets of the given size, each one a direct buffer starting with its header.
+	 */
+	static List<StorageBinaryDataPacket> packets(
+		final MessageType messageType,
+		final int         flags      ,
+		final long        messageId  ,
+		final long        commitId   ,
+		final int         commitPart ,
+		final int         commitParts,
+		final byte[]      data       ,
+		final int         packetSize
+	)
+	{
+		final int                           packetCount     = Math.max(1, (data.length + packetSize - 1) / packetSize);
+		final int                           messageChecksum = StorageBinaryDataChecksum.compute(ByteBuffer.wrap(data));
+		final List<StorageBinaryDataPacket> packets         = new ArrayList<>();
+		for(int i = 0; i < packetCount; i++)
+		{
+			final ByteBuffer chunk  = ByteBuffer.wrap(
+				data,
+				i * packetSize,
+				Math.min(packetSize, data.length - i * packetSize)
+			);
+			final ByteBuffer packet = ByteBuffer.allocateDirect(StorageBinaryDataPacketHeader.length() + chunk.remaining());
+			StorageBinaryDataPacketHeader.write(
+				packet                                  ,
+				messageType                             ,
+				flags                                   ,
+				data.length                             ,
+				i                                       ,
+				packetCount                             ,
+				-1L                                     ,
+				StorageBinaryDataChecksum.compute(chunk),
+				messageChecksum                         ,
+				messageId                               ,
+				commitId                                ,
+				commitPart                              ,
+				commitParts                             ,
+				StorageTypeDictionaryFingerprint.none()
+			);
+			packet.put(chunk).flip();
+			StorageBinaryDataPacketHeader.validate(packet);
+			packets.add(StorageBinaryDataPacket.New(packet));
+		}
+
+		return packets;
+	}
+
+	static List<StorageBinaryDataPacket> dataPackets(
+		final long   messageId ,
+		final long   commitId  ,
+		final byte[] data      ,
+		final int    packetSize
+	)
+	{
+		return packets(MessageType.DATA, 0, messageId, commitId, 0, 1, data, packetSize);
+	}
+
+	static byte[] data(final int length, final int seed)
+	{
+		final byte[] data = new byte[length];
+		for(int i = 0; i < length; i++)
+		{
+			data[i] = (byte)(i * 31 + seed);
+		}
+		return data;
+	}
+
+	private static StorageBinaryDataPacketAcceptor acceptor(final StorageBinaryDataReceiver receiver)
+	{
+		return StorageBinaryDataPacketAcceptor.New(
+			receiver                              ,
+			StorageBinaryDataBufferPool.Unpooled(),
+			TIMEOUT_MILLIS                        ,
+			StorageBinaryDataPacketAcceptor.defaultMaximumIncompleteBytes()
+		);
+	}
+
+	private static void assertMessages(final List<byte[]> actual, final byte[]... expected)
+	{
+		assertEquals(expected.length, actual.size());
+		for(int i = 0; i < expected.length; i++)
+		{
+			assertArrayEquals(expected[i], actual.get(i), "message " + i);
+		}
+	}
+
+	@Test
+	void singlePacketMessage()
+	{
+		final RecordingReceiver               receiver = new RecordingReceiver();
+		final StorageBinaryDataPacketAcceptor acceptor = acceptor(receiver);
+		final byte[]                          data     = data(100, 1);
+
+		acceptor.accept(dataPackets(1, 1, data, 1000));
+
+		assertMessages(receiver.receivedMessages(), data);
+		assertFalse(acceptor.hasIncompleteMessage());
+	}
+
+	@Test
+	void outOfOrderPackets()
+	{
+		final RecordingReceiver               receiver = new RecordingReceiver();
+		final StorageBinaryDataPacketAcceptor acceptor = acceptor(receiver);
+		final byte[]                          data     = data(1000, 1);
+		final List<StorageBinaryDataPacket>   packets  = dataPackets(1, 1, data, 300);
+		Collections.reverse(packets);
+
+		acceptor.accept(packets.subList(0, 3));
+		assertTrue(receiver.data.isEmpty());
+		assertTrue(acceptor.hasIncompleteMessage());
+		assertEquals(1, acceptor.oldestPendingCommitId());
+
+		acceptor.accept(packets.subList(3, 4));
+		assertMessages(receiver.receivedMessages(), data);
+		assertFalse(acceptor.hasIncompleteMessage());
+		assertEquals(Long.MAX_VALUE, acceptor.oldestPendingCommitId());
+	}
+
+	@Test
+	void interleavedMessagesAreHandedOverInCommitOrder()
+	{
+		final RecordingReceiver               receiver = new RecordingReceiver();
+		final StorageBinaryDataPacketAcceptor acceptor = acceptor(receiver);
+		final byte[]                          first    = data(900, 1);
+		final byte[]                          second   = data(500, 2);
+		final List<StorageBinaryDataPacket>   a        = dataPackets(1, 1, first , 300);
+		final List<StorageBinaryDataPacket>   b        = dataPackets(2, 2, second, 300);
+
+		acceptor.accept(Arrays.asList(a.get(2), b.get(1)));
+		// the younger commit is complete, but held back until the older one is
+		acceptor.accept(Arrays.asList(b.get(0)));
+		assertTrue(receiver.data.isEmpty());
+
+		acceptor.accept(Arrays.asList(a.get(0), a.get(1)));
+		assertMessages(receiver.receivedMessages(), first, second);
+		assertFalse(acceptor.hasIncompleteMessage());
+	}
+
+	@Test
+	void commitPartsAreHandedOverTogether()
+	{
+		final RecordingReceiver               receiver = new RecordingReceiver();
+		final StorageBinaryDataPacketAcceptor acceptor = acceptor(receiver);
+		final byte[]                          part0    = data(200, 1);
+		final byte[]                          part1    = data(300, 2);
+
+		acceptor.accept(packets(MessageType.DATA, 0, 11, 10, 1, 2, part1, 1000));
+		assertTrue(receiver.data.isEmpty());
+		assertTrue(acceptor.hasIncompleteMessage());
+
+		acceptor.accept(packets(MessageType.DATA, 0, 10, 10, 0, 2, part0, 1000));
+		assertEquals(1, receiver.data.size());
+		assertMessages(receiver.data.get(0), part0, part1);
+	}
+
+	@Test
+	void partitionedCommitsWaitForTheirPredecessor()
+	{
+		final RecordingReceiver               receiver    = new RecordingReceiver();
+		final StorageBinaryDataPacketAcceptor acceptor    = acceptor(receiver);
+		final int                             partitioned = StorageBinaryDataPacketHeader.flagPartitioned();
+		final byte[]                          first       = data(500, 1);
+		final byte[]                          second      = data(100, 2);
+		acceptor.expectCommit(100);
+
+		// two packets, so the next commit id is 102
+		acceptor.accept(packets(MessageType.DATA, partitioned, 2, 102, 0, 1, second, 1000));
+		assertTrue(receiver.data.isEmpty());
+		assertEquals(102, acceptor.oldestPendingCommitId());
+
+		acceptor.accept(packets(MessageType.DATA, partitioned, 1, 100, 0, 1, first, 300));
+		assertMessages(receiver.receivedMessages(), first, second);
+		assertFalse(acceptor.hasIncompleteMessage());
+	}
+
+	@Test
+	void redeliveredPartitionedCommitIsSkipped()
+	{
+		final RecordingReceiver               receiver    = new RecordingReceiver();
+		final StorageBinaryDataPacketAcceptor acceptor    = acceptor(receiver);
+		final int                             partitioned = StorageBinaryDataPacketHeader.flagPartitioned();
+		final byte[]                          data        = data(100, 1);
+
+		acceptor.accept(packets(MessageType.DATA, partitioned, 1, 100, 0, 1, data, 1000));
+		acceptor.accept(packets(MessageType.DATA, partitioned, 1, 100, 0, 1, data, 1000));
+
+		assertMessages(receiver.receivedMessages(), data);
+		assertFalse(acceptor.hasIncompleteMessage());
+	}
+
+	@Test
+	void corruptedPacketFails()
+	{
+		final RecordingReceiver               receiver = new RecordingReceiver();
+		final StorageBinaryDataPacketAcceptor acceptor = acceptor(receiver);
+		final List<StorageBinaryDataPacket>   packets  = dataPackets(1, 1, data(600, 1), 300);
+		final ByteBuffer                      buffer   = packets.get(1).buffer();
+		buffer.put(buffer.position() + 10, (byte)(buffer.get(buffer.position() + 10) ^ 1));
+
+		final StorageDistributionException e = assertThrows(
+			StorageDistributionException.class,
+			() -> acceptor.accept(packets)
+		);
+		assertTrue(e.getMessage().contains("Checksum mismatch"));
+		assertTrue(receiver.data.isEmpty());
+		assertFalse(acceptor.hasIncompleteMessage());
+	}
+
+	@Test
+	void incompleteMessageTimesOut() throws InterruptedException
+	{
+		final RecordingReceiver               receiver = new RecordingReceiver();
+		final StorageBinaryDataPacketAcceptor acceptor = acceptor(receiver);
+		final byte[]                          second   = data(100, 2);
+
+		acceptor.accept(dataPackets(1, 1, data(600, 1), 300).subList(0, 1));
+		acceptor.accept(dataPackets(2, 2, second, 300));
+		assertTrue(receiver.data.isEmpty());
+
+		Thread.sleep(TIMEOUT_MILLIS * 2);
+
+		// the younger complete commit isn't blocked by the dropped one anymore
+		final StorageDistributionException e = assertThrows(
+			StorageDistributionException.class,
+			() -> acceptor.accept(Collections.emptyList())
+		);
+		assertTrue(e.getMessage().contains("Incomplete message 1 timed out"));
+		assertMessages(receiver.receivedMessages(), second);
+		assertFalse(acceptor.hasIncompleteMessage());
+	}
+
+	@Test
+	void heldBackCommitTimesOutWithoutSkippingItsPredecessor() throws InterruptedException
+	{
+		final RecordingReceiver               receiver    = new RecordingReceiver();
+		final StorageBinaryDataPacketAcceptor acceptor    = acceptor(receiver);
+		final int                             partitioned = StorageBinaryDataPacketHeader.flagPartitioned();
+		acceptor.expectCommit(100);
+
+		acceptor.accept(packets(MessageType.DATA, partitioned, 2, 101, 0, 1, data(100, 1), 1000));
+		Thread.sleep(TIMEOUT_MILLIS * 2);
+
+		final StorageDistributionException e = assertThrows(
+			StorageDistributionException.class,
+			() -> acceptor.accept(Collections.emptyList())
+		);
+		assertTrue(e.getMessage().contains("Commit 101 timed out"));
+		assertTrue(receiver.data.isEmpty());
+		assertTrue(acceptor.hasIncompleteMessage());
+		assertEquals(101, acceptor.oldestPendingCommitId());
+	}
+
+	@Test
+	void exceedingIncompleteBytesDropsOldestMessage()
+	{
+		final RecordingReceiver               receiver = new RecordingReceiver();
+		final StorageBinaryDataPacketAcceptor acceptor = StorageBinaryDataPacketAcceptor.New(
+			receiver                              ,
+			StorageBinaryDataBufferPool.Unpooled(),
+			StorageBinaryDataPacketAcceptor.defaultIncompleteTimeoutMillis(),
+			1000
+		);
+
+		acceptor.accept(dataPackets(1, 1, data(600, 1), 300).subList(0, 1));
+		assertThrows(
+			StorageDistributionException.class,
+			() -> acceptor.accept(dataPackets(2, 2, data(600, 2), 300).subList(0, 1))
+		);
+		assertEquals(2, acceptor.oldestPendingCommitId());
+	}
+
+	@Test
+	void typeDictionaryAndDeltas()
+	{
+		final RecordingReceiver               receiver       = new RecordingReceiver();
+		final StorageBinaryDataPacketAcceptor acceptor       = acceptor(receiver);
+		final byte[]                          typeDictionary = "type dictionary".getBytes(StandardCharsets.UTF_8);
+		final byte[]                          delta          = data(50, 3);
+
+		acceptor.accept(packets(MessageType.TYPE_DICTIONARY      , 0, 1, 1, 0, 1, typeDictionary, 10));
+		acceptor.accept(packets(MessageType.TYPE_DICTIONARY_DELTA, 0, 2, 2, 0, 1, delta         , 1000));
+
+		assertEquals(Arrays.asList("type dictionary"), receiver.typeDictionaries);
+		assertMessages(receiver.deltas, delta);
+	}
+
+	@Test
+	void encodedMessageIsDecoded()
+	{
+		final RecordingReceiver               receiver = new RecordingReceiver();
+		final StorageBinaryDataPacketAcceptor acceptor = acceptor(receiver);
+		final StorageBinaryDataCodec          codec    = StorageBinaryDataCodec.Deflate();
+		final byte[]                          data     = new byte[10_000];
+		Arrays.fill(data, (byte)7);
+
+		final ByteBuffer encoded = codec.encode(new ByteBuffer[] {ByteBuffer.wrap(data)});
+		try
+		{
+			acceptor.accept(packets(
+				MessageType.DATA                             ,
+				StorageBinaryDataPacketHeader.flagsCodec(codec),
+				1                                            ,
+				1                                            ,
+				0                                            ,
+				1                                            ,
+				XMemory.toArray(encoded)                     ,
+				16
+			));
+		}
+		finally
+		{
+			XMemory.deallocateDirectByteBuffer(encoded);
+		}
+
+		assertMessages(receiver.receivedMessages(), data);
+	}
+
+}
@@ -0,0 +1,205 @@
+package org.eclipse.datagrid.storage.distributed.types;
+
+/*-
+ * #%L
+ * Eclipse DataGrid Storage Distributed
+ * %%
+ * Copyright (C) 2025 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.CRC32C;
+
+import org.junit.jupiter.api.Test;
+
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataMessage.MessageType;
+
+class StorageBinaryDataPacketHeaderTest
+{
+	private static final int LENGTH = StorageBinaryDataPacketHeader.length();
+
+	private static ByteBuffer header(final ByteBuffer target)
+	{
+		StorageBinaryDataPacketHeader.write(
+			target                                                           ,
+			MessageType.TYPE_DICTIONARY_DELTA                                ,
+			StorageBinaryDataPacketHeader.flagsCodec(StorageBinaryDataCodec.Deflate())
+				| StorageBinaryDataPacketHeader.flagPartitioned()            ,
+			1000                                                             ,
+			2                                                                ,
+			3                                                                ,
+			123_456_789_012L                                                 ,
+			0xCAFEBABE                                                       ,
+			0xDEADBEEF                                                       ,
+			42L                                                              ,
+			4711L                                                            ,
+			1                                                                ,
+			5                                                                ,
+			0x0123_4567_89AB_CDEFL
+		);
+
+		return target;
+	}
+
+	private static void assertFields(final ByteBuffer packet)
+	{
+		assertEquals(StorageBinaryDataPacketHeader.version()     , StorageBinaryDataPacketHeader.version(packet)                  );
+		assertEquals(LENGTH                                      , StorageBinaryDataPacketHeader.headerLength(packet)             );
+		assertEquals(MessageType.TYPE_DICTIONARY_DELTA           , StorageBinaryDataPacketHeader.messageType(packet)              );
+		assertEquals(StorageBinaryDataCodec.Deflate().id()       , StorageBinaryDataPacketHeader.codec(packet)                    );
+		assertTrue  (                                              StorageBinaryDataPacketHeader.isPartitioned(packet)            );
+		assertEquals(1000                                        , StorageBinaryDataPacketHeader.messageLength(packet)            );
+		assertEquals(2                                           , StorageBinaryDataPacketHeader.packetIndex(packet)              );
+		assertEquals(3                                           , StorageBinaryDataPacketHeader.packetCount(packet)              );
+		assertEquals(123_456_789_012L                            , StorageBinaryDataPacketHeader.storageOffset(packet)            );
+		assertEquals(0xCAFEBABE                                  , StorageBinaryDataPacketHeader.packetChecksum(packet)           );
+		assertEquals(0xDEADBEEF                                  , StorageBinaryDataPacketHeader.messageChecksum(packet)          );
+		assertEquals(42L                                         , StorageBinaryDataPacketHeader.messageId(packet)                );
+		assertEquals(4711L                                       , StorageBinaryDataPacketHeader.commitId(packet)                 );
+		assertEquals(1                                           , StorageBinaryDataPacketHeader.commitPart(packet)               );
+		assertEquals(5                                           , StorageBinaryDataPacketHeader.commitParts(packet)              );
+		assertEquals(0x0123_4567_89AB_CDEFL                      , StorageBinaryDataPacketHeader.typeDictionaryFingerprint(packet));
+	}
+
+	@Test
+	void writeAndRead()
+	{
+		final ByteBuffer packet = header(ByteBuffer.allocate(LENGTH + 8));
+		assertEquals(LENGTH, packet.position());
+
+		packet.flip();
+		StorageBinaryDataPacketHeader.validate(packet);
+		assertFields(packet);
+		assertEquals(0, packet.position());
+
+		assertSame(packet, StorageBinaryDataPacketHeader.skip(packet));
+		assertEquals(LENGTH, packet.position());
+	}
+
+	@Test
+	void layoutIsLittleEndianRegardlessOfByteOrder()
+	{
+		final ByteBuffer bigEndian    = header(ByteBuffer.allocate(LENGTH)).flip();
+		final ByteBuffer littleEndian = header(ByteBuffer.allocateDirect(LENGTH).order(ByteOrder.LITTLE_ENDIAN)).flip();
+		assertEquals(bigEndian, littleEndian);
+		assertEquals(42L, bigEndian.order(ByteOrder.LITTLE_ENDIAN).getLong(36));
+
+		StorageBinaryDataPacketHeader.validate(littleEndian);
+		assertFields(littleEndian);
+	}
+
+	@Test
+	void readsRelativeToPosition()
+	{
+		final ByteBuffer packet = ByteBuffer.allocate(16 + LENGTH);
+		packet.position(16);
+		header(packet).flip().position(16);
+
+		StorageBinaryDataPacketHeader.validate(packet);
+		assertFields(packet);
+		assertEquals(16 + LENGTH, StorageBinaryDataPacketHeader.skip(packet).position());
+	}
+
+	@Test
+	void corruptedHeaderFails()
+	{
+		for(int i = 0; i < LENGTH; i++)
+		{
+			final ByteBuffer packet = header(ByteBuffer.allocate(LENGTH)).flip();
+			packet.put(i, (byte)(packet.get(i) ^ 0x10));
+			assertThrows(StorageDistributionException.class, () -> StorageBinaryDataPacketHeader.validate(packet), "byte " + i);
+		}
+	}
+
+	@Test
+	void truncatedHeaderFails()
+	{
+		final ByteBuffer packet = header(ByteBuffer.allocate(LENGTH)).flip().limit(LENGTH - 1);
+		assertThrows(StorageDistributionException.class, () -> StorageBinaryDataPacketHeader.validate(packet));
+	}
+
+	@Test
+	void unknownVersionFails()
+	{
+		final ByteBuffer packet = header(ByteBuffer.allocate(LENGTH)).flip();
+		packet.put(0, (byte)0);
+		final StorageDistributionException e = assertThrows(
+			StorageDistributionException.class,
+			() -> StorageBinaryDataPacketHeader.validate(packet)
+		);
+		assertTrue(e.getMessage().contains("version"));
+	}
+
+	@Test
+	void newerVersionIsSkipped()
+	{
+		// a version 2 header with an additional field before the checksum
+		final int        newerLength = LENGTH + Long.BYTES;
+		final ByteBuffer packet      = ByteBuffer.allocate(newerLength + 4).order(ByteOrder.LITTLE_ENDIAN);
+		header(packet.duplicate());
+		packet.put(0, (byte)2);
+		packet.putShort(2, (short)newerLength);
+		packet.putLong(LENGTH - Integer.BYTES, -1L);
+		final CRC32C checksum = new CRC32C();
+		checksum.update(packet.duplicate().limit(newerLength - Integer.BYTES));
+		packet.putInt(newerLength - Integer.BYTES, (int)checksum.getValue());
+		packet.putInt(newerLength, 0x01020304);
+
+		StorageBinaryDataPacketHeader.validate(packet);
+		assertEquals(2, StorageBinaryDataPacketHeader.version(packet));
+		assertEquals(42L, StorageBinaryDataPacketHeader.messageId(packet));
+		assertEquals(0x01020304, StorageBinaryDataPacketHeader.skip(packet).getInt());
+	}
+
+	@Test
+	void headerLengthExceedingPacketFails()
+	{
+		final ByteBuffer packet = header(ByteBuffer.allocate(LENGTH)).flip();
+		packet.order(ByteOrder.LITTLE_ENDIAN).putShort(2, (short)(LENGTH + 8));
+		assertThrows(StorageDistributionException.class, () -> StorageBinaryDataPacketHeader.validate(packet));
+	}
+
+	@Test
+	void writeWithoutSpaceFails()
+	{
+		final ByteBuffer target = ByteBuffer.allocate(LENGTH - 1);
+		assertThrows(StorageDistributionException.class, () -> header(target));
+		assertEquals(0, target.position());
+	}
+
+	@Test
+	void packetOfHeader()
+	{
+		final ByteBuffer buffer = ByteBuffer.allocate(LENGTH + 3);
+		header(buffer).put(new byte[] {1, 2, 3}).flip();
+
+		final StorageBinaryDataPacket packet = StorageBinaryDataPacket.New(buffer);
+		assertEquals(MessageType.TYPE_DICTIONARY_DELTA, packet.messageType());
+		assertEquals(42L                              , packet.messageId()  );
+		assertEquals(4711L                            , packet.commitId()   );
+		assertEquals(5                                , packet.commitParts());
+		assertTrue  (                                   packet.isPartitioned());
+		assertTrue  (                                   packet.hasChecksums());
+		assertEquals(3                                , packet.buffer().remaining());
+		assertEquals(1                                , packet.buffer().get(packet.buffer().position()));
+
+		final StorageBinaryDataPacket legacy = StorageBinaryDataPacket.Legacy(MessageType.DATA, 3, 0, 1, ByteBuffer.allocate(3));
+		assertEquals(StorageBinaryDataPacket.noMessageId(), legacy.messageId());
+		assertFalse (legacy.hasChecksums());
+	}
+
+}
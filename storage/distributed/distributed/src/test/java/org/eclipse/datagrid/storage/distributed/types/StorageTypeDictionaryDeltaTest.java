@@ -0,0 +1,162 @@
+package org.eclipse.datagrid.storage.distributed.types;
+
+/*-
+ * #%L
+ * Eclipse DataGrid Storage Distributed
+ * %%
+ * Copyright (C) 2025 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.serializer.persistence.types.PersistenceTypeDefinition;
+import org.eclipse.serializer.persistence.types.PersistenceTypeDictionary;
+import org.eclipse.serializer.persistence.types.PersistenceTypeDictionaryAssembler;
+import org.eclipse.store.storage.embedded.types.EmbeddedStorage;
+import org.eclipse.store.storage.embedded.types.EmbeddedStorageFoundation;
+import org.eclipse.store.storage.embedded.types.EmbeddedStorageManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class StorageTypeDictionaryDeltaTest
+{
+	static final class Item
+	{
+		final String name ;
+		final int    count;
+
+		Item(final String name, final int count)
+		{
+			super();
+			this.name  = name ;
+			this.count = count;
+		}
+	}
+
+	private static PersistenceTypeDefinition itemType(final PersistenceTypeDictionary typeDictionary)
+	{
+		return typeDictionary.lookupTypeByName(Item.class.getName());
+	}
+
+	@Test
+	void assembleAndIterate(@TempDir final Path directory)
+	{
+		final EmbeddedStorageManager storage = EmbeddedStorage.start(new Item("item", 1), directory);
+		try
+		{
+			final PersistenceTypeDictionaryAssembler assembler      = PersistenceTypeDictionaryAssembler.New();
+			final PersistenceTypeDictionary          typeDictionary = storage.persistenceManager().typeDictionary();
+			final PersistenceTypeDefinition          itemType       = itemType(typeDictionary);
+			final PersistenceTypeDefinition          stringType     = typeDictionary.lookupTypeByName(String.class.getName());
+			final ByteBuffer                         delta          = StorageTypeDictionaryDelta.assemble(
+				assembler,
+				Arrays.asList(itemType, stringType)
+			);
+			assertTrue(delta.isDirect());
+
+			final List<Long>   typeIds      = new ArrayList<>();
+			final List<String> descriptions = new ArrayList<>();
+			StorageTypeDictionaryDelta.iterate(delta, (typeId, typeDescription) ->
+			{
+				typeIds.add(typeId);
+				descriptions.add(typeDescription);
+			});
+
+			assertEquals(0, delta.position());
+			assertEquals(Arrays.asList(itemType.typeId(), stringType.typeId()), typeIds);
+			assertTrue(descriptions.get(0).contains(Item.class.getName()));
+			assertTrue(descriptions.get(0).contains("count"));
+			assertTrue(descriptions.get(1).contains(String.class.getName()));
+		}
+		finally
+		{
+			storage.shutdown();
+		}
+	}
+
+	@Test
+	void emptyDelta()
+	{
+		final ByteBuffer delta = StorageTypeDictionaryDelta.assemble(
+			PersistenceTypeDictionaryAssembler.New(),
+			new ArrayList<>()
+		);
+		StorageTypeDictionaryDelta.iterate(delta, (typeId, typeDescription) ->
+		{
+			throw new AssertionError("No entry expected");
+		});
+		assertEquals(Integer.BYTES, delta.remaining());
+	}
+
+	@Test
+	void invalidDeltaFails()
+	{
+		final ByteBuffer negativeCount = ByteBuffer.allocate(Integer.BYTES).putInt(-1).flip();
+		assertThrows(
+			StorageDistributionException.class,
+			() -> StorageTypeDictionaryDelta.iterate(negativeCount, (typeId, typeDescription) -> {})
+		);
+
+		final ByteBuffer exceedingLength = ByteBuffer.allocate(32).putInt(1).putLong(1000L).putInt(100).flip();
+		assertThrows(
+			StorageDistributionException.class,
+			() -> StorageTypeDictionaryDelta.iterate(exceedingLength, (typeId, typeDescription) -> {})
+		);
+	}
+
+	@Test
+	void mergerAppliesNewTypes(@TempDir final Path sourceDirectory, @TempDir final Path targetDirectory)
+	{
+		final EmbeddedStorageManager       source     = EmbeddedStorage.start(new Item("item", 1), sourceDirectory);
+		final EmbeddedStorageFoundation<?> foundation = EmbeddedStorage.Foundation(targetDirectory);
+		final EmbeddedStorageManager       target     = foundation.start();
+		try
+		{
+			final PersistenceTypeDefinition sourceType = itemType(source.persistenceManager().typeDictionary());
+			final PersistenceTypeDictionary targetTypes = target.persistenceManager().typeDictionary();
+			assertNull(itemType(targetTypes));
+
+			final StorageBinaryDataMerger merger = StorageBinaryDataMerger.New(
+				foundation.getConnectionFoundation()    ,
+				target                                  ,
+				ObjectGraphUpdateHandler.Synchronized()
+			);
+			final ByteBuffer delta = StorageTypeDictionaryDelta.assemble(
+				PersistenceTypeDictionaryAssembler.New(),
+				Arrays.asList(sourceType)
+			);
+			merger.receiveTypeDictionaryDelta(delta);
+
+			final PersistenceTypeDefinition targetType = itemType(targetTypes);
+			assertNotNull(targetType);
+			assertEquals(sourceType.typeId(), targetType.typeId());
+
+			// known types are skipped, so applying the delta again changes nothing
+			merger.receiveTypeDictionaryDelta(delta);
+			assertEquals(targetType, itemType(targetTypes));
+		}
+		finally
+		{
+			target.shutdown();
+			source.shutdown();
+		}
+	}
+
+}
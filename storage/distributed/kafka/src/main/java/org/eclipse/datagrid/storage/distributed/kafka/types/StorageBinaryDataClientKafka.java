@@ -19,10 +19,13 @@ import static org.eclipse.serializer.util.X.notNull;
 
 import java.nio.ByteBuffer;
 import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -30,6 +33,8 @@ import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.header.Headers;
 import org.apache.kafka.common.serialization.ByteArrayDeserializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
@@ -37,6 +42,7 @@ import org.apache.kafka.common.serialization.StringDeserializer;
 import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataClient;
 import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataPacket;
 import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataPacketAcceptor;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataPacketHeader;
 import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataReceiver;
 
 
@@ -63,29 +69,60 @@ public interface StorageBinaryDataClientKafka extends StorageBinaryDataClient
 		final String                          clientId       ,
 		final StorageBinaryDataPacketAcceptor packetAcceptor
 	)
+	{
+		return New(
+			kafkaProperties                           ,
+			topicName                                 ,
+			clientId                                  ,
+			packetAcceptor                            ,
+			StorageBinaryDataCommitStrategy.Default()
+		);
+	}
+	
+	public static StorageBinaryDataClientKafka New(
+		final Properties                      kafkaProperties,
+		final String                          topicName      ,
+		final String                          clientId       ,
+		final StorageBinaryDataPacketAcceptor packetAcceptor ,
+		final StorageBinaryDataCommitStrategy commitStrategy
+	)
 	{
 		return new StorageBinaryDataClientKafka.Default(
 			notNull (kafkaProperties),
 			notEmpty(topicName      ),
 			notEmpty(clientId       ),
-			notNull (packetAcceptor )
+			notNull (packetAcceptor ),
+			notNull (commitStrategy )
 		);
 	}
 	
 	
+	/*
+	 * Commits are imported in the order of their ids, so everything before the oldest pending one is done.
+	 * The offsets handed to the commit strategy therefore only stop at the first record of a pending commit
+	 * per partition, a partially received commit doesn't hold back the partitions it isn't spread over.
+	 */
 	public static class Default implements StorageBinaryDataClientKafka
 	{
-		private final Properties                      kafkaProperties;
-		private final String                          topicName      ;
-		private final String                          clientId       ;
-		private final StorageBinaryDataPacketAcceptor packetAcceptor ;
-		private final AtomicBoolean                   active         = new AtomicBoolean();
+		private final static Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+		
+		private final Properties                                     kafkaProperties;
+		private final String                                         topicName      ;
+		private final String                                         clientId       ;
+		private final StorageBinaryDataPacketAcceptor                packetAcceptor ;
+		private final StorageBinaryDataCommitStrategy                commitStrategy ;
+		private final AtomicBoolean                                  active         = new AtomicBoolean();
+		// only accessed by the polling thread
+		private final Map<TopicPartition, ArrayDeque<PendingRecord>> pendingRecords = new HashMap<>();
+		private final Map<TopicPartition, OffsetAndMetadata>         nextOffsets    = new HashMap<>();
+		private final Map<TopicPartition, OffsetAndMetadata>         durableOffsets = new HashMap<>();
 	
 		Default(
 			final Properties                      kafkaProperties,
 			final String                          topicName      ,
 			final String                          clientId       ,
-			final StorageBinaryDataPacketAcceptor packetAcceptor
+			final StorageBinaryDataPacketAcceptor packetAcceptor ,
+			final StorageBinaryDataCommitStrategy commitStrategy
 		)
 		{
 			super();
@@ -93,6 +130,7 @@ public interface StorageBinaryDataClientKafka extends StorageBinaryDataClient
 			this.topicName       = topicName      ;
 			this.clientId        = clientId       ;
 			this.packetAcceptor  = packetAcceptor ;
+			this.commitStrategy  = commitStrategy ;
 		}
 		
 		@Override
@@ -111,6 +149,7 @@ public interface StorageBinaryDataClientKafka extends StorageBinaryDataClient
 			properties.putAll(this.kafkaProperties);
 			properties.put(ConsumerConfig.GROUP_ID_CONFIG, this.clientId);
 			properties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+			properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
 			properties.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG  , StringDeserializer   .class.getName());
 			properties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
 	//		properties.putIfAbsent(ConsumerConfig.MAX_POLL_INTERVAL_MS_CONFIG, Duration.ofSeconds(3).toMillis());
@@ -120,9 +159,18 @@ public interface StorageBinaryDataClientKafka extends StorageBinaryDataClient
 				consumer.subscribe(Arrays.asList(this.topicName));
 				while(this.active.get())
 				{
-					this.consume(consumer.poll(Duration.ofMillis(Long.MAX_VALUE)));
-					consumer.commitSync();
+					// bounded, so time based commit strategies get the chance to commit
+					final ConsumerRecords<String, byte[]> records = consumer.poll(POLL_TIMEOUT);
+					this.consume(records);
+					this.nextOffsets.putAll(StorageBinaryDataCommitStrategy.nextOffsets(records));
+					this.commitStrategy.processed(
+						consumer             ,
+						this.durableOffsets(),
+						records.count()      ,
+						true
+					);
 				}
+				this.commitStrategy.close(consumer);
 			}
 		}
 		
@@ -132,24 +180,67 @@ public interface StorageBinaryDataClientKafka extends StorageBinaryDataClient
 			final Iterator<ConsumerRecord<String, byte[]>> iterator   = records.iterator();
 			while(iterator.hasNext())
 			{
-				packets.add(this.createDataPacket(iterator.next()));
+				final ConsumerRecord<String, byte[]> record = iterator.next();
+				final StorageBinaryDataPacket        packet = this.createDataPacket(record);
+				packets.add(packet);
+				this.pendingRecords.computeIfAbsent(
+					new TopicPartition(record.topic(), record.partition()),
+					partition -> new ArrayDeque<>()
+				).addLast(new PendingRecord(record.offset(), packet.commitId()));
 			}
 			if(!packets.isEmpty())
 			{
 				this.packetAcceptor.accept(packets);
 			}
 		}
+		
+		/*
+		 * Returns the offsets which advanced since the last call, up to the first record of a pending commit
+		 * per partition.
+		 */
+		private Map<TopicPartition, OffsetAndMetadata> durableOffsets()
+		{
+			final long                                   oldestPendingCommitId = this.packetAcceptor.oldestPendingCommitId();
+			final Map<TopicPartition, OffsetAndMetadata> offsets               = new HashMap<>();
+			for(final Map.Entry<TopicPartition, OffsetAndMetadata> next : this.nextOffsets.entrySet())
+			{
+				final TopicPartition            partition = next.getKey();
+				final ArrayDeque<PendingRecord> records   = this.pendingRecords.get(partition);
+				// commit ids only increase within a partition
+				while(records != null && !records.isEmpty() && records.peekFirst().commitId < oldestPendingCommitId)
+				{
+					records.pollFirst();
+				}
+				final OffsetAndMetadata offset = records == null || records.isEmpty()
+					? next.getValue()
+					: new OffsetAndMetadata(records.peekFirst().offset)
+				;
+				if(!offset.equals(this.durableOffsets.put(partition, offset)))
+				{
+					offsets.put(partition, offset);
+				}
+			}
+			
+			return offsets;
+		}
 
 		private StorageBinaryDataPacket createDataPacket(final ConsumerRecord<String, byte[]> record)
 		{
-			final Headers headers = record.headers();
-			return StorageBinaryDataPacket.New(
-				StorageBinaryDistributedKafka.messageType(headers),
-				StorageBinaryDistributedKafka.messageLength(headers),
-				StorageBinaryDistributedKafka.packetIndex(headers),
-				StorageBinaryDistributedKafka.packetCount(headers),
-				ByteBuffer.wrap(record.value())
-			);
+			final Headers    headers = record.headers();
+			final ByteBuffer value   = ByteBuffer.wrap(record.value());
+			if(StorageBinaryDistributedKafka.hasLegacyHeaders(headers))
+			{
+				return StorageBinaryDataPacket.Legacy(
+					StorageBinaryDistributedKafka.messageType(headers),
+					StorageBinaryDistributedKafka.messageLength(headers),
+					StorageBinaryDistributedKafka.packetIndex(headers),
+					StorageBinaryDistributedKafka.packetCount(headers),
+					value
+				);
+			}
+			
+			StorageBinaryDataPacketHeader.validate(value);
+			return StorageBinaryDataPacket.New(value);
 		}
 		
 		@Override
@@ -158,6 +249,20 @@ public interface StorageBinaryDataClientKafka extends StorageBinaryDataClient
 			this.active.set(false);
 		}
 		
+		
+		private static final class PendingRecord
+		{
+			final long offset  ;
+			final long commitId;
+			
+			PendingRecord(final long offset, final long commitId)
+			{
+				super();
+				this.offset   = offset  ;
+				this.commitId = commitId;
+			}
+		}
+		
 	}
 	
 }
@@ -0,0 +1,108 @@
+package org.eclipse.datagrid.storage.distributed.kafka.types;
+
+/*-
+ * #%L
+ * Eclipse DataGrid Storage Distributed Kafka
+ * %%
+ * Copyright (C) 2025 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import java.nio.ByteBuffer;
+
+import org.eclipse.serializer.memory.XMemory;
+
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataCodec;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataCodecs;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+/**
+ * LZ4 block codec, favors speed over compression ratio.
+ * Registered as service, so it is available by id and name in {@link StorageBinaryDataCodecs}.
+ */
+public class StorageBinaryDataCodecLz4 implements StorageBinaryDataCodec
+{
+	/*
+	 * Initialized on the first use, since the factory loads the native library,
+	 * which is only needed if the codec is used at all.
+	 */
+	private static final class Lz4
+	{
+		static final LZ4Compressor       COMPRESSOR   = LZ4Factory.fastestInstance().fastCompressor();
+		static final LZ4FastDecompressor DECOMPRESSOR = LZ4Factory.fastestInstance().fastDecompressor();
+	}
+	
+	
+	public StorageBinaryDataCodecLz4()
+	{
+		super();
+	}
+	
+	@Override
+	public int id()
+	{
+		return 2;
+	}
+	
+	@Override
+	public String name()
+	{
+		return "lz4";
+	}
+	
+	@Override
+	public ByteBuffer encode(final ByteBuffer[] source)
+	{
+		// LZ4 blocks need contiguous input
+		final ByteBuffer input = StorageBinaryDataCodecs.gather(source);
+		try
+		{
+			final int        length = input.remaining();
+			final int        offset = StorageBinaryDataCodecs.decodedLengthSize();
+			final int        bound  = Lz4.COMPRESSOR.maxCompressedLength(length);
+			final ByteBuffer target = XMemory.allocateDirectNative(offset + bound);
+			StorageBinaryDataCodecs.putDecodedLength(target, length);
+			final int encodedLength = Lz4.COMPRESSOR.compress(input, 0, length, target, offset, bound);
+			
+			return target.limit(offset + encodedLength).position(0);
+		}
+		finally
+		{
+			XMemory.deallocateDirectByteBuffer(input);
+		}
+	}
+	
+	@Override
+	public ByteBuffer decode(final ByteBuffer source)
+	{
+		final int        length = StorageBinaryDataCodecs.decodedLength(source);
+		final ByteBuffer target = XMemory.allocateDirectNative(length);
+		try
+		{
+			Lz4.DECOMPRESSOR.decompress(
+				source                                                         ,
+				source.position() + StorageBinaryDataCodecs.decodedLengthSize(),
+				target                                                         ,
+				0                                                              ,
+				length
+			);
+		}
+		catch(final RuntimeException e)
+		{
+			XMemory.deallocateDirectByteBuffer(target);
+			throw e;
+		}
+		
+		return target;
+	}
+	
+}
@@ -0,0 +1,233 @@
+package org.eclipse.datagrid.storage.distributed.kafka.types;
+
+/*-
+ * #%L
+ * Eclipse DataGrid Storage Distributed Kafka
+ * %%
+ * Copyright (C) 2025 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import static org.eclipse.serializer.math.XMath.positive;
+import static org.eclipse.serializer.util.X.notNull;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.serializer.memory.XMemory;
+
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataCodec;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataCodecs;
+import org.eclipse.datagrid.storage.distributed.types.StorageDistributionException;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdDictTrainer;
+import com.github.luben.zstd.ZstdException;
+
+/**
+ * Zstandard codec, optionally with a dictionary, which improves the ratio of small messages considerably.
+ * <p>
+ * The instance registered as service uses the default level and no dictionary.
+ * A dictionary, trained on typical messages with {@link #trainDictionary(Iterable, int)}, is used by registering
+ * an instance created with {@link #StorageBinaryDataCodecZstd(int, byte[])} in {@link StorageBinaryDataCodecs},
+ * on the distributing as well as on all receiving sides.
+ */
+public class StorageBinaryDataCodecZstd implements StorageBinaryDataCodec
+{
+	/*
+	 * Initialized on the first use, since any call of Zstd loads the native library,
+	 * which is only needed if the codec is used at all.
+	 */
+	private static final class DefaultLevel
+	{
+		static final int VALUE = Zstd.defaultCompressionLevel();
+	}
+	
+	// levels can be negative, this one is out of their range
+	private static final int DEFAULT_LEVEL = Integer.MIN_VALUE;
+	
+	/**
+	 * @return the default maximum size of trained dictionaries, the one of the zstd command line tool
+	 */
+	public static int defaultDictionarySize()
+	{
+		return 112_640;
+	}
+	
+	/**
+	 * Trains a dictionary on sample messages, e.g. the data of typical commits.
+	 * The samples should be about a hundred times the size of the dictionary in total.
+	 * 
+	 * @param samples the sample messages, their positions are left untouched
+	 * @param dictionarySize the maximum size of the dictionary in bytes
+	 * @return the dictionary for {@link #StorageBinaryDataCodecZstd(int, byte[])}
+	 */
+	public static byte[] trainDictionary(final Iterable<ByteBuffer> samples, final int dictionarySize)
+	{
+		final List<byte[]> sampleData = new ArrayList<>();
+		long               totalSize  = 0;
+		for(final ByteBuffer sample : notNull(samples))
+		{
+			final byte[] data = new byte[sample.remaining()];
+			sample.duplicate().get(data);
+			sampleData.add(data);
+			totalSize += data.length;
+		}
+		if(totalSize > Integer.MAX_VALUE)
+		{
+			throw new StorageDistributionException("Samples too big: " + totalSize + " bytes");
+		}
+		
+		final ZstdDictTrainer trainer = new ZstdDictTrainer((int)totalSize, positive(dictionarySize));
+		sampleData.forEach(trainer::addSample);
+		try
+		{
+			return trainer.trainSamples();
+		}
+		catch(final ZstdException e)
+		{
+			throw new StorageDistributionException("Training of zstd dictionary failed", e);
+		}
+	}
+	
+	
+	private final    int                level         ;
+	private final    byte[]             dictionary    ;
+	private volatile ZstdDictCompress   dictCompress  ;
+	private volatile ZstdDictDecompress dictDecompress;
+	
+	/**
+	 * Creates a codec with the default level of Zstandard and no dictionary.
+	 */
+	public StorageBinaryDataCodecZstd()
+	{
+		this(DEFAULT_LEVEL, null);
+	}
+	
+	/**
+	 * @param level the compression level
+	 * @param dictionary the shared dictionary, or <code>null</code>
+	 */
+	public StorageBinaryDataCodecZstd(final int level, final byte[] dictionary)
+	{
+		super();
+		this.level      = level     ;
+		this.dictionary = dictionary;
+	}
+	
+	private int level()
+	{
+		return this.level == DEFAULT_LEVEL
+			? DefaultLevel.VALUE
+			: this.level
+		;
+	}
+	
+	private ZstdDictCompress dictCompress()
+	{
+		ZstdDictCompress dictCompress = this.dictCompress;
+		if(dictCompress == null)
+		{
+			synchronized(this)
+			{
+				if((dictCompress = this.dictCompress) == null)
+				{
+					this.dictCompress = dictCompress = new ZstdDictCompress(this.dictionary, this.level());
+				}
+			}
+		}
+		
+		return dictCompress;
+	}
+	
+	private ZstdDictDecompress dictDecompress()
+	{
+		ZstdDictDecompress dictDecompress = this.dictDecompress;
+		if(dictDecompress == null)
+		{
+			synchronized(this)
+			{
+				if((dictDecompress = this.dictDecompress) == null)
+				{
+					this.dictDecompress = dictDecompress = new ZstdDictDecompress(this.dictionary);
+				}
+			}
+		}
+		
+		return dictDecompress;
+	}
+	
+	@Override
+	public int id()
+	{
+		return 3;
+	}
+	
+	@Override
+	public String name()
+	{
+		return "zstd";
+	}
+	
+	@Override
+	public ByteBuffer encode(final ByteBuffer[] source)
+	{
+		final ByteBuffer input = StorageBinaryDataCodecs.gather(source);
+		try
+		{
+			final int        length = input.remaining();
+			final int        offset = StorageBinaryDataCodecs.decodedLengthSize();
+			final int        bound  = (int)Zstd.compressBound(length);
+			final ByteBuffer target = XMemory.allocateDirectNative(offset + bound);
+			StorageBinaryDataCodecs.putDecodedLength(target, length);
+			final long encodedLength = this.dictionary == null
+				? Zstd.compressDirectByteBuffer(target, offset, bound, input, 0, length, this.level())
+				: Zstd.compressDirectByteBufferFastDict(target, offset, bound, input, 0, length, this.dictCompress())
+			;
+			
+			return target.limit(offset + (int)encodedLength).position(0);
+		}
+		finally
+		{
+			XMemory.deallocateDirectByteBuffer(input);
+		}
+	}
+	
+	@Override
+	public ByteBuffer decode(final ByteBuffer source)
+	{
+		final int length = StorageBinaryDataCodecs.decodedLength(source);
+		final int offset = source.position() + StorageBinaryDataCodecs.decodedLengthSize();
+		final int size   = source.limit() - offset;
+		
+		final ByteBuffer target = XMemory.allocateDirectNative(length);
+		try
+		{
+			final long decodedLength = this.dictionary == null
+				? Zstd.decompressDirectByteBuffer(target, 0, length, source, offset, size)
+				: Zstd.decompressDirectByteBufferFastDict(target, 0, length, source, offset, size, this.dictDecompress())
+			;
+			if(decodedLength != length)
+			{
+				throw new StorageDistributionException("Invalid zstd data, decoded " + decodedLength + " of " + length + " bytes");
+			}
+		}
+		catch(final RuntimeException e)
+		{
+			XMemory.deallocateDirectByteBuffer(target);
+			throw e;
+		}
+		
+		return target;
+	}
+	
+}
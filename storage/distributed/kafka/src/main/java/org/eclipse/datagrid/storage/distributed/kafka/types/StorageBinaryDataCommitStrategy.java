@@ -0,0 +1,302 @@
+package org.eclipse.datagrid.storage.distributed.kafka.types;
+
+/*-
+ * #%L
+ * Eclipse DataGrid Storage Distributed Kafka
+ * %%
+ * Copyright (C) 2025 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import static org.eclipse.serializer.math.XMath.positive;
+import static org.eclipse.serializer.util.X.notNull;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.eclipse.serializer.util.logging.Logging;
+import org.slf4j.Logger;
+
+/**
+ * Decides when the offsets of the processed records are committed to Kafka.
+ * All methods are called by the polling thread, since consumers are not thread safe.
+ */
+public interface StorageBinaryDataCommitStrategy
+{
+	/**
+	 * Called after every poll, even if nothing has been processed, to allow time based commits.
+	 * 
+	 * @param consumer the consumer to commit with
+	 * @param offsets the next offsets to read per partition, of the records processed since the last call
+	 * @param recordCount the amount of records processed since the last call
+	 * @param durable if the data of all processed records is imported, which is not the case
+	 *        as long as a message is only received partially. Clients which only pass the offsets
+	 *        up to the first record of a pending commit per partition, like {@link StorageBinaryDataClientKafka},
+	 *        always pass <code>true</code>
+	 */
+	public void processed(
+		Consumer<?, ?>                         consumer   ,
+		Map<TopicPartition, OffsetAndMetadata> offsets    ,
+		int                                    recordCount,
+		boolean                                durable
+	);
+	
+	/**
+	 * Synchronously commits the pending offsets, called before the consumer is closed.
+	 */
+	public void close(Consumer<?, ?> consumer);
+	
+	
+	/**
+	 * @return the next offsets to read per partition, after the given records
+	 */
+	public static Map<TopicPartition, OffsetAndMetadata> nextOffsets(final ConsumerRecords<?, ?> records)
+	{
+		final Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+		for(final TopicPartition partition : records.partitions())
+		{
+			final List<? extends ConsumerRecord<?, ?>> partitionRecords = records.records(partition);
+			offsets.put(
+				partition,
+				new OffsetAndMetadata(partitionRecords.get(partitionRecords.size() - 1).offset() + 1)
+			);
+		}
+		
+		return offsets;
+	}
+	
+	/**
+	 * @return the default strategy, which commits asynchronously, but only durably imported data
+	 */
+	public static StorageBinaryDataCommitStrategy Default()
+	{
+		return Durable(Async());
+	}
+	
+	/**
+	 * Commits synchronously after every poll which processed records.
+	 */
+	public static StorageBinaryDataCommitStrategy Sync()
+	{
+		return new StorageBinaryDataCommitStrategy.Sync();
+	}
+	
+	/**
+	 * Commits asynchronously after every poll which processed records.
+	 */
+	public static StorageBinaryDataCommitStrategy Async()
+	{
+		return new StorageBinaryDataCommitStrategy.Async();
+	}
+	
+	/**
+	 * Commits asynchronously, as soon as the given amount of records has been processed
+	 * or the given time since the last commit has elapsed.
+	 */
+	public static StorageBinaryDataCommitStrategy Batched(final int maxRecords, final long maxMillis)
+	{
+		return new StorageBinaryDataCommitStrategy.Batched(
+			positive(maxRecords),
+			TimeUnit.MILLISECONDS.toNanos(positive(maxMillis))
+		);
+	}
+	
+	/**
+	 * Holds back the offsets of the delegate until all processed data is imported,
+	 * so a partially received message is read again after a restart.
+	 */
+	public static StorageBinaryDataCommitStrategy Durable(final StorageBinaryDataCommitStrategy delegate)
+	{
+		return new StorageBinaryDataCommitStrategy.Durable(
+			notNull(delegate)
+		);
+	}
+	
+	
+	public static abstract class Abstract implements StorageBinaryDataCommitStrategy
+	{
+		private final Map<TopicPartition, OffsetAndMetadata> pending         = new HashMap<>();
+		private       int                                    pendingRecords  ;
+		private       long                                   lastCommitNanos = System.nanoTime();
+		
+		protected Abstract()
+		{
+			super();
+		}
+		
+		protected abstract boolean isDue(int pendingRecords, long nanosSinceLastCommit);
+		
+		protected abstract void commit(Consumer<?, ?> consumer, Map<TopicPartition, OffsetAndMetadata> offsets);
+		
+		@Override
+		public void processed(
+			final Consumer<?, ?>                         consumer   ,
+			final Map<TopicPartition, OffsetAndMetadata> offsets    ,
+			final int                                    recordCount,
+			final boolean                                durable
+		)
+		{
+			this.pending.putAll(offsets);
+			this.pendingRecords += recordCount;
+			
+			final long now = System.nanoTime();
+			if(!this.pending.isEmpty() && this.isDue(this.pendingRecords, now - this.lastCommitNanos))
+			{
+				this.commit(consumer, new HashMap<>(this.pending));
+				this.pending.clear();
+				this.pendingRecords  = 0;
+				this.lastCommitNanos = now;
+			}
+		}
+		
+		@Override
+		public void close(final Consumer<?, ?> consumer)
+		{
+			if(!this.pending.isEmpty())
+			{
+				consumer.commitSync(this.pending);
+				this.pending.clear();
+				this.pendingRecords = 0;
+			}
+		}
+		
+	}
+	
+	
+	public static class Sync extends Abstract
+	{
+		Sync()
+		{
+			super();
+		}
+		
+		@Override
+		protected boolean isDue(final int pendingRecords, final long nanosSinceLastCommit)
+		{
+			return true;
+		}
+		
+		@Override
+		protected void commit(final Consumer<?, ?> consumer, final Map<TopicPartition, OffsetAndMetadata> offsets)
+		{
+			consumer.commitSync(offsets);
+		}
+		
+	}
+	
+	
+	public static class Async extends Abstract
+	{
+		private final static Logger logger = Logging.getLogger(StorageBinaryDataCommitStrategy.class);
+		
+		Async()
+		{
+			super();
+		}
+		
+		@Override
+		protected boolean isDue(final int pendingRecords, final long nanosSinceLastCommit)
+		{
+			return true;
+		}
+		
+		/*
+		 * A failed commit is not retried, the offsets of a later commit include it.
+		 */
+		@Override
+		protected void commit(final Consumer<?, ?> consumer, final Map<TopicPartition, OffsetAndMetadata> offsets)
+		{
+			consumer.commitAsync(offsets, (committed, e) ->
+			{
+				if(e != null)
+				{
+					logger.warn("Offset commit failed: " + committed, e);
+				}
+			});
+		}
+		
+	}
+	
+	
+	public static class Batched extends Async
+	{
+		private final int  maxRecords;
+		private final long maxNanos  ;
+		
+		Batched(final int maxRecords, final long maxNanos)
+		{
+			super();
+			this.maxRecords = maxRecords;
+			this.maxNanos   = maxNanos  ;
+		}
+		
+		@Override
+		protected boolean isDue(final int pendingRecords, final long nanosSinceLastCommit)
+		{
+			return pendingRecords >= this.maxRecords
+				|| nanosSinceLastCommit >= this.maxNanos
+			;
+		}
+		
+	}
+	
+	
+	public static class Durable implements StorageBinaryDataCommitStrategy
+	{
+		private final StorageBinaryDataCommitStrategy        delegate   ;
+		private final Map<TopicPartition, OffsetAndMetadata> held       = new HashMap<>();
+		private       int                                    heldRecords;
+		
+		Durable(final StorageBinaryDataCommitStrategy delegate)
+		{
+			super();
+			this.delegate = delegate;
+		}
+		
+		@Override
+		public void processed(
+			final Consumer<?, ?>                         consumer   ,
+			final Map<TopicPartition, OffsetAndMetadata> offsets    ,
+			final int                                    recordCount,
+			final boolean                                durable
+		)
+		{
+			this.held.putAll(offsets);
+			this.heldRecords += recordCount;
+			if(!durable)
+			{
+				// the delegate still gets the chance to commit earlier offsets on time
+				this.delegate.processed(consumer, Map.of(), 0, true);
+				return;
+			}
+			
+			this.delegate.processed(consumer, new HashMap<>(this.held), this.heldRecords, true);
+			this.held.clear();
+			this.heldRecords = 0;
+		}
+		
+		/*
+		 * Held offsets are dropped, their records are read again after a restart.
+		 */
+		@Override
+		public void close(final Consumer<?, ?> consumer)
+		{
+			this.delegate.close(consumer);
+		}
+		
+	}
+	
+}
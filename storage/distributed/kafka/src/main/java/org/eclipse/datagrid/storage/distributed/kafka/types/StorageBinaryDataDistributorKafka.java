@@ -15,17 +15,17 @@ package org.eclipse.datagrid.storage.distributed.kafka.types;
  */
 
 import static org.eclipse.serializer.chars.XChars.notEmpty;
+import static org.eclipse.serializer.math.XMath.positive;
 import static org.eclipse.serializer.util.X.notNull;
 
 import java.nio.ByteBuffer;
 import java.util.Properties;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletionStage;
+import java.util.zip.CRC32C;
 
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.clients.producer.ProducerRecord;
-import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.eclipse.serializer.collections.BulkList;
 import org.eclipse.serializer.collections.types.XList;
@@ -33,8 +33,15 @@ import org.eclipse.serializer.memory.XMemory;
 import org.eclipse.serializer.persistence.binary.types.Binary;
 import org.eclipse.serializer.persistence.binary.types.ChunksWrapper;
 
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataChecksum;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataCodec;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataCodecs;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataDistributionQueue;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataDistributionQueue.Backpressure;
 import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataDistributor;
 import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataMessage.MessageType;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataPacketHeader;
+import org.eclipse.datagrid.storage.distributed.types.StorageTypeDictionaryFingerprint;
 
 
 public interface StorageBinaryDataDistributorKafka
@@ -44,44 +51,112 @@ public interface StorageBinaryDataDistributorKafka
 		final Properties kafkaProperties,
 		final String     topicName
 	)
+	{
+		return Sync(
+			kafkaProperties               ,
+			topicName                     ,
+			StorageBinaryDataCodecs.none()
+		);
+	}
+	
+	/**
+	 * @param codec the codec the messages are encoded with before they are split into packets
+	 */
+	public static StorageBinaryDataDistributorKafka Sync(
+		final Properties             kafkaProperties,
+		final String                 topicName      ,
+		final StorageBinaryDataCodec codec
+	)
 	{
 		return new StorageBinaryDataDistributorKafka.Sync(
 			notNull (kafkaProperties),
-			notEmpty(topicName      )
+			notEmpty(topicName      ),
+			notNull (codec          )
 		);
 	}
 	
-	public static StorageBinaryDataDistributorKafka Async(
+	public static StorageBinaryDataDistributorKafka.Async Async(
 		final Properties kafkaProperties,
 		final String     topicName
 	)
+	{
+		return Async(
+			kafkaProperties                                     ,
+			topicName                                           ,
+			StorageBinaryDataDistributionQueue.defaultCapacity(),
+			Backpressure.BLOCK
+		);
+	}
+	
+	/**
+	 * @param queueCapacity maximum amount of commits waiting for distribution
+	 * @param backpressure what happens to commits when the queue is full
+	 */
+	public static StorageBinaryDataDistributorKafka.Async Async(
+		final Properties   kafkaProperties,
+		final String       topicName      ,
+		final int          queueCapacity  ,
+		final Backpressure backpressure
+	)
+	{
+		return Async(
+			kafkaProperties               ,
+			topicName                     ,
+			queueCapacity                 ,
+			backpressure                  ,
+			StorageBinaryDataCodecs.none()
+		);
+	}
+	
+	/**
+	 * @param queueCapacity maximum amount of commits waiting for distribution
+	 * @param backpressure what happens to commits when the queue is full
+	 * @param codec the codec the messages are encoded with before they are split into packets
+	 */
+	public static StorageBinaryDataDistributorKafka.Async Async(
+		final Properties             kafkaProperties,
+		final String                 topicName      ,
+		final int                    queueCapacity  ,
+		final Backpressure           backpressure   ,
+		final StorageBinaryDataCodec codec
+	)
 	{
 		return new StorageBinaryDataDistributorKafka.Async(
 			notNull (kafkaProperties),
-			notEmpty(topicName      )
+			notEmpty(topicName      ),
+			positive(queueCapacity  ),
+			notNull (backpressure   ),
+			notNull (codec          )
 		);
 	}
 	
 	
 	static abstract class Abstract implements StorageBinaryDataDistributorKafka
 	{
-		private final Properties                    kafkaProperties;
-		private final String                        topicName      ;
-		private       KafkaProducer<String, byte[]> kafkaProducer  ;
+		private final Properties                          kafkaProperties;
+		private final String                              topicName      ;
+		private final StorageBinaryDataCodec              codec          ;
+		private       KafkaProducer<String, ByteBuffer[]> kafkaProducer  ;
+		// seeded with the time, so ids of a restarted distributor don't collide with incomplete messages of before
+		private       long                                messageId      = System.currentTimeMillis() * 1000;
+		// of the last distributed type dictionary, stamped on every message
+		private       long                                typeDictionaryFingerprint = StorageTypeDictionaryFingerprint.none();
 
 		Abstract(
-			final Properties kafkaProperties,
-			final String     topicName
+			final Properties             kafkaProperties,
+			final String                 topicName      ,
+			final StorageBinaryDataCodec codec
 		)
 		{
 			super();
 			this.kafkaProperties = kafkaProperties;
 			this.topicName       = topicName      ;
+			this.codec           = codec          ;
 		}
 		
-		protected abstract void execute(Runnable action);
+		protected abstract CompletionStage<Long> distribute(MessageType messageType, Binary data);
 		
-		private synchronized KafkaProducer<String, byte[]> ensureProducer()
+		private synchronized KafkaProducer<String, ByteBuffer[]> ensureProducer()
 		{
 			return this.kafkaProducer != null
 				?  this.kafkaProducer
@@ -89,91 +164,224 @@ public interface StorageBinaryDataDistributorKafka
 			;
 		}
 		
-		private KafkaProducer<String, byte[]> createProducer()
+		private KafkaProducer<String, ByteBuffer[]> createProducer()
 		{
 			final Properties properties = new Properties();
 			properties.putAll(this.kafkaProperties);
-			properties.setProperty(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG  , StringSerializer   .class.getName());
-			properties.setProperty(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class.getName());
+			if(this.isTransactional())
+			{
+				properties.setProperty(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, "true");
+				properties.setProperty(ProducerConfig.ACKS_CONFIG               , "all" );
+			}
 
-			return new KafkaProducer<>(properties);
+			final KafkaProducer<String, ByteBuffer[]> producer = new KafkaProducer<>(
+				properties,
+				new StringSerializer(),
+				StorageBinaryDataPacketSerializer.New(
+					StorageBinaryDistributedKafka.maxPacketSize() + StorageBinaryDataPacketHeader.length()
+				)
+			);
+			if(this.isTransactional())
+			{
+				producer.initTransactions();
+			}
+			
+			return producer;
 		}
 		
-		private void distribute(
+		/*
+		 * With a transactional id all packets of a message are written in one transaction,
+		 * so read committed consumers never see partial messages.
+		 */
+		private boolean isTransactional()
+		{
+			return this.kafkaProperties.containsKey(ProducerConfig.TRANSACTIONAL_ID_CONFIG);
+		}
+		
+		/*
+		 * Packets are slices of the channel chunk buffers, the bytes are copied only once,
+		 * by the packet serializer. Synchronized since the serializer reuses its transfer array.
+		 * The returned stage is completed with the Kafka offset of the last packet.
+		 */
+		protected synchronized CompletionStage<Long> executeDistribution(
 			final MessageType messageType,
 			final Binary      data
 		)
 		{
-			this.execute(() -> this.executeDistribution(messageType, data));
+			final KafkaProducer<String, ByteBuffer[]> producer = this.ensureProducer();
+			if(!this.isTransactional())
+			{
+				this.updateTypeDictionaryFingerprint(messageType, data);
+				return this.sendPackets(producer, messageType, data);
+			}
+			
+			final long typeDictionaryFingerprintBefore = this.typeDictionaryFingerprint;
+			producer.beginTransaction();
+			try
+			{
+				this.updateTypeDictionaryFingerprint(messageType, data);
+				final CompletionStage<Long> acknowledgement = this.sendPackets(producer, messageType, data);
+				producer.commitTransaction();
+				return acknowledgement;
+			}
+			catch(final RuntimeException e)
+			{
+				// fenced producers can't abort anymore, the original error is reported anyway
+				try
+				{
+					producer.abortTransaction();
+				}
+				catch(final RuntimeException abortError)
+				{
+					e.addSuppressed(abortError);
+				}
+				// the aborted message is never read, the following ones build on the type dictionary before it
+				this.typeDictionaryFingerprint = typeDictionaryFingerprintBefore;
+				throw e;
+			}
 		}
 		
-		private void executeDistribution(
-			final MessageType messageType,
-			final Binary      data
+		/*
+		 * Executed in distribution order, so every message carries the fingerprint
+		 * of the type dictionary distributed before it, or of itself.
+		 */
+		private void updateTypeDictionaryFingerprint(final MessageType messageType, final Binary data)
+		{
+			if(messageType == MessageType.TYPE_DICTIONARY)
+			{
+				this.typeDictionaryFingerprint = StorageTypeDictionaryFingerprint.of(this.allBuffers(data));
+			}
+			else if(messageType == MessageType.TYPE_DICTIONARY_DELTA)
+			{
+				this.typeDictionaryFingerprint = StorageTypeDictionaryFingerprint.chain(
+					this.typeDictionaryFingerprint,
+					this.allBuffers(data)
+				);
+			}
+		}
+		
+		/*
+		 * Encoded messages are sent from a single buffer, which can be released right away,
+		 * since the packet serializer copies it while sending.
+		 */
+		private CompletionStage<Long> sendPackets(
+			final KafkaProducer<String, ByteBuffer[]> producer   ,
+			final MessageType                         messageType,
+			final Binary                              data
 		)
 		{
-			final KafkaProducer<String, byte[]> producer    = this.ensureProducer();
-			final ByteBuffer[]                  buffers     = this.allBuffers(data);
-			int                                 messageSize = 0;
+			final ByteBuffer[] buffers = this.allBuffers(data);
+			if(this.codec.id() == StorageBinaryDataCodecs.idNone())
+			{
+				return this.sendPackets(producer, messageType, buffers);
+			}
+			
+			final ByteBuffer encoded = this.codec.encode(buffers);
+			try
+			{
+				return this.sendPackets(producer, messageType, new ByteBuffer[] {encoded});
+			}
+			finally
+			{
+				XMemory.deallocateDirectByteBuffer(encoded);
+			}
+		}
+		
+		private CompletionStage<Long> sendPackets(
+			final KafkaProducer<String, ByteBuffer[]> producer   ,
+			final MessageType                         messageType,
+			final ByteBuffer[]                        buffers
+		)
+		{
+			final int          maxPacketSize = StorageBinaryDistributedKafka.maxPacketSize();
+			final CRC32C       checksum      = new CRC32C();
+			int                messageSize   = 0;
 			for(final ByteBuffer buffer : buffers)
 			{
 				messageSize += buffer.remaining();
-				buffer.mark();
+				StorageBinaryDataChecksum.update(checksum, buffer);
 			}
+			final int  messageChecksum = (int)checksum.getValue();
+			final long messageId       = ++this.messageId;
 			
 			int       remaining     = messageSize;
 			int       currentBuffer = 0;
 			int       packetIndex   = 0;
-			final int packetCount   = messageSize / StorageBinaryDistributedKafka.maxPacketSize()
-				+ (messageSize % StorageBinaryDistributedKafka.maxPacketSize() == 0 ? 0 : 1)
+			final int packetCount   = messageSize / maxPacketSize
+				+ (messageSize % maxPacketSize == 0 ? 0 : 1)
 			;
+			final StorageBinaryDataMessageAcknowledgement acknowledgement = StorageBinaryDataMessageAcknowledgement.New(
+				packetCount
+			);
+			final XList<ByteBuffer> segments = BulkList.New();
 			while(remaining > 0)
 			{
-				final byte[] packet = new byte[Math.min(
-					remaining,
-					StorageBinaryDistributedKafka.maxPacketSize()
-				)];
-				int packetOffset = 0;
-				while(packetOffset < packet.length)
+				// placeholder for the header, which needs the checksum of the packet
+				segments.add(null);
+				checksum.reset();
+				int packetRemaining = Math.min(remaining, maxPacketSize);
+				while(packetRemaining > 0)
 				{
 					final ByteBuffer buffer = buffers[currentBuffer];
 					final int        length = Math.min(
-						packet.length - packetOffset,
+						packetRemaining,
 						buffer.remaining()
 					);
-					buffer.get(packet, packetOffset, length);
+					final ByteBuffer segment = buffer.slice();
+					segment.limit(length);
+					segments.add(segment);
+					StorageBinaryDataChecksum.update(checksum, segment);
+					buffer.position(buffer.position() + length);
 					if(!buffer.hasRemaining())
 					{
 						currentBuffer++;
 					}
-					remaining    -= length;
-					packetOffset += length;
+					remaining       -= length;
+					packetRemaining -= length;
 				}
+				segments.set(0, StorageBinaryDistributedKafka.packetHeader(
+					messageType             ,
+					messageSize             ,
+					packetIndex             ,
+					packetCount             ,
+					this.codec              ,
+					(int)checksum.getValue(),
+					messageChecksum         ,
+					messageId               ,
+					this.typeDictionaryFingerprint
+				));
 				
-				final ProducerRecord<String, byte[]> record = new ProducerRecord<>(this.topicName, packet);
-				StorageBinaryDistributedKafka.addPacketHeaders(
-					record.headers(),
-					messageType     ,
-					messageSize     ,
-					packetIndex     ,
-					packetCount
+				final ProducerRecord<String, ByteBuffer[]> record = new ProducerRecord<>(
+					this.topicName,
+					segments.toArray(ByteBuffer.class)
 				);
-				producer.send(record);
+				producer.send(record, acknowledgement);
 				
+				segments.clear();
 				packetIndex++;
 			}
 			
-			for(final ByteBuffer buffer : buffers)
-			{
-				buffer.reset();
-			}
+			return acknowledgement.completion().thenApply(metadata ->
+				metadata == null
+					? -1L
+					: metadata.offset()
+			);
 		}
 		
+		/*
+		 * Duplicates, so the positions of the channel chunk buffers are left untouched.
+		 */
 		private ByteBuffer[] allBuffers(final Binary data)
 		{
 			final XList<ByteBuffer> list = BulkList.New();
 			
-			data.iterateChannelChunks(channelChunk -> list.addAll(channelChunk.buffers()));
+			data.iterateChannelChunks(channelChunk ->
+			{
+				for(final ByteBuffer buffer : channelChunk.buffers())
+				{
+					list.add(buffer.duplicate());
+				}
+			});
 			
 			return list.toArray(ByteBuffer.class);
 		}
@@ -186,6 +394,15 @@ public interface StorageBinaryDataDistributorKafka
 				data
 			);
 		}
+		
+		@Override
+		public CompletionStage<Long> distributeDataAsync(final Binary data)
+		{
+			return this.distribute(
+				MessageType.DATA,
+				data
+			);
+		}
 
 		@Override
 		public void distributeTypeDictionary(final String typeDictionaryData)
@@ -200,6 +417,21 @@ public interface StorageBinaryDataDistributorKafka
 			);
 		}
 		
+		@Override
+		public boolean supportsTypeDictionaryDeltas()
+		{
+			return true;
+		}
+		
+		@Override
+		public void distributeTypeDictionaryDelta(final ByteBuffer typeDictionaryDelta)
+		{
+			this.distribute(
+				MessageType.TYPE_DICTIONARY_DELTA,
+				ChunksWrapper.New(typeDictionaryDelta)
+			);
+		}
+		
 		@Override
 		public synchronized void dispose()
 		{
@@ -216,17 +448,18 @@ public interface StorageBinaryDataDistributorKafka
 	public static class Sync extends Abstract
 	{
 		Sync(
-			final Properties kafkaProperties,
-			final String     topicName
+			final Properties             kafkaProperties,
+			final String                 topicName      ,
+			final StorageBinaryDataCodec codec
 		)
 		{
-			super(kafkaProperties, topicName);
+			super(kafkaProperties, topicName, codec);
 		}
 
 		@Override
-		protected void execute(final Runnable action)
+		protected CompletionStage<Long> distribute(final MessageType messageType, final Binary data)
 		{
-			action.run();
+			return this.executeDistribution(messageType, data);
 		}
 		
 	}
@@ -234,37 +467,56 @@ public interface StorageBinaryDataDistributorKafka
 	
 	public static class Async extends Abstract
 	{
-		private final ExecutorService executor;
+		private final StorageBinaryDataDistributionQueue queue;
 
 		Async(
-			final Properties kafkaProperties,
-			final String     topicName
+			final Properties             kafkaProperties,
+			final String                 topicName      ,
+			final int                    queueCapacity  ,
+			final Backpressure           backpressure   ,
+			final StorageBinaryDataCodec codec
 		)
 		{
-			super(kafkaProperties, topicName);
-			this.executor = Executors.newSingleThreadExecutor(this::createThread);
+			super(kafkaProperties, topicName, codec);
+			this.queue = StorageBinaryDataDistributionQueue.New(
+				this::executeDistribution                                  ,
+				"StorageDistributor-Kafka"                                 ,
+				queueCapacity                                              ,
+				backpressure                                               ,
+				StorageBinaryDataDistributionQueue.defaultMaximumBatchSize(),
+				StorageBinaryDataDistributionQueue.defaultSpillDirectory()
+			);
+		}
+
+		@Override
+		protected CompletionStage<Long> distribute(final MessageType messageType, final Binary data)
+		{
+			return this.queue.enqueue(messageType, data);
 		}
 		
-		private Thread createThread(final Runnable runnable)
+		/**
+		 * @return the amount of commits waiting for distribution
+		 */
+		public int queueDepth()
 		{
-			final Thread thread = new Thread(runnable);
-			thread.setName("StorageDistributor-Kafka");
-			return thread;
+			return this.queue.depth();
 		}
-
-		@Override
-		protected void execute(final Runnable action)
+		
+		/**
+		 * @return the nanoseconds the oldest commit is waiting for distribution
+		 */
+		public long lagNanos()
 		{
-			this.executor.execute(action);
+			return this.queue.lagNanos();
 		}
 		
+		/*
+		 * Not synchronized, the queue is drained before the producer is closed.
+		 */
 		@Override
-		public synchronized void dispose()
+		public void dispose()
 		{
-			if(!this.executor.isShutdown())
-			{
-				this.executor.shutdown();
-			}
+			this.queue.dispose();
 			
 			super.dispose();
 		}
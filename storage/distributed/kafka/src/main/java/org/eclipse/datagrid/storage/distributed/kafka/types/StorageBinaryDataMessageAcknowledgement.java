@@ -0,0 +1,81 @@
+package org.eclipse.datagrid.storage.distributed.kafka.types;
+
+/*-
+ * #%L
+ * Eclipse DataGrid Storage Distributed Kafka
+ * %%
+ * Copyright (C) 2025 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import static org.eclipse.serializer.math.XMath.notNegative;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.RecordMetadata;
+
+/**
+ * Send callback for all packets of one message.
+ * The completion is completed with the metadata of the last acknowledged packet once all packets
+ * have been acknowledged, or exceptionally with the first failure.
+ * For messages without packets it is completed with <code>null</code> right away.
+ */
+public interface StorageBinaryDataMessageAcknowledgement extends Callback
+{
+	public CompletionStage<RecordMetadata> completion();
+	
+	
+	public static StorageBinaryDataMessageAcknowledgement New(final int packetCount)
+	{
+		return new StorageBinaryDataMessageAcknowledgement.Default(
+			notNegative(packetCount)
+		);
+	}
+	
+	
+	public static class Default implements StorageBinaryDataMessageAcknowledgement
+	{
+		private final AtomicInteger                     pending   ;
+		private final CompletableFuture<RecordMetadata> completion = new CompletableFuture<>();
+		
+		Default(final int packetCount)
+		{
+			super();
+			this.pending = new AtomicInteger(packetCount);
+			if(packetCount == 0)
+			{
+				this.completion.complete(null);
+			}
+		}
+		
+		@Override
+		public CompletionStage<RecordMetadata> completion()
+		{
+			return this.completion;
+		}
+		
+		@Override
+		public void onCompletion(final RecordMetadata metadata, final Exception exception)
+		{
+			if(exception != null)
+			{
+				this.completion.completeExceptionally(exception);
+			}
+			else if(this.pending.decrementAndGet() == 0)
+			{
+				this.completion.complete(metadata);
+			}
+		}
+		
+	}
+	
+}
@@ -0,0 +1,86 @@
+package org.eclipse.datagrid.storage.distributed.kafka.types;
+
+/*-
+ * #%L
+ * Eclipse DataGrid Storage Distributed Kafka
+ * %%
+ * Copyright (C) 2025 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import static org.eclipse.serializer.util.X.notNull;
+
+import java.nio.ByteBuffer;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataBufferPool;
+
+/**
+ * Copies record values straight from the fetched data into buffers of a {@link StorageBinaryDataBufferPool},
+ * without materializing them as <code>byte[]</code> first.
+ * The returned buffers have to be released to the pool by the consumer.
+ */
+public interface StorageBinaryDataPacketDeserializer extends Deserializer<ByteBuffer>
+{
+	public StorageBinaryDataBufferPool bufferPool();
+
+
+	public static StorageBinaryDataPacketDeserializer New(final StorageBinaryDataBufferPool bufferPool)
+	{
+		return new StorageBinaryDataPacketDeserializer.Default(
+			notNull(bufferPool)
+		);
+	}
+
+
+	public static class Default implements StorageBinaryDataPacketDeserializer
+	{
+		private final StorageBinaryDataBufferPool bufferPool;
+
+		Default(final StorageBinaryDataBufferPool bufferPool)
+		{
+			super();
+			this.bufferPool = bufferPool;
+		}
+
+		@Override
+		public StorageBinaryDataBufferPool bufferPool()
+		{
+			return this.bufferPool;
+		}
+
+		@Override
+		public ByteBuffer deserialize(final String topic, final byte[] data)
+		{
+			return data == null
+				? null
+				: this.deserialize(topic, null, ByteBuffer.wrap(data))
+			;
+		}
+
+		@Override
+		public ByteBuffer deserialize(final String topic, final Headers headers, final ByteBuffer data)
+		{
+			if(data == null)
+			{
+				return null;
+			}
+
+			final ByteBuffer buffer = this.bufferPool.acquire(data.remaining());
+			buffer.put(data.duplicate());
+			buffer.flip();
+
+			return buffer;
+		}
+
+	}
+
+}
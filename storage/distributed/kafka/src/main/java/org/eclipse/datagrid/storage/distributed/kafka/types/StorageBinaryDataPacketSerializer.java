@@ -0,0 +1,87 @@
+package org.eclipse.datagrid.storage.distributed.kafka.types;
+
+/*-
+ * #%L
+ * Eclipse DataGrid Storage Distributed Kafka
+ * %%
+ * Copyright (C) 2025 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import static org.eclipse.serializer.math.XMath.positive;
+
+import java.nio.ByteBuffer;
+
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Serializes a packet, given as slices of the channel chunk buffers, directly into the
+ * record value handed to the producer.
+ * <p>
+ * The producer copies the serialized value into its own batch buffers before
+ * {@link org.apache.kafka.clients.producer.KafkaProducer#send} returns, so the transfer array
+ * for full-size packets is reused instead of allocating a new one per packet.
+ * Because of that an instance must only be used by one sending thread at a time.
+ */
+public interface StorageBinaryDataPacketSerializer extends Serializer<ByteBuffer[]>
+{
+	@Override
+	public byte[] serialize(String topic, ByteBuffer[] segments);
+
+
+	public static StorageBinaryDataPacketSerializer New(final int maxPacketSize)
+	{
+		return new StorageBinaryDataPacketSerializer.Default(
+			positive(maxPacketSize)
+		);
+	}
+
+
+	public static class Default implements StorageBinaryDataPacketSerializer
+	{
+		private final byte[] fullPacket;
+
+		Default(final int maxPacketSize)
+		{
+			super();
+			this.fullPacket = new byte[maxPacketSize];
+		}
+
+		@Override
+		public byte[] serialize(final String topic, final ByteBuffer[] segments)
+		{
+			if(segments == null)
+			{
+				return null;
+			}
+
+			int length = 0;
+			for(final ByteBuffer segment : segments)
+			{
+				length += segment.remaining();
+			}
+
+			final byte[] value = length == this.fullPacket.length
+				? this.fullPacket
+				: new byte[length]
+			;
+			int offset = 0;
+			for(final ByteBuffer segment : segments)
+			{
+				final int segmentLength = segment.remaining();
+				segment.get(value, offset, segmentLength);
+				offset += segmentLength;
+			}
+
+			return value;
+		}
+
+	}
+
+}
@@ -14,12 +14,16 @@ package org.eclipse.datagrid.storage.distributed.kafka.types;
  * #L%
  */
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 
 import org.apache.kafka.common.header.Headers;
 
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataCodec;
 import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataMessage.MessageType;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataPacketHeader;
 
 final class StorageBinaryDistributedKafka
 {
@@ -53,18 +57,51 @@ final class StorageBinaryDistributedKafka
 		return StandardCharsets.UTF_8;
 	}
 	
-	final static void addPacketHeaders(
-		final Headers     headers    ,
-		final MessageType messageType,
-		final int         messageLength,
-		final int         packetIndex,
-		final int         packetCount
+	/**
+	 * Creates the binary envelope, which is sent as first segment of each packet.
+	 * Each message is a commit of its own.
+	 */
+	final static ByteBuffer packetHeader(
+		final MessageType            messageType    ,
+		final int                    messageLength  ,
+		final int                    packetIndex    ,
+		final int                    packetCount    ,
+		final StorageBinaryDataCodec codec          ,
+		final int                    packetChecksum ,
+		final int                    messageChecksum,
+		final long                   messageId      ,
+		final long                   fingerprint
 	)
 	{
-		headers.add(keyMessageType(),   serialize(messageType.name()));
-		headers.add(keyMessageLength(), serialize(messageLength));
-		headers.add(keyPacketIndex(),   serialize(packetIndex));
-		headers.add(keyPacketCount(),   serialize(packetCount));
+		final int        flags  = StorageBinaryDataPacketHeader.flagsCodec(codec);
+		final ByteBuffer header = ByteBuffer.allocate(StorageBinaryDataPacketHeader.length())
+			.order(ByteOrder.LITTLE_ENDIAN)
+		;
+		StorageBinaryDataPacketHeader.write(
+			header         ,
+			messageType    ,
+			flags          ,
+			messageLength  ,
+			packetIndex    ,
+			packetCount    ,
+			-1L            ,
+			packetChecksum ,
+			messageChecksum,
+			messageId      ,
+			messageId      ,
+			0              ,
+			1              ,
+			fingerprint
+		);
+		return header.flip();
+	}
+	
+	/*
+	 * Former versions sent the packet fields as separate record headers instead of the binary envelope.
+	 */
+	final static boolean hasLegacyHeaders(final Headers headers)
+	{
+		return headers.lastHeader(keyMessageType()) != null;
 	}
 	
 	final static MessageType messageType(final Headers headers)
@@ -99,17 +136,6 @@ final class StorageBinaryDistributedKafka
 		return new String(bytes, charset());
 	}
 	
-	final static byte[] serialize(final int value)
-	{
-		return new byte[]
-		{
-            (byte)(value >>> 24),
-            (byte)(value >>> 16),
-            (byte)(value >>>  8),
-            (byte) value
-		};
-	}
-	
 	final static int deserializeInt(final byte[] bytes)
 	{
 		int value = 0;
@@ -0,0 +1,167 @@
+package org.eclipse.datagrid.storage.distributed.loopback.types;
+
+/*-
+ * #%L
+ * Eclipse DataGrid Storage Distributed Loopback
+ * %%
+ * Copyright (C) 2025 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import static org.eclipse.serializer.util.X.notNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.serializer.util.logging.Logging;
+import org.slf4j.Logger;
+
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataClient;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataPacket;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataPacketAcceptor;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataReceiver;
+
+
+/**
+ * Receives the data of a {@link StorageBinaryDataDistributorLoopback} in the same JVM through its own ring.
+ */
+public interface StorageBinaryDataClientLoopback extends StorageBinaryDataClient
+{
+	/**
+	 * @return the failure of the acceptor the client has stopped with, or <code>null</code>
+	 */
+	public RuntimeException failure();
+	
+	
+	public static StorageBinaryDataClientLoopback New(
+		final StorageBinaryDataDistributorLoopback distributor,
+		final StorageBinaryDataReceiver            receiver
+	)
+	{
+		return New(
+			distributor                                  ,
+			StorageBinaryDataPacketAcceptor.New(receiver)
+		);
+	}
+	
+	public static StorageBinaryDataClientLoopback New(
+		final StorageBinaryDataDistributorLoopback distributor   ,
+		final StorageBinaryDataPacketAcceptor      packetAcceptor
+	)
+	{
+		return New(
+			distributor                           ,
+			packetAcceptor                        ,
+			StorageBinaryDataRing.defaultCapacity()
+		);
+	}
+	
+	/**
+	 * @param ringCapacity maximum amount of messages waiting for their import, the distributor waits when exceeded
+	 */
+	public static StorageBinaryDataClientLoopback New(
+		final StorageBinaryDataDistributorLoopback distributor   ,
+		final StorageBinaryDataPacketAcceptor      packetAcceptor,
+		final int                                  ringCapacity
+	)
+	{
+		return new StorageBinaryDataClientLoopback.Default(
+			notNull(distributor   ),
+			notNull(packetAcceptor),
+			StorageBinaryDataRing.New(ringCapacity)
+		);
+	}
+	
+	
+	/*
+	 * All messages waiting in the ring are accepted at once, so the receiver imports them together.
+	 * The client stops at the first failure, since importing the following messages would leave a gap.
+	 */
+	public static class Default implements StorageBinaryDataClientLoopback
+	{
+		private final static Logger logger = Logging.getLogger(StorageBinaryDataClientLoopback.class);
+		
+		private final StorageBinaryDataDistributorLoopback           distributor   ;
+		private final StorageBinaryDataPacketAcceptor                packetAcceptor;
+		private final StorageBinaryDataRing<StorageBinaryDataPacket> ring          ;
+		private final AtomicBoolean                                  active        = new AtomicBoolean();
+		private volatile RuntimeException                            failure       ;
+		
+		Default(
+			final StorageBinaryDataDistributorLoopback           distributor   ,
+			final StorageBinaryDataPacketAcceptor                packetAcceptor,
+			final StorageBinaryDataRing<StorageBinaryDataPacket> ring
+		)
+		{
+			super();
+			this.distributor    = distributor   ;
+			this.packetAcceptor = packetAcceptor;
+			this.ring           = ring          ;
+		}
+		
+		@Override
+		public RuntimeException failure()
+		{
+			return this.failure;
+		}
+		
+		@Override
+		public void start()
+		{
+			this.active.set(true);
+			
+			final Thread thread = new Thread(this::run, "StorageDistributor-LoopbackClient");
+			thread.setDaemon(true);
+			thread.start();
+			
+			// the type dictionary may exceed the ring's capacity, so it is connected after the consumer has started
+			this.distributor.connect(this.ring);
+		}
+		
+		private void run()
+		{
+			final List<StorageBinaryDataPacket> packets   = new ArrayList<>();
+			int                                 idleCount = 0;
+			while(this.active.get())
+			{
+				if(this.ring.drain(packets::add, this.ring.capacity()) == 0)
+				{
+					idleCount = StorageBinaryDataRing.idle(idleCount);
+					continue;
+				}
+				idleCount = 0;
+				
+				try
+				{
+					this.packetAcceptor.accept(packets);
+				}
+				catch(final RuntimeException e)
+				{
+					logger.error("Accepting distributed data failed, stopping", e);
+					this.failure = e;
+					this.dispose();
+				}
+				packets.clear();
+			}
+			
+			// disconnected, so nothing is put into the ring anymore
+			this.ring.drain(StorageBinaryDataPacket::dispose, this.ring.capacity());
+		}
+		
+		@Override
+		public void dispose()
+		{
+			this.distributor.disconnect(this.ring);
+			this.active.set(false);
+		}
+		
+	}
+	
+}
@@ -0,0 +1,338 @@
+package org.eclipse.datagrid.storage.distributed.loopback.types;
+
+/*-
+ * #%L
+ * Eclipse DataGrid Storage Distributed Loopback
+ * %%
+ * Copyright (C) 2025 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import static org.eclipse.serializer.util.X.notNull;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.serializer.persistence.binary.types.Binary;
+
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataBufferPool;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataBufferRelease;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataChecksum;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataDistributor;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataMessage.MessageType;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataPacket;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataPacketHeader;
+import org.eclipse.datagrid.storage.distributed.types.StorageDistributionException;
+import org.eclipse.datagrid.storage.distributed.types.StorageTypeDictionaryFingerprint;
+
+
+/**
+ * Distributes the data to the rings of the {@link StorageBinaryDataClientLoopback}s in the same JVM,
+ * e.g. to run read replicas in the process of the primary storage, or to benchmark replication without a broker.
+ */
+public interface StorageBinaryDataDistributorLoopback extends StorageBinaryDataDistributor
+{
+	/**
+	 * Adds a ring all following messages are put into. The current type dictionary is put into it first,
+	 * so the ring's consumer can import the data of the storage it has been copied from.
+	 */
+	public void connect(StorageBinaryDataRing<StorageBinaryDataPacket> ring);
+	
+	/**
+	 * Removes the ring, no more messages are put into it once this method returns.
+	 */
+	public void disconnect(StorageBinaryDataRing<StorageBinaryDataPacket> ring);
+	
+	
+	public static StorageBinaryDataDistributorLoopback New()
+	{
+		return New(
+			StorageBinaryDataBufferPool.New()
+		);
+	}
+	
+	/**
+	 * @param bufferPool the pool the buffers of the distributed data are acquired from,
+	 *        they are released once all connected clients have imported it
+	 */
+	public static StorageBinaryDataDistributorLoopback New(final StorageBinaryDataBufferPool bufferPool)
+	{
+		return new StorageBinaryDataDistributorLoopback.Default(
+			notNull(bufferPool)
+		);
+	}
+	
+	
+	/*
+	 * Every message is copied once into a single packet behind its header, since the channel chunk buffers are reused
+	 * as soon as the store call returns. All rings get their own packet of the same copy,
+	 * since the receivers move the position of the packet buffers.
+	 * The rings are filled while the distributor is locked, so each one has a single producer.
+	 */
+	public static class Default implements StorageBinaryDataDistributorLoopback
+	{
+		private final StorageBinaryDataBufferPool                          bufferPool               ;
+		private final List<StorageBinaryDataRing<StorageBinaryDataPacket>> rings                    = new CopyOnWriteArrayList<>();
+		// the last complete type dictionary and the deltas after it, for rings connected later on
+		private final List<ByteBuffer>                                     typeDictionaryMessages   = new ArrayList<>();
+		// seeded with the time, so ids of a restarted distributor don't collide with incomplete messages of before
+		private       long                                                 messageId                = System.currentTimeMillis() * 1000;
+		private       long                                                 typeDictionaryFingerprint = StorageTypeDictionaryFingerprint.none();
+		
+		Default(final StorageBinaryDataBufferPool bufferPool)
+		{
+			super();
+			this.bufferPool = bufferPool;
+		}
+		
+		@Override
+		public synchronized void connect(final StorageBinaryDataRing<StorageBinaryDataPacket> ring)
+		{
+			notNull(ring);
+			for(final ByteBuffer message : this.typeDictionaryMessages)
+			{
+				ring.put(StorageBinaryDataPacket.New(message.duplicate()));
+			}
+			this.rings.add(ring);
+		}
+		
+		@Override
+		public void disconnect(final StorageBinaryDataRing<StorageBinaryDataPacket> ring)
+		{
+			// releases a producer waiting for it before the lock is acquired
+			ring.close();
+			synchronized(this)
+			{
+				this.rings.remove(ring);
+			}
+		}
+		
+		private synchronized long distribute(final MessageType messageType, final ByteBuffer[] buffers)
+		{
+			final long messageId = ++this.messageId;
+			if(messageType == MessageType.DATA)
+			{
+				if(!this.rings.isEmpty())
+				{
+					this.distributeData(messageId, buffers);
+				}
+				return messageId;
+			}
+			
+			final ByteBuffer message = ByteBuffer.allocateDirect(StorageBinaryDataPacketHeader.length() + size(buffers));
+			final ByteBuffer data    = copy(buffers, message);
+			this.updateTypeDictionary(messageType, data);
+			this.writeHeader(message, messageType, messageId, data);
+			this.typeDictionaryMessages.add(message);
+			for(final StorageBinaryDataRing<StorageBinaryDataPacket> ring : this.rings)
+			{
+				// garbage collected, deltas are small and complete type dictionaries rare
+				ring.put(StorageBinaryDataPacket.New(message.duplicate()));
+			}
+			
+			return messageId;
+		}
+		
+		private void updateTypeDictionary(final MessageType messageType, final ByteBuffer data)
+		{
+			if(messageType == MessageType.TYPE_DICTIONARY)
+			{
+				this.typeDictionaryMessages.clear();
+				this.typeDictionaryFingerprint = StorageTypeDictionaryFingerprint.of(data);
+			}
+			else
+			{
+				this.typeDictionaryFingerprint = StorageTypeDictionaryFingerprint.chain(
+					this.typeDictionaryFingerprint,
+					data
+				);
+			}
+		}
+		
+		private void distributeData(final long messageId, final ByteBuffer[] buffers)
+		{
+			final ByteBuffer message = this.bufferPool.acquire(StorageBinaryDataPacketHeader.length() + size(buffers));
+			this.writeHeader(message, MessageType.DATA, messageId, copy(buffers, message));
+			
+			final SharedRelease release = new SharedRelease(this.bufferPool, message, this.rings.size());
+			for(final StorageBinaryDataRing<StorageBinaryDataPacket> ring : this.rings)
+			{
+				final StorageBinaryDataPacket packet = StorageBinaryDataPacket.New(message.duplicate(), release);
+				if(!ring.put(packet))
+				{
+					// disconnected meanwhile
+					packet.dispose();
+				}
+			}
+		}
+		
+		/*
+		 * A single packet message and commit, the message id doubles as commit id.
+		 */
+		private void writeHeader(
+			final ByteBuffer  message    ,
+			final MessageType messageType,
+			final long        messageId  ,
+			final ByteBuffer  data
+		)
+		{
+			final int checksum = StorageBinaryDataChecksum.compute(data);
+			StorageBinaryDataPacketHeader.write(
+				message.duplicate()           ,
+				messageType                   ,
+				0                             ,
+				data.remaining()              ,
+				0                             ,
+				1                             ,
+				-1L                           ,
+				checksum                      ,
+				checksum                      ,
+				messageId                     ,
+				messageId                     ,
+				0                             ,
+				1                             ,
+				this.typeDictionaryFingerprint
+			);
+		}
+		
+		private static int size(final ByteBuffer[] buffers)
+		{
+			long size = 0;
+			for(final ByteBuffer buffer : buffers)
+			{
+				size += buffer.remaining();
+			}
+			if(size > Integer.MAX_VALUE)
+			{
+				throw new StorageDistributionException("Message too big: " + size + " bytes");
+			}
+			
+			return (int)size;
+		}
+		
+		/*
+		 * Copies the data behind the space for the header of the message, the returned view contains only the data.
+		 */
+		private static ByteBuffer copy(final ByteBuffer[] buffers, final ByteBuffer message)
+		{
+			message.position(StorageBinaryDataPacketHeader.length());
+			for(final ByteBuffer buffer : buffers)
+			{
+				message.put(buffer);
+			}
+			message.flip();
+			
+			return message.duplicate().position(StorageBinaryDataPacketHeader.length());
+		}
+		
+		/*
+		 * Duplicates, so the positions of the channel chunk buffers are left untouched.
+		 */
+		private static ByteBuffer[] allBuffers(final Binary data)
+		{
+			final List<ByteBuffer> list = new ArrayList<>();
+			data.iterateChannelChunks(channelChunk ->
+			{
+				for(final ByteBuffer buffer : channelChunk.buffers())
+				{
+					list.add(buffer.duplicate());
+				}
+			});
+			
+			return list.toArray(ByteBuffer[]::new);
+		}
+		
+		@Override
+		public void distributeData(final Binary data)
+		{
+			this.distribute(MessageType.DATA, allBuffers(data));
+		}
+		
+		/**
+		 * The returned stage is already completed, with the id of the message,
+		 * since the data is in the rings of all connected clients once the call returns.
+		 */
+		@Override
+		public CompletionStage<Long> distributeDataAsync(final Binary data)
+		{
+			return CompletableFuture.completedFuture(
+				this.distribute(MessageType.DATA, allBuffers(data))
+			);
+		}
+		
+		@Override
+		public void distributeTypeDictionary(final String typeDictionaryData)
+		{
+			this.distribute(
+				MessageType.TYPE_DICTIONARY,
+				new ByteBuffer[] { ByteBuffer.wrap(typeDictionaryData.getBytes(StandardCharsets.UTF_8)) }
+			);
+		}
+		
+		@Override
+		public boolean supportsTypeDictionaryDeltas()
+		{
+			return true;
+		}
+		
+		@Override
+		public void distributeTypeDictionaryDelta(final ByteBuffer typeDictionaryDelta)
+		{
+			this.distribute(
+				MessageType.TYPE_DICTIONARY_DELTA,
+				new ByteBuffer[] { typeDictionaryDelta.duplicate() }
+			);
+		}
+		
+		@Override
+		public void dispose()
+		{
+			for(final StorageBinaryDataRing<StorageBinaryDataPacket> ring : this.rings)
+			{
+				this.disconnect(ring);
+			}
+		}
+		
+		
+		/*
+		 * Releases the shared buffer once the packets of all rings have been disposed.
+		 */
+		private static final class SharedRelease implements StorageBinaryDataBufferRelease
+		{
+			private final StorageBinaryDataBufferPool bufferPool;
+			private final ByteBuffer                  buffer    ;
+			private final AtomicInteger               references;
+			
+			SharedRelease(final StorageBinaryDataBufferPool bufferPool, final ByteBuffer buffer, final int references)
+			{
+				super();
+				this.bufferPool = bufferPool;
+				this.buffer     = buffer    ;
+				this.references = new AtomicInteger(references);
+			}
+			
+			@Override
+			public void release(final ByteBuffer buffer)
+			{
+				if(this.references.decrementAndGet() == 0)
+				{
+					this.bufferPool.release(this.buffer);
+				}
+			}
+		}
+		
+	}
+	
+}
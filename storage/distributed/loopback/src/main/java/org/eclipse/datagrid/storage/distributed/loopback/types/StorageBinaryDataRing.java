@@ -0,0 +1,220 @@
+package org.eclipse.datagrid.storage.distributed.loopback.types;
+
+/*-
+ * #%L
+ * Eclipse DataGrid Storage Distributed Loopback
+ * %%
+ * Copyright (C) 2025 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import static org.eclipse.serializer.math.XMath.positive;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import org.eclipse.datagrid.storage.distributed.types.StorageDistributionException;
+
+/**
+ * Bounded, lock-free ring buffer with a single producer and a single consumer thread.
+ * Producers of several threads have to be serialized by the caller.
+ */
+public interface StorageBinaryDataRing<E>
+{
+	/**
+	 * Adds the element without waiting.
+	 * 
+	 * @return if the element has been added, <code>false</code> if the ring is full
+	 */
+	public boolean offer(E element);
+	
+	/**
+	 * Adds the element, waiting while the ring is full.
+	 * 
+	 * @return if the element has been added, <code>false</code> if the ring has been closed
+	 */
+	public boolean put(E element);
+	
+	/**
+	 * Removes up to <code>maximum</code> elements in the order they were added and passes them to the target.
+	 * 
+	 * @return the amount of removed elements
+	 */
+	public int drain(Consumer<? super E> target, int maximum);
+	
+	public int capacity();
+	
+	/**
+	 * Releases a producer waiting in {@link #put(Object)}, no more elements are added afterwards.
+	 * The elements already contained can still be drained.
+	 */
+	public void close();
+	
+	public boolean isClosed();
+	
+	
+	public static int defaultCapacity()
+	{
+		return 1024;
+	}
+	
+	/**
+	 * Waits a bit, the longer the calling thread has been idle already:
+	 * it spins at first, then yields and finally parks for a short time.
+	 * 
+	 * @param idleCount how often the thread has been idle in a row
+	 * @return the incremented idle count
+	 */
+	public static int idle(final int idleCount)
+	{
+		if(idleCount < 100)
+		{
+			Thread.onSpinWait();
+		}
+		else if(idleCount < 200)
+		{
+			Thread.yield();
+		}
+		else
+		{
+			LockSupport.parkNanos(50_000L);
+		}
+		
+		return idleCount < Integer.MAX_VALUE ? idleCount + 1 : idleCount;
+	}
+	
+	public static <E> StorageBinaryDataRing<E> New()
+	{
+		return New(defaultCapacity());
+	}
+	
+	/**
+	 * @param capacity the minimum amount of elements the ring can hold, rounded up to a power of two
+	 */
+	public static <E> StorageBinaryDataRing<E> New(final int capacity)
+	{
+		if(positive(capacity) > 1 << 30)
+		{
+			throw new StorageDistributionException("Ring capacity too big: " + capacity);
+		}
+		
+		return new StorageBinaryDataRing.Default<>(
+			capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1
+		);
+	}
+	
+	
+	/*
+	 * Head and tail are ever increasing, their difference is the amount of contained elements.
+	 * Each of them is only written by one side, which publishes the slots it is done with by a release store.
+	 * Both sides cache the last read index of the other side, so they only read it when the ring
+	 * seems to be full or empty respectively.
+	 */
+	public static class Default<E> implements StorageBinaryDataRing<E>
+	{
+		private final Object[]   elements  ;
+		private final int        mask      ;
+		// next index to be drained, written by the consumer
+		private final AtomicLong head      = new AtomicLong();
+		// next index to be added, written by the producer
+		private final AtomicLong tail      = new AtomicLong();
+		private       long       cachedHead;
+		private       long       cachedTail;
+		private volatile boolean closed    ;
+		
+		Default(final int capacity)
+		{
+			super();
+			this.elements = new Object[capacity];
+			this.mask     = this.elements.length - 1;
+		}
+		
+		@Override
+		public boolean offer(final E element)
+		{
+			final long tail = this.tail.getPlain();
+			if(tail - this.cachedHead >= this.elements.length)
+			{
+				this.cachedHead = this.head.getAcquire();
+				if(tail - this.cachedHead >= this.elements.length)
+				{
+					return false;
+				}
+			}
+			
+			this.elements[(int)tail & this.mask] = element;
+			this.tail.setRelease(tail + 1);
+			
+			return true;
+		}
+		
+		@Override
+		public boolean put(final E element)
+		{
+			int idleCount = 0;
+			while(!this.closed)
+			{
+				if(this.offer(element))
+				{
+					return true;
+				}
+				idleCount = StorageBinaryDataRing.idle(idleCount);
+			}
+			
+			return false;
+		}
+		
+		@SuppressWarnings("unchecked")
+		@Override
+		public int drain(final Consumer<? super E> target, final int maximum)
+		{
+			final long head = this.head.getPlain();
+			if(this.cachedTail - head < maximum)
+			{
+				this.cachedTail = this.tail.getAcquire();
+			}
+			
+			final int count = (int)Math.min(maximum, this.cachedTail - head);
+			for(int i = 0; i < count; i++)
+			{
+				final int index   = (int)(head + i) & this.mask;
+				final E   element = (E)this.elements[index];
+				this.elements[index] = null;
+				target.accept(element);
+			}
+			if(count > 0)
+			{
+				this.head.setRelease(head + count);
+			}
+			
+			return count;
+		}
+		
+		@Override
+		public int capacity()
+		{
+			return this.elements.length;
+		}
+		
+		@Override
+		public void close()
+		{
+			this.closed = true;
+		}
+		
+		@Override
+		public boolean isClosed()
+		{
+			return this.closed;
+		}
+		
+	}
+	
+}
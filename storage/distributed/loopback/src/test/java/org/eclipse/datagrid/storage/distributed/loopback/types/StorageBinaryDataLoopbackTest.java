@@ -0,0 +1,233 @@
+package org.eclipse.datagrid.storage.distributed.loopback.types;
+
+/*-
+ * #%L
+ * Eclipse DataGrid Storage Distributed Loopback
+ * %%
+ * Copyright (C) 2025 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.eclipse.serializer.memory.XMemory;
+import org.eclipse.serializer.persistence.binary.types.Binary;
+import org.eclipse.serializer.persistence.binary.types.ChunksWrapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataBufferPool;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataPacketAcceptor;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataReceiver;
+
+class StorageBinaryDataLoopbackTest
+{
+	private static final long WAIT_MILLIS = 10_000L;
+
+	/*
+	 * Records everything received in order, as strings, data prefixed with "data:" and deltas with "delta:".
+	 * Consecutive data messages may be received in one call, with one buffer per message.
+	 */
+	static class RecordingReceiver implements StorageBinaryDataReceiver
+	{
+		final List<String> received = new ArrayList<>();
+
+		@Override
+		public synchronized void receiveData(final Binary data)
+		{
+			for(final ByteBuffer buffer : data.buffers())
+			{
+				this.received.add("data:" + new String(XMemory.toArray(buffer.duplicate())));
+			}
+		}
+
+		@Override
+		public synchronized void receiveTypeDictionary(final String typeDictionaryData)
+		{
+			this.received.add(typeDictionaryData);
+		}
+
+		@Override
+		public synchronized void receiveTypeDictionaryDelta(final ByteBuffer typeDictionaryDelta)
+		{
+			this.received.add("delta:" + new String(XMemory.toArray(typeDictionaryDelta.duplicate())));
+		}
+
+		synchronized List<String> received()
+		{
+			return new ArrayList<>(this.received);
+		}
+	}
+
+	/*
+	 * Counts the buffers which haven't been released yet.
+	 */
+	static final class CountingBufferPool implements StorageBinaryDataBufferPool
+	{
+		final StorageBinaryDataBufferPool delegate    = StorageBinaryDataBufferPool.Unpooled();
+		final AtomicInteger               outstanding = new AtomicInteger();
+
+		@Override
+		public ByteBuffer acquire(final int length)
+		{
+			this.outstanding.incrementAndGet();
+			return this.delegate.acquire(length);
+		}
+
+		@Override
+		public void release(final ByteBuffer buffer)
+		{
+			this.outstanding.decrementAndGet();
+			this.delegate.release(buffer);
+		}
+	}
+
+	private final List<StorageBinaryDataClientLoopback> clients = new ArrayList<>();
+
+	private StorageBinaryDataDistributorLoopback distributor;
+
+	@AfterEach
+	void dispose()
+	{
+		this.clients.forEach(StorageBinaryDataClientLoopback::dispose);
+		if(this.distributor != null)
+		{
+			this.distributor.dispose();
+		}
+	}
+
+	private StorageBinaryDataClientLoopback start(final StorageBinaryDataReceiver receiver)
+	{
+		final StorageBinaryDataClientLoopback client = StorageBinaryDataClientLoopback.New(
+			this.distributor                             ,
+			StorageBinaryDataPacketAcceptor.New(receiver),
+			4
+		);
+		this.clients.add(client);
+		client.start();
+
+		return client;
+	}
+
+	private static Binary data(final String... channels)
+	{
+		final ByteBuffer[] buffers = new ByteBuffer[channels.length];
+		for(int i = 0; i < channels.length; i++)
+		{
+			final byte[] bytes = channels[i].getBytes();
+			buffers[i] = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+		}
+
+		return ChunksWrapper.New(buffers);
+	}
+
+	private static ByteBuffer delta(final String content)
+	{
+		return ByteBuffer.wrap(content.getBytes());
+	}
+
+	private static void await(final BooleanSupplier condition) throws InterruptedException
+	{
+		final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(WAIT_MILLIS);
+		while(!condition.getAsBoolean())
+		{
+			assertTrue(System.nanoTime() < deadline, "timed out");
+			Thread.sleep(5);
+		}
+	}
+
+	@Test
+	void clientsReceiveAllMessagesInOrder() throws InterruptedException
+	{
+		final CountingBufferPool bufferPool = new CountingBufferPool();
+		this.distributor = StorageBinaryDataDistributorLoopback.New(bufferPool);
+
+		// nobody connected yet, only the type dictionary is kept for the clients
+		this.distributor.distributeTypeDictionary("typeDictionary");
+		this.distributor.distributeData(data("lost"));
+		this.distributor.distributeTypeDictionaryDelta(delta("first"));
+
+		final RecordingReceiver first = new RecordingReceiver();
+		this.start(first);
+		await(() -> first.received().size() == 2);
+
+		this.distributor.distributeData(data("a", "b"));
+		final RecordingReceiver second = new RecordingReceiver();
+		this.start(second);
+
+		// more messages than fit into the rings, so the distributor waits for the clients
+		final List<String> expected = new ArrayList<>();
+		for(int i = 0; i < 100; i++)
+		{
+			this.distributor.distributeData(data("message" + i));
+			expected.add("data:message" + i);
+			if(i == 50)
+			{
+				this.distributor.distributeTypeDictionaryDelta(delta("second"));
+				expected.add("delta:second");
+			}
+		}
+		// already in the rings, so the stage is completed right away
+		final Long messageId = this.distributor.distributeDataAsync(data("last")).toCompletableFuture().getNow(null);
+		assertNotNull(messageId);
+		expected.add("data:last");
+
+		final List<String> firstExpected = new ArrayList<>(Arrays.asList("typeDictionary", "delta:first", "data:ab"));
+		firstExpected.addAll(expected);
+		final List<String> secondExpected = new ArrayList<>(Arrays.asList("typeDictionary", "delta:first"));
+		secondExpected.addAll(expected);
+
+		await(() -> first.received().size() == firstExpected.size() && second.received().size() == secondExpected.size());
+		assertEquals(firstExpected , first.received());
+		assertEquals(secondExpected, second.received());
+
+		// the shared data buffers are released once both clients have imported them
+		await(() -> bufferPool.outstanding.get() == 0);
+	}
+
+	@Test
+	void clientStopsAtFailure() throws InterruptedException
+	{
+		this.distributor = StorageBinaryDataDistributorLoopback.New();
+		final RecordingReceiver receiver = new RecordingReceiver()
+		{
+			@Override
+			public synchronized void receiveData(final Binary data)
+			{
+				super.receiveData(data);
+				throw new IllegalStateException("import failed");
+			}
+		};
+		final StorageBinaryDataClientLoopback client = this.start(receiver);
+
+		this.distributor.distributeData(data("first"));
+		await(() -> client.failure() != null);
+		assertNotNull(client.failure());
+		assertEquals("import failed", client.failure().getMessage());
+
+		// disconnected, so following messages aren't received anymore and the distributor isn't blocked
+		for(int i = 0; i < 10; i++)
+		{
+			this.distributor.distributeData(data("after" + i));
+		}
+		assertArrayEquals(new Object[] {"data:first"}, receiver.received().toArray());
+	}
+
+}
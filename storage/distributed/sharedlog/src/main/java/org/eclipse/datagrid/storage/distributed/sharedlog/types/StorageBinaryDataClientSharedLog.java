@@ -0,0 +1,285 @@
+package org.eclipse.datagrid.storage.distributed.sharedlog.types;
+
+/*-
+ * #%L
+ * Eclipse DataGrid Storage Distributed Shared Log
+ * %%
+ * Copyright (C) 2025 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import static org.eclipse.serializer.util.X.notNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.serializer.util.logging.Logging;
+import org.slf4j.Logger;
+
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataClient;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataPacket;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataPacketAcceptor;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataPacketHeader;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataReceiver;
+import org.eclipse.datagrid.storage.distributed.types.StorageDistributionException;
+
+
+/**
+ * Tails a shared log written by a {@link StorageBinaryDataDistributorSharedLog} of another process on the same host.
+ * The packets are slices of the mapped segments, so their data is imported without being copied.
+ */
+public interface StorageBinaryDataClientSharedLog extends StorageBinaryDataClient
+{
+	/**
+	 * @return the log position behind the last accepted packet, to continue from after a restart,
+	 *         see {@link StorageBinaryDataSharedLog}
+	 */
+	public long position();
+	
+	/**
+	 * @return the failure the client has stopped with, or <code>null</code>
+	 */
+	public RuntimeException failure();
+	
+	
+	public static StorageBinaryDataClientSharedLog New(
+		final Path                      directory,
+		final StorageBinaryDataReceiver receiver
+	)
+	{
+		return New(
+			directory                                    ,
+			StorageBinaryDataPacketAcceptor.New(receiver)
+		);
+	}
+	
+	public static StorageBinaryDataClientSharedLog New(
+		final Path                            directory     ,
+		final StorageBinaryDataPacketAcceptor packetAcceptor
+	)
+	{
+		return New(
+			directory                           ,
+			packetAcceptor                      ,
+			StorageBinaryDataSharedLog.earliest()
+		);
+	}
+	
+	/**
+	 * @param startPosition the log position to start reading at, or {@link StorageBinaryDataSharedLog#earliest()}
+	 */
+	public static StorageBinaryDataClientSharedLog New(
+		final Path                            directory     ,
+		final StorageBinaryDataPacketAcceptor packetAcceptor,
+		final long                            startPosition
+	)
+	{
+		return new StorageBinaryDataClientSharedLog.Default(
+			notNull(directory     ),
+			notNull(packetAcceptor),
+			startPosition
+		);
+	}
+	
+	
+	/*
+	 * All records published meanwhile are accepted at once, so the receiver imports them together.
+	 * The client stops at an invalid record, a failure of the acceptor or if the next segment has already
+	 * been deleted, since importing the following records would leave a gap. The position stays behind
+	 * the last accepted packet, so the importing storage can be resynchronized from there.
+	 */
+	public static class Default implements StorageBinaryDataClientSharedLog
+	{
+		private final static Logger logger = Logging.getLogger(StorageBinaryDataClientSharedLog.class);
+		
+		private final static int MAXIMUM_BATCH_SIZE = 1024;
+		
+		private final Path                            directory     ;
+		private final StorageBinaryDataPacketAcceptor packetAcceptor;
+		private final AtomicBoolean                   active        = new AtomicBoolean();
+		private volatile long                         position      ;
+		private volatile RuntimeException             failure       ;
+		private       MappedByteBuffer                segment       ;
+		private       long                            segmentIndex  ;
+		private       int                             offset        ;
+		
+		Default(
+			final Path                            directory     ,
+			final StorageBinaryDataPacketAcceptor packetAcceptor,
+			final long                            startPosition
+		)
+		{
+			super();
+			this.directory      = directory     ;
+			this.packetAcceptor = packetAcceptor;
+			this.position       = startPosition ;
+		}
+		
+		@Override
+		public long position()
+		{
+			return this.position;
+		}
+		
+		@Override
+		public RuntimeException failure()
+		{
+			return this.failure;
+		}
+		
+		@Override
+		public void start()
+		{
+			this.active.set(true);
+			
+			final Thread thread = new Thread(this::run, "StorageDistributor-SharedLogClient");
+			thread.setDaemon(true);
+			thread.start();
+		}
+		
+		private void run()
+		{
+			if(this.position == StorageBinaryDataSharedLog.earliest())
+			{
+				this.segmentIndex = -1;
+			}
+			else
+			{
+				this.segmentIndex = StorageBinaryDataSharedLog.segmentIndex(this.position);
+				this.offset       = StorageBinaryDataSharedLog.offset(this.position);
+			}
+			
+			final List<StorageBinaryDataPacket> packets   = new ArrayList<>();
+			int                                 idleCount = 0;
+			try
+			{
+				while(this.active.get())
+				{
+					if(this.segment == null && !this.mapSegment() || !this.read(packets))
+					{
+						idleCount = StorageBinaryDataSharedLog.idle(idleCount);
+						continue;
+					}
+					idleCount = 0;
+					
+					this.packetAcceptor.accept(packets);
+					packets.clear();
+					this.position = StorageBinaryDataSharedLog.position(this.segmentIndex, this.offset);
+				}
+			}
+			catch(final RuntimeException e)
+			{
+				logger.error("Reading the shared log failed at " + Long.toHexString(this.position) + ", stopping", e);
+				this.failure = e;
+				this.active.set(false);
+			}
+		}
+		
+		/*
+		 * Returns if packets have been read.
+		 */
+		private boolean read(final List<StorageBinaryDataPacket> packets)
+		{
+			while(packets.size() < MAXIMUM_BATCH_SIZE)
+			{
+				final int recordLength = StorageBinaryDataSharedLog.recordLength(this.segment, this.offset);
+				if(recordLength == 0)
+				{
+					break;
+				}
+				if(recordLength == StorageBinaryDataSharedLog.endOfSegment())
+				{
+					this.segment = null;
+					this.segmentIndex++;
+					this.offset = 0;
+					break;
+				}
+				
+				final int packetStart = this.offset + StorageBinaryDataSharedLog.recordHeaderLength();
+				final int packetEnd   = packetStart + StorageBinaryDataSharedLog.packetLength(this.segment, this.offset);
+				try
+				{
+					// a bogus length is rejected by the buffer as well
+					final ByteBuffer packet = this.segment.duplicate();
+					packet.limit(packetEnd).position(packetStart);
+					packets.add(createDataPacket(packet));
+				}
+				catch(final RuntimeException e)
+				{
+					throw new StorageDistributionException("Invalid record of shared log segment " + this.segmentIndex + " at " + this.offset, e);
+				}
+				this.offset += recordLength;
+			}
+			
+			return !packets.isEmpty();
+		}
+		
+		private static StorageBinaryDataPacket createDataPacket(final ByteBuffer value)
+		{
+			StorageBinaryDataPacketHeader.validate(value);
+			return StorageBinaryDataPacket.New(value);
+		}
+		
+		/*
+		 * Returns if the current segment is mapped, it doesn't exist yet if the reader is ahead of the distributor.
+		 */
+		private boolean mapSegment()
+		{
+			final long[] segmentIndexes = StorageBinaryDataSharedLog.segmentIndexes(this.directory);
+			if(segmentIndexes.length == 0)
+			{
+				return false;
+			}
+			if(this.segmentIndex < segmentIndexes[0])
+			{
+				if(this.segmentIndex >= 0)
+				{
+					throw new StorageDistributionException(
+						"Shared log segment " + this.segmentIndex + " has already been deleted, the oldest one is "
+						+ segmentIndexes[0]
+					);
+				}
+				this.segmentIndex = segmentIndexes[0];
+				this.offset       = 0;
+			}
+			
+			final Path file = StorageBinaryDataSharedLog.segmentFile(this.directory, this.segmentIndex);
+			try(final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+			{
+				// the mapping stays valid after the channel is closed, even if the file is deleted
+				this.segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				return true;
+			}
+			catch(final NoSuchFileException e)
+			{
+				return false;
+			}
+			catch(final IOException e)
+			{
+				throw new StorageDistributionException("Mapping of shared log segment failed: " + file, e);
+			}
+		}
+		
+		@Override
+		public void dispose()
+		{
+			this.active.set(false);
+		}
+		
+	}
+	
+}
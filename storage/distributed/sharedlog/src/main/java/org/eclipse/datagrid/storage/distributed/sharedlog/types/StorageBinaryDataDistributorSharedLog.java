@@ -0,0 +1,489 @@
+package org.eclipse.datagrid.storage.distributed.sharedlog.types;
+
+/*-
+ * #%L
+ * Eclipse DataGrid Storage Distributed Shared Log
+ * %%
+ * Copyright (C) 2025 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import static org.eclipse.serializer.math.XMath.positive;
+import static org.eclipse.serializer.util.X.notNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.zip.CRC32C;
+
+import org.eclipse.serializer.persistence.binary.types.Binary;
+import org.eclipse.serializer.util.logging.Logging;
+import org.slf4j.Logger;
+
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataChecksum;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataDistributor;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataMessage.MessageType;
+import org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataPacketHeader;
+import org.eclipse.datagrid.storage.distributed.types.StorageDistributionException;
+import org.eclipse.datagrid.storage.distributed.types.StorageTypeDictionaryFingerprint;
+
+
+/**
+ * Appends the distributed data to a memory-mapped shared log on the local disk, see {@link StorageBinaryDataSharedLog},
+ * which {@link StorageBinaryDataClientSharedLog}s of other processes on the same host tail.
+ * Only one distributor may write to a log at a time.
+ */
+public interface StorageBinaryDataDistributorSharedLog extends StorageBinaryDataDistributor
+{
+	public static StorageBinaryDataDistributorSharedLog New(final Path directory)
+	{
+		return New(
+			directory                                            ,
+			StorageBinaryDataSharedLog.defaultSegmentSize()      ,
+			StorageBinaryDataSharedLog.defaultMaximumSegments()
+		);
+	}
+	
+	/**
+	 * @param segmentSize the size of the segment files in bytes
+	 * @param maximumSegments the amount of segments kept, older ones are deleted
+	 */
+	public static StorageBinaryDataDistributorSharedLog New(
+		final Path directory      ,
+		final int  segmentSize    ,
+		final int  maximumSegments
+	)
+	{
+		if(positive(segmentSize) < StorageBinaryDataSharedLog.minimumSegmentSize()
+		|| segmentSize > StorageBinaryDataSharedLog.maximumSegmentSize()
+		)
+		{
+			throw new StorageDistributionException("Invalid shared log segment size: " + segmentSize);
+		}
+		
+		return new StorageBinaryDataDistributorSharedLog.Default(
+			notNull (directory      ),
+			StorageBinaryDataSharedLog.align(segmentSize),
+			positive(maximumSegments)
+		);
+	}
+	
+	
+	/*
+	 * Records are written in place into the mapped segment and published afterwards,
+	 * so readers never see partially written packets. Every message is a commit on its own,
+	 * its id doubles as commit id. New segments are created under a temporary name and renamed
+	 * once they are mapped with their full size.
+	 * Each new segment starts with the current type dictionary, so readers starting with the
+	 * oldest segment can import the data, even if the segment of the type dictionary has been deleted.
+	 */
+	public static class Default implements StorageBinaryDataDistributorSharedLog
+	{
+		private final static Logger logger = Logging.getLogger(StorageBinaryDataDistributorSharedLog.class);
+		
+		private final Path             directory              ;
+		private final int              segmentSize            ;
+		private final int              maximumSegments        ;
+		private final int              maximumPacketSize      ;
+		// the last complete type dictionary and the deltas after it, repeated at the start of each segment
+		private final List<Message>    typeDictionaryMessages = new ArrayList<>();
+		private       MappedByteBuffer segment                ;
+		private       long             segmentIndex           ;
+		private       int              offset                 ;
+		// seeded with the time, so ids of a restarted distributor don't collide with incomplete messages of before
+		private       long             messageId              = System.currentTimeMillis() * 1000;
+		private       long             typeDictionaryFingerprint = StorageTypeDictionaryFingerprint.none();
+		
+		Default(
+			final Path directory      ,
+			final int  segmentSize    ,
+			final int  maximumSegments
+		)
+		{
+			super();
+			this.directory         = directory      ;
+			this.segmentSize       = segmentSize    ;
+			this.maximumSegments   = maximumSegments;
+			this.maximumPacketSize = StorageBinaryDataSharedLog.maximumPacketSize(segmentSize);
+		}
+		
+		private synchronized long distribute(final MessageType messageType, final ByteBuffer[] buffers)
+		{
+			this.ensureSegment();
+			if(messageType == MessageType.TYPE_DICTIONARY)
+			{
+				this.typeDictionaryMessages.clear();
+				this.typeDictionaryFingerprint = StorageTypeDictionaryFingerprint.of(buffers);
+			}
+			else if(messageType == MessageType.TYPE_DICTIONARY_DELTA)
+			{
+				this.typeDictionaryFingerprint = StorageTypeDictionaryFingerprint.chain(
+					this.typeDictionaryFingerprint,
+					buffers
+				);
+			}
+			if(messageType == MessageType.DATA)
+			{
+				return this.append(messageType, buffers, true);
+			}
+			
+			// added afterwards, so it isn't replayed into a new segment started by the append itself
+			final ByteBuffer data     = copy(buffers);
+			final long       position = this.append(messageType, buffers, true);
+			this.typeDictionaryMessages.add(new Message(messageType, data));
+			
+			return position;
+		}
+		
+		/*
+		 * The buffers are consumed, so they have to be duplicates.
+		 * Returns the position behind the last written record.
+		 */
+		private long append(final MessageType messageType, final ByteBuffer[] buffers, final boolean replay)
+		{
+			final long   messageLength   = size(buffers);
+			final CRC32C messageChecksum = new CRC32C();
+			for(final ByteBuffer buffer : buffers)
+			{
+				StorageBinaryDataChecksum.update(messageChecksum, buffer);
+			}
+			final long messageId   = ++this.messageId;
+			final int  packetCount = (int)Math.max(1, (messageLength + this.maximumPacketSize - 1) / this.maximumPacketSize);
+			
+			int bufferIndex = 0;
+			for(int packetIndex = 0; packetIndex < packetCount; packetIndex++)
+			{
+				final int packetSize   = (int)Math.min(this.maximumPacketSize, messageLength - (long)packetIndex * this.maximumPacketSize);
+				final int packetLength = StorageBinaryDataPacketHeader.length() + packetSize;
+				final int recordLength = StorageBinaryDataSharedLog.align(
+					StorageBinaryDataSharedLog.recordHeaderLength() + packetLength
+				);
+				this.ensureSpace(recordLength, replay);
+				
+				final int        packetStart = this.offset + StorageBinaryDataSharedLog.recordHeaderLength();
+				final int        dataStart   = packetStart + StorageBinaryDataPacketHeader.length();
+				final ByteBuffer data        = this.segment.duplicate();
+				data.limit(dataStart + packetSize).position(dataStart);
+				bufferIndex = fill(buffers, bufferIndex, data);
+				data.position(dataStart);
+				
+				StorageBinaryDataPacketHeader.write(
+					this.segment.duplicate().position(packetStart),
+					messageType                                   ,
+					0                                             ,
+					(int)messageLength                            ,
+					packetIndex                                   ,
+					packetCount                                   ,
+					StorageBinaryDataSharedLog.position(this.segmentIndex, this.offset),
+					StorageBinaryDataChecksum.compute(data)       ,
+					(int)messageChecksum.getValue()               ,
+					messageId                                     ,
+					messageId                                     ,
+					0                                             ,
+					1                                             ,
+					this.typeDictionaryFingerprint
+				);
+				StorageBinaryDataSharedLog.publish(this.segment, this.offset, recordLength, packetLength);
+				this.offset += recordLength;
+			}
+			
+			return StorageBinaryDataSharedLog.position(this.segmentIndex, this.offset);
+		}
+		
+		/*
+		 * Copies from the buffers until the target is full, returns the index of the first buffer with remaining data.
+		 */
+		private static int fill(final ByteBuffer[] buffers, final int bufferIndex, final ByteBuffer target)
+		{
+			int index = bufferIndex;
+			while(target.hasRemaining())
+			{
+				final ByteBuffer buffer = buffers[index];
+				if(buffer.remaining() <= target.remaining())
+				{
+					target.put(buffer);
+					index++;
+					continue;
+				}
+				
+				final int limit = buffer.limit();
+				buffer.limit(buffer.position() + target.remaining());
+				target.put(buffer);
+				buffer.limit(limit);
+			}
+			
+			return index;
+		}
+		
+		/*
+		 * A record always fits into an empty segment, since packets are limited to a quarter of the segment size.
+		 * Only if the repeated type dictionary nearly fills a segment, the record is written into the following one.
+		 */
+		private void ensureSpace(final int recordLength, final boolean replay)
+		{
+			if(this.fits(recordLength))
+			{
+				return;
+			}
+			
+			this.nextSegment();
+			if(replay)
+			{
+				for(final Message message : this.typeDictionaryMessages)
+				{
+					this.append(message.type, new ByteBuffer[] { message.data.duplicate() }, false);
+				}
+				if(!this.fits(recordLength))
+				{
+					this.nextSegment();
+				}
+			}
+		}
+		
+		private boolean fits(final int recordLength)
+		{
+			// the end of segment marker has to fit behind the record
+			return this.offset + recordLength + StorageBinaryDataSharedLog.recordHeaderLength() <= this.segment.capacity();
+		}
+		
+		private void nextSegment()
+		{
+			StorageBinaryDataSharedLog.publish(this.segment, this.offset, StorageBinaryDataSharedLog.endOfSegment(), 0);
+			this.createSegment(this.segmentIndex + 1);
+		}
+		
+		/*
+		 * Continues with a new segment behind the last one of an existing log. The rest of the last segment
+		 * may contain stale bytes after a crash, so it is terminated behind its last valid record.
+		 */
+		private void ensureSegment()
+		{
+			if(this.segment != null)
+			{
+				return;
+			}
+			
+			final long[] segmentIndexes = StorageBinaryDataSharedLog.segmentIndexes(this.directory);
+			if(segmentIndexes.length == 0)
+			{
+				this.createSegment(0);
+				return;
+			}
+			
+			final long lastIndex = segmentIndexes[segmentIndexes.length - 1];
+			final Path file      = StorageBinaryDataSharedLog.segmentFile(this.directory, lastIndex);
+			try(final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE))
+			{
+				this.segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+			}
+			catch(final IOException e)
+			{
+				throw new StorageDistributionException("Mapping of shared log segment failed: " + file, e);
+			}
+			this.segmentIndex = lastIndex;
+			this.offset       = 0;
+			
+			int recordLength;
+			while(this.fits(0)
+				&& (recordLength = StorageBinaryDataSharedLog.recordLength(this.segment, this.offset)) != 0
+				&& recordLength != StorageBinaryDataSharedLog.endOfSegment()
+			)
+			{
+				if(recordLength < StorageBinaryDataSharedLog.recordHeaderLength()
+				|| recordLength != StorageBinaryDataSharedLog.align(recordLength)
+				|| !this.fits(recordLength)
+				)
+				{
+					logger.warn("Invalid record in shared log segment {} at {}, terminating it there", lastIndex, this.offset);
+					break;
+				}
+				this.offset += recordLength;
+			}
+			if(this.fits(0))
+			{
+				StorageBinaryDataSharedLog.publish(this.segment, this.offset, StorageBinaryDataSharedLog.endOfSegment(), 0);
+			}
+			logger.debug("Continuing shared log {} with segment {}", this.directory, lastIndex + 1);
+			this.createSegment(lastIndex + 1);
+		}
+		
+		private void createSegment(final long segmentIndex)
+		{
+			final Path file      = StorageBinaryDataSharedLog.segmentFile(this.directory, segmentIndex);
+			final Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+			try
+			{
+				Files.createDirectories(this.directory);
+				try(final FileChannel channel = FileChannel.open(
+					temporary                   ,
+					StandardOpenOption.CREATE   ,
+					StandardOpenOption.TRUNCATE_EXISTING,
+					StandardOpenOption.READ     ,
+					StandardOpenOption.WRITE
+				))
+				{
+					// the mapping stays valid after the channel is closed
+					this.segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, this.segmentSize);
+				}
+				// readers only map complete segments
+				Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch(final IOException e)
+			{
+				throw new StorageDistributionException("Creation of shared log segment failed: " + file, e);
+			}
+			this.segmentIndex = segmentIndex;
+			this.offset       = 0;
+			
+			this.deleteOldSegments();
+		}
+		
+		/*
+		 * Readers which still map a deleted segment can continue reading it.
+		 */
+		private void deleteOldSegments()
+		{
+			for(final long index : StorageBinaryDataSharedLog.segmentIndexes(this.directory))
+			{
+				if(index > this.segmentIndex - this.maximumSegments)
+				{
+					break;
+				}
+				
+				final Path file = StorageBinaryDataSharedLog.segmentFile(this.directory, index);
+				try
+				{
+					Files.deleteIfExists(file);
+				}
+				catch(final IOException e)
+				{
+					logger.warn("Shared log segment could not be deleted: " + file, e);
+				}
+			}
+		}
+		
+		private static long size(final ByteBuffer[] buffers)
+		{
+			long size = 0;
+			for(final ByteBuffer buffer : buffers)
+			{
+				size += buffer.remaining();
+			}
+			if(size > Integer.MAX_VALUE)
+			{
+				throw new StorageDistributionException("Message too big: " + size + " bytes");
+			}
+			
+			return size;
+		}
+		
+		private static ByteBuffer copy(final ByteBuffer[] buffers)
+		{
+			final ByteBuffer copy = ByteBuffer.allocate((int)size(buffers));
+			for(final ByteBuffer buffer : buffers)
+			{
+				copy.put(buffer.duplicate());
+			}
+			
+			return copy.flip();
+		}
+		
+		/*
+		 * Duplicates, so the positions of the channel chunk buffers are left untouched.
+		 */
+		private static ByteBuffer[] allBuffers(final Binary data)
+		{
+			final List<ByteBuffer> list = new ArrayList<>();
+			data.iterateChannelChunks(channelChunk ->
+			{
+				for(final ByteBuffer buffer : channelChunk.buffers())
+				{
+					list.add(buffer.duplicate());
+				}
+			});
+			
+			return list.toArray(ByteBuffer[]::new);
+		}
+		
+		@Override
+		public void distributeData(final Binary data)
+		{
+			this.distribute(MessageType.DATA, allBuffers(data));
+		}
+		
+		/**
+		 * The returned stage is already completed, with the log position behind the data,
+		 * since the data is visible to the readers once the call returns.
+		 */
+		@Override
+		public CompletionStage<Long> distributeDataAsync(final Binary data)
+		{
+			return CompletableFuture.completedFuture(
+				this.distribute(MessageType.DATA, allBuffers(data))
+			);
+		}
+		
+		@Override
+		public void distributeTypeDictionary(final String typeDictionaryData)
+		{
+			this.distribute(
+				MessageType.TYPE_DICTIONARY,
+				new ByteBuffer[] { ByteBuffer.wrap(typeDictionaryData.getBytes(StandardCharsets.UTF_8)) }
+			);
+		}
+		
+		@Override
+		public boolean supportsTypeDictionaryDeltas()
+		{
+			return true;
+		}
+		
+		@Override
+		public void distributeTypeDictionaryDelta(final ByteBuffer typeDictionaryDelta)
+		{
+			this.distribute(
+				MessageType.TYPE_DICTIONARY_DELTA,
+				new ByteBuffer[] { typeDictionaryDelta.duplicate() }
+			);
+		}
+		
+		@Override
+		public synchronized void dispose()
+		{
+			// unmapped by the garbage collector
+			this.segment = null;
+		}
+		
+		
+		private static final class Message
+		{
+			final MessageType type;
+			final ByteBuffer  data;
+			
+			Message(final MessageType type, final ByteBuffer data)
+			{
+				super();
+				this.type = type;
+				this.data = data;
+			}
+		}
+		
+	}
+	
+}
@@ -0,0 +1,198 @@
+package org.eclipse.datagrid.storage.distributed.sharedlog.types;
+
+/*-
+ * #%L
+ * Eclipse DataGrid Storage Distributed Shared Log
+ * %%
+ * Copyright (C) 2025 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+import org.eclipse.datagrid.storage.distributed.types.StorageDistributionException;
+
+/**
+ * Layout of the shared log, a directory of memory-mapped segment files of equal size,
+ * which are named by their ascending index.
+ * <p>
+ * A segment consists of records aligned to 8 bytes: the record length (int), the packet length (int)
+ * and the packet, a {@link org.eclipse.datagrid.storage.distributed.types.StorageBinaryDataPacketHeader}
+ * followed by the packet data. The record length is written last with release semantics, so readers
+ * of other processes see complete records only. A record length of 0 marks the end of the written records,
+ * {@link #endOfSegment()} that the log continues in the next segment.
+ * <p>
+ * Positions in the log consist of the segment index in the upper and the offset within the segment
+ * in the lower 32 bits.
+ */
+public final class StorageBinaryDataSharedLog
+{
+	private final static VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+	
+	private final static String SEGMENT_SUFFIX = ".log";
+	
+	public static int defaultSegmentSize()
+	{
+		return 64 * 1024 * 1024;
+	}
+	
+	public static int minimumSegmentSize()
+	{
+		return 64 * 1024;
+	}
+	
+	public static int maximumSegmentSize()
+	{
+		return 1024 * 1024 * 1024;
+	}
+	
+	/**
+	 * @return the amount of segments kept, older ones are deleted
+	 */
+	public static int defaultMaximumSegments()
+	{
+		return 8;
+	}
+	
+	/**
+	 * @return the start position of readers, which begin with the oldest existing segment
+	 */
+	public static long earliest()
+	{
+		return -1L;
+	}
+	
+	public static int recordHeaderLength()
+	{
+		return 2 * Integer.BYTES;
+	}
+	
+	public static int endOfSegment()
+	{
+		return -1;
+	}
+	
+	/**
+	 * @return the maximum amount of data per packet, bigger messages are split into several packets
+	 */
+	public static int maximumPacketSize(final int segmentSize)
+	{
+		return segmentSize / 4;
+	}
+	
+	public static int align(final int length)
+	{
+		return length + 7 & ~7;
+	}
+	
+	public static long position(final long segmentIndex, final int offset)
+	{
+		return segmentIndex << 32 | offset & 0xFFFF_FFFFL;
+	}
+	
+	public static long segmentIndex(final long position)
+	{
+		return position >>> 32;
+	}
+	
+	public static int offset(final long position)
+	{
+		return (int)position;
+	}
+	
+	public static Path segmentFile(final Path directory, final long segmentIndex)
+	{
+		return directory.resolve(String.format("%020d", segmentIndex) + SEGMENT_SUFFIX);
+	}
+	
+	/**
+	 * @return the indexes of the existing segments in ascending order
+	 */
+	public static long[] segmentIndexes(final Path directory)
+	{
+		if(!Files.isDirectory(directory))
+		{
+			return new long[0];
+		}
+		
+		try(final Stream<Path> files = Files.list(directory))
+		{
+			return files
+				.map(file -> file.getFileName().toString())
+				.filter(name -> name.endsWith(SEGMENT_SUFFIX))
+				.map(name -> name.substring(0, name.length() - SEGMENT_SUFFIX.length()))
+				.filter(name -> !name.isEmpty() && name.chars().allMatch(Character::isDigit))
+				.mapToLong(Long::parseLong)
+				.sorted()
+				.toArray()
+			;
+		}
+		catch(final IOException e)
+		{
+			throw new StorageDistributionException("Listing of shared log segments failed: " + directory, e);
+		}
+	}
+	
+	/**
+	 * @return the length of the record at the offset, 0 if it hasn't been written yet
+	 */
+	public static int recordLength(final ByteBuffer segment, final int offset)
+	{
+		return (int)INT.getAcquire(segment, offset);
+	}
+	
+	public static int packetLength(final ByteBuffer segment, final int offset)
+	{
+		return (int)INT.get(segment, offset + Integer.BYTES);
+	}
+	
+	/**
+	 * Makes the record at the offset visible to readers, after its packet has been written.
+	 */
+	public static void publish(final ByteBuffer segment, final int offset, final int recordLength, final int packetLength)
+	{
+		INT.set(segment, offset + Integer.BYTES, packetLength);
+		INT.setRelease(segment, offset, recordLength);
+	}
+	
+	/**
+	 * Waits a bit, the longer the calling thread has been idle already.
+	 * 
+	 * @param idleCount how often the thread has been idle in a row
+	 * @return the incremented idle count
+	 */
+	static int idle(final int idleCount)
+	{
+		if(idleCount < 100)
+		{
+			Thread.onSpinWait();
+		}
+		else
+		{
+			LockSupport.parkNanos(100_000L);
+		}
+		
+		return idleCount < Integer.MAX_VALUE ? idleCount + 1 : idleCount;
+	}
+	
+	
+	private StorageBinaryDataSharedLog()
+	{
+		throw new UnsupportedOperationException();
+	}
+	
+}